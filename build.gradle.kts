@@ -18,11 +18,21 @@ repositories {
     maven(url = "https://oss.sonatype.org/content/groups/public/")
 }
 
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
 dependencies {
     compileOnly("org.jetbrains:annotations:20.1.0")
 
     testImplementation(platform("org.junit:junit-bom:5.7.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.xerial:sqlite-jdbc:3.34.0")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.26")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.26")
+    "jmhRuntimeOnly"("org.xerial:sqlite-jdbc:3.34.0")
 }
 
 java {
@@ -42,6 +52,21 @@ tasks.withType<Test> {
     }
 }
 
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks with the GC profiler. Use -Pjmh.include=<regex> to select benchmarks."
+
+    val results = layout.buildDirectory.file("reports/jmh/results.json")
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = listOfNotNull(project.findProperty("jmh.include")?.toString()) +
+            listOf("-prof", "gc", "-rf", "json", "-rff", results.get().asFile.path)
+
+    doFirst {
+        results.get().asFile.parentFile.mkdirs()
+    }
+}
+
 publishing {
     repositories {
         maven {
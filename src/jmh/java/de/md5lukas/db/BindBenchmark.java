@@ -0,0 +1,89 @@
+package de.md5lukas.db;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of binding all parameters of a statement, where every parameter name occurs twice
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BindBenchmark {
+
+    @Param({ "1", "10", "50" })
+    public int parameters;
+
+    private Connection connection;
+    private NamedPreparedStatement statement;
+    private PreparedStatement preparedStatement;
+    private String[] names;
+    private NamedParameter[] handles;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        StringBuilder sql = new StringBuilder("SELECT 0");
+        names = new String[parameters];
+        for (int i = 0; i < parameters; i++) {
+            names[i] = "parameter_" + i;
+            sql.append(" + :").append(names[i]).append(" * :").append(names[i]);
+        }
+        statement = new NamedPreparedStatement(connection, sql.toString());
+        preparedStatement = statement.getPreparedStatement();
+        handles = new NamedParameter[parameters];
+        for (int i = 0; i < parameters; i++) {
+            handles[i] = statement.getParameter(names[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        statement.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public void bindByName() throws SQLException {
+        for (int i = 0; i < names.length; i++) {
+            statement.setInt(names[i], i);
+        }
+    }
+
+    @Benchmark
+    public void bindByHandle() throws SQLException {
+        for (int i = 0; i < handles.length; i++) {
+            statement.setInt(handles[i], i);
+        }
+    }
+
+    /**
+     * Baseline that binds the indexes directly on the PreparedStatement
+     */
+    @Benchmark
+    public void bindByIndex() throws SQLException {
+        for (int i = 0; i < parameters; i++) {
+            preparedStatement.setInt(i * 2 + 1, i);
+            preparedStatement.setInt(i * 2 + 2, i);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package de.md5lukas.db;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end-to-end insert and select throughput through {@link SQLiteHelper} against a temporary database file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExecutionBenchmark {
+
+    private static final int ROWS = 10_000, BATCH = 100;
+    private static final String INSERT = "INSERT INTO entries (name, value) VALUES (:name, :value)";
+    private static final String SELECT = "SELECT name, value FROM entries WHERE id = :id";
+
+    private File directory;
+    private SQLiteHelper helper;
+    private List<Integer> batch;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("db-benchmark").toFile();
+        helper = new SQLiteHelper(new File(directory, "benchmark.db"), new SQLiteOptions()
+                .profile(ConnectionProfile.balanced())
+                .readerPoolSize(8)
+                .writeBehind(1024, 256, 1, TimeUnit.MILLISECONDS));
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT, value INTEGER)");
+        }
+
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(i);
+        }
+        try (BulkInsertStatement statement = new BulkInsertStatement(helper.getConnection(), INSERT)) {
+            List<Integer> rows = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                rows.add(i);
+            }
+            statement.insert(rows, ExecutionBenchmark::bindRow);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        helper.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static void bindRow(NamedPreparedStatement statement, Integer row) throws SQLException {
+        statement.setString("name", "entry" + row);
+        statement.setInt("value", row);
+    }
+
+    private int select() throws SQLException {
+        try (ConnectionLease lease = helper.leaseReader()) {
+            NamedPreparedStatement statement = lease.leaseStatement(SELECT);
+            try {
+                statement.setInt("id", ThreadLocalRandom.current().nextInt(ROWS) + 1);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getInt(2) : -1;
+                }
+            } finally {
+                lease.releaseStatement(statement);
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int selectThreads1() throws SQLException {
+        return select();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int selectThreads4() throws SQLException {
+        return select();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int selectThreads8() throws SQLException {
+        return select();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int insertSingle() throws SQLException {
+        NamedPreparedStatement statement = helper.leaseStatement(INSERT);
+        try {
+            bindRow(statement, ThreadLocalRandom.current().nextInt());
+            return statement.executeUpdate();
+        } finally {
+            helper.releaseStatement(statement);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH)
+    public int[] insertBatched() throws SQLException {
+        NamedPreparedStatement statement = helper.leaseStatement(INSERT);
+        try {
+            return statement.executeBatch(batch, ExecutionBenchmark::bindRow, BATCH);
+        } finally {
+            helper.releaseStatement(statement);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH)
+    public int insertMultiRow() throws SQLException {
+        try (BulkInsertStatement statement = new BulkInsertStatement(helper.getConnection(), INSERT)) {
+            return statement.insert(batch, ExecutionBenchmark::bindRow);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer insertWriteBehindThreads4() throws SQLException {
+        return helper.submitWrite(INSERT, ThreadLocalRandom.current().nextInt(), ExecutionBenchmark::bindRow).join();
+    }
+}
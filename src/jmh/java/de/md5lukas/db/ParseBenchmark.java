@@ -0,0 +1,66 @@
+package de.md5lukas.db;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing SQL strings of varied lengths and parameter counts, with and without a parse cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParseBenchmark {
+
+    @Param({ "100", "1000", "10000", "100000" })
+    public int length;
+
+    @Param({ "1", "10", "50" })
+    public int parameters;
+
+    private String sql;
+    private NamedParameterParser parser;
+
+    @Setup
+    public void setUp() {
+        sql = generateSql(length, parameters);
+        parser = NamedParameterParser.cached(16);
+        parser.parse(sql);
+    }
+
+    @Benchmark
+    public NamedParameterParseResult parse() {
+        return NamedPreparedStatement.parseSQLString(sql);
+    }
+
+    @Benchmark
+    public NamedParameterParseResult cachedParse() {
+        return parser.parse(sql);
+    }
+
+    /**
+     * Generates a SQL string of at least the provided length that references the provided amount of distinct parameters, which are repeated
+     * until the length is reached
+     */
+    static String generateSql(int length, int parameters) {
+        StringBuilder sql = new StringBuilder(length + 64).append("SELECT * FROM entries WHERE id > 0");
+        for (int i = 0; sql.length() < length || i < parameters; i++) {
+            sql.append(" AND (column_").append(i).append(" = :parameter_").append(i % parameters)
+                    .append(" OR label <> 'literal text ").append(i).append("')");
+        }
+        return sql.toString();
+    }
+}
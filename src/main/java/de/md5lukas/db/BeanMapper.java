@@ -0,0 +1,422 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Binds the properties of objects to named parameters and maps rows of result sets to new objects of a class.
+ * <br><br>
+ * The class is introspected once and every property is accessed through a cached {@link MethodHandle}, preferring public getters and setters
+ * (<code>getName()</code>, <code>isActive()</code> and <code>setName(String)</code>) over fields of the same name. Properties are matched with
+ * the names of the parameters and the labels of the columns, first exactly and then ignoring case and underscores, so a column
+ * <code>created_at</code> is mapped to a property <code>createdAt</code>.
+ * <br><br>
+ * The matching is resolved once per {@link NamedParameterParseResult}, which is kept as long as the parse result is reachable, and once per
+ * {@link ResultSet} through {@link #forResultSet(ResultSet)}, so binding and mapping many rows does not perform any reflection or lookups by
+ * name. Instances are thread-safe and cached per class.
+ *
+ * @param <T> The type of the objects
+ * @see NamedPreparedStatement#bindFrom(Object)
+ */
+public final class BeanMapper<T> implements StatementBinder<T>, RowMapper<T> {
+
+    @NotNull
+    private static final ClassValue<BeanMapper<?>> MAPPERS = new ClassValue<BeanMapper<?>>() {
+        @Override
+        protected BeanMapper<?> computeValue(Class<?> type) {
+            return new BeanMapper<>(type);
+        }
+    };
+
+    /**
+     * Returns the mapper for the class, which is created once and then cached
+     *
+     * @param type The class of the objects
+     * @param <T>  The type of the objects
+     * @return The mapper for the class
+     * @throws NullPointerException If the class is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> @NotNull BeanMapper<T> of(@NotNull Class<T> type) {
+        Validator.checkNotNull(type, "The class to map cannot be null");
+        return (BeanMapper<T>) MAPPERS.get(type);
+    }
+
+    /**
+     * Reads the value of a column with the method of the result set matching the type of the property
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+
+        @Nullable Object read(@NotNull ResultSet resultSet, int column) throws SQLException;
+    }
+
+    /**
+     * A single property of the class
+     */
+    private static final class Property {
+
+        @NotNull
+        private final String name;
+        @NotNull
+        private final Class<?> type;
+        /**
+         * <code>(Object)Object</code> or <code>null</code> if the property cannot be read
+         */
+        @Nullable
+        private MethodHandle getter;
+        /**
+         * <code>(Object, Object)void</code> or <code>null</code> if the property cannot be written
+         */
+        @Nullable
+        private MethodHandle setter;
+        @Nullable
+        private ColumnReader reader;
+
+        private Property(@NotNull String name, @NotNull Class<?> type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Maps the rows of a single result set with the setters resolved for its columns, where the columns without a matching property are
+     * <code>null</code>
+     */
+    private final class ResolvedMapper implements RowMapper<T> {
+
+        @NotNull
+        private final Property[] columns;
+
+        private ResolvedMapper(@NotNull Property[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public T map(@NotNull ResultSet resultSet) throws SQLException {
+            return mapRow(resultSet, columns);
+        }
+
+        @Override
+        public @NotNull RowMapper<T> forResultSet(@NotNull ResultSet resultSet) throws SQLException {
+            return BeanMapper.this.forResultSet(resultSet);
+        }
+    }
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    @NotNull
+    private final Class<T> type;
+    @NotNull
+    private final Map<@NotNull String, @NotNull Property> properties = new HashMap<>(), normalizedProperties = new HashMap<>();
+    /**
+     * <code>()Object</code> or <code>null</code> if the class has no accessible constructor without parameters
+     */
+    @Nullable
+    private final MethodHandle constructor;
+
+    /**
+     * The resolved getters for the parameters of every parse result, aligned with {@link NamedParameterParseResult#getParameterArray()}. The
+     * values do not reference the parse results, so they do not keep the weak keys reachable
+     */
+    @NotNull
+    private final Map<@NotNull NamedParameterParseResult, @NotNull Property[]> bindings = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private BeanMapper(@NotNull Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || properties.containsKey(field.getName())) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    Property property = new Property(field.getName(), field.getType());
+                    property.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                    if (!Modifier.isFinal(field.getModifiers())) {
+                        property.setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                    }
+                    properties.put(property.name, property);
+                } catch (IllegalAccessException | RuntimeException ignored) {
+                    // Fields of classes in modules that are not open cannot be accessed
+                }
+            }
+        }
+
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            String methodName = method.getName();
+            try {
+                if (method.getParameterCount() == 0 && method.getReturnType() != void.class) {
+                    String name = null;
+                    if (methodName.startsWith("get")) {
+                        name = propertyName(methodName, 3);
+                    } else if (methodName.startsWith("is") && method.getReturnType() == boolean.class) {
+                        name = propertyName(methodName, 2);
+                    }
+                    if (name != null) {
+                        method.setAccessible(true);
+                        propertyOf(name, method.getReturnType()).getter = lookup.unreflect(method).asType(GETTER_TYPE);
+                    }
+                } else if (method.getParameterCount() == 1 && methodName.startsWith("set")) {
+                    String name = propertyName(methodName, 3);
+                    Property property = name == null ? null : propertyOf(name, method.getParameterTypes()[0]);
+                    if (property != null && property.type == method.getParameterTypes()[0]) {
+                        method.setAccessible(true);
+                        property.setter = lookup.unreflect(method).asType(SETTER_TYPE);
+                    }
+                }
+            } catch (IllegalAccessException | RuntimeException ignored) {
+                // Methods of classes in modules that are not open cannot be accessed
+            }
+        }
+
+        for (Property property : properties.values()) {
+            property.reader = readerFor(property.type);
+            normalizedProperties.putIfAbsent(normalize(property.name), property);
+        }
+
+        MethodHandle constructor = null;
+        try {
+            Constructor<T> declared = type.getDeclaredConstructor();
+            declared.setAccessible(true);
+            constructor = lookup.unreflectConstructor(declared).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ignored) {
+            // The class can still be used for binding
+        }
+        this.constructor = constructor;
+    }
+
+    /**
+     * @return The class of the objects
+     */
+    public @NotNull Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Sets every parameter of the statement to the value of the property with the same name
+     *
+     * @param statement The statement to set the parameters on
+     * @param row       The object containing the values
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or a getter throws an exception
+     * @throws NullPointerException     If the statement or the object is null
+     * @throws IllegalArgumentException If the class has no readable property for a parameter
+     */
+    @Override
+    public void bind(@NotNull NamedPreparedStatement statement, T row) throws SQLException {
+        Validator.checkNotNull(statement, "The statement cannot be null");
+        Validator.checkNotNull(row, "The object to bind cannot be null");
+        NamedParameterParseResult parseResult = statement.getParseResult();
+        NamedParameter[] parameters = parseResult.getParameterArray();
+        Property[] getters = bindingFor(parseResult);
+        for (int i = 0; i < parameters.length; i++) {
+            Property property = getters[i];
+            Object value;
+            try {
+                value = property.getter.invokeExact((Object) row);
+            } catch (Throwable t) {
+                throw propagate(property, t);
+            }
+            statement.setObject(parameters[i], value);
+        }
+    }
+
+    /**
+     * Creates a new object using the constructor without parameters and sets every property that has a column with a matching label.
+     * Columns without a matching property are ignored. The columns are matched again for every call, so rows of the same result set should be
+     * mapped with the mapper returned by {@link #forResultSet(ResultSet)}
+     *
+     * @param resultSet The result set positioned at the row to map
+     * @return The new object
+     * @throws SQLException                  If a database error occurs, the ResultSet has been closed or the constructor or a setter throws an
+     *                                       exception
+     * @throws UnsupportedOperationException If the class has no constructor without parameters
+     */
+    @Override
+    public T map(@NotNull ResultSet resultSet) throws SQLException {
+        return mapRow(resultSet, columnsFor(resultSet));
+    }
+
+    /**
+     * Matches the labels of the columns of the result set once and returns a mapper that maps its rows like {@link #map(ResultSet)}
+     *
+     * @param resultSet The result set whose rows are mapped
+     * @return The mapper for the rows of the result set
+     * @throws SQLException If a database error occurs or the ResultSet has been closed
+     */
+    @Override
+    public @NotNull RowMapper<T> forResultSet(@NotNull ResultSet resultSet) throws SQLException {
+        return new ResolvedMapper(columnsFor(resultSet));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T mapRow(@NotNull ResultSet resultSet, @NotNull Property[] columns) throws SQLException {
+        if (constructor == null) {
+            throw new UnsupportedOperationException(String.format("The class %s has no constructor without parameters", type.getName()));
+        }
+
+        Object instance;
+        try {
+            instance = constructor.invokeExact();
+        } catch (Throwable t) {
+            throw propagate(null, t);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            Property property = columns[i];
+            if (property != null) {
+                Object value = property.reader.read(resultSet, i + 1);
+                try {
+                    property.setter.invokeExact(instance, value);
+                } catch (Throwable t) {
+                    throw propagate(property, t);
+                }
+            }
+        }
+        return (T) instance;
+    }
+
+    private @NotNull Property[] bindingFor(@NotNull NamedParameterParseResult parseResult) {
+        Property[] getters = bindings.get(parseResult);
+        if (getters != null) {
+            return getters;
+        }
+
+        NamedParameter[] parameters = parseResult.getParameterArray();
+        Property[] resolved = new Property[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Property property = find(parameters[i].getName());
+            if (property == null || property.getter == null) {
+                throw new IllegalArgumentException(String.format("The class %s has no readable property for the parameter %s",
+                        type.getName(), parameters[i].getName()));
+            }
+            resolved[i] = property;
+        }
+        bindings.put(parseResult, resolved);
+        return resolved;
+    }
+
+    private @NotNull Property[] columnsFor(@NotNull ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        Property[] columns = new Property[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            Property property = find(metaData.getColumnLabel(i + 1));
+            if (property != null && property.setter != null) {
+                columns[i] = property;
+            }
+        }
+        return columns;
+    }
+
+    private @Nullable Property find(@NotNull String name) {
+        Property property = properties.get(name);
+        return property != null ? property : normalizedProperties.get(normalize(name));
+    }
+
+    private @NotNull Property propertyOf(@NotNull String name, @NotNull Class<?> type) {
+        Property property = properties.get(name);
+        if (property == null) {
+            property = new Property(name, type);
+            properties.put(name, property);
+        }
+        return property;
+    }
+
+    private static @Nullable String propertyName(@NotNull String methodName, int prefixLength) {
+        if (methodName.length() <= prefixLength || !Character.isUpperCase(methodName.charAt(prefixLength))) {
+            return null;
+        }
+        String name = methodName.substring(prefixLength);
+        // Like java.beans.Introspector#decapitalize, names starting with multiple upper case characters are kept as they are
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static @NotNull String normalize(@NotNull String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static @NotNull SQLException propagate(@Nullable Property property, @NotNull Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t instanceof SQLException) {
+            return (SQLException) t;
+        }
+        return new SQLException(property == null ? "The object could not be created" : "The property " + property.name + " could not be accessed", t);
+    }
+
+    private static @NotNull ColumnReader readerFor(@NotNull Class<?> type) {
+        if (type == int.class) {
+            return ResultSet::getInt;
+        } else if (type == long.class) {
+            return ResultSet::getLong;
+        } else if (type == double.class) {
+            return ResultSet::getDouble;
+        } else if (type == float.class) {
+            return ResultSet::getFloat;
+        } else if (type == boolean.class) {
+            return ResultSet::getBoolean;
+        } else if (type == short.class) {
+            return ResultSet::getShort;
+        } else if (type == byte.class) {
+            return ResultSet::getByte;
+        } else if (type == String.class) {
+            return ResultSet::getString;
+        } else if (type == byte[].class) {
+            return ResultSet::getBytes;
+        } else if (type == Integer.class) {
+            return (resultSet, column) -> nullable(resultSet, resultSet.getInt(column));
+        } else if (type == Long.class) {
+            return (resultSet, column) -> nullable(resultSet, resultSet.getLong(column));
+        } else if (type == Double.class) {
+            return (resultSet, column) -> nullable(resultSet, resultSet.getDouble(column));
+        } else if (type == Float.class) {
+            return (resultSet, column) -> nullable(resultSet, resultSet.getFloat(column));
+        } else if (type == Boolean.class) {
+            return (resultSet, column) -> nullable(resultSet, resultSet.getBoolean(column));
+        } else if (type == Short.class) {
+            return (resultSet, column) -> nullable(resultSet, resultSet.getShort(column));
+        } else if (type == Byte.class) {
+            return (resultSet, column) -> nullable(resultSet, resultSet.getByte(column));
+        }
+        return ResultSet::getObject;
+    }
+
+    private static @Nullable Object nullable(@NotNull ResultSet resultSet, @NotNull Object value) throws SQLException {
+        return resultSet.wasNull() ? null : value;
+    }
+
+    @Override
+    public String toString() {
+        return "BeanMapper{" +
+                "type=" + type.getName() +
+                ", properties=" + properties.keySet() +
+                '}';
+    }
+}
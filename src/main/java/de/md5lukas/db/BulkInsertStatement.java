@@ -0,0 +1,353 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Inserts many rows using multi-row <code>VALUES</code> statements that are created from a single-row named INSERT statement.
+ * <br><br>
+ * Example:<br>
+ * <code>INSERT INTO table (a, b) VALUES (:a, :b)</code><br>
+ * Would be executed for three rows as:<br>
+ * <code>INSERT INTO table (a, b) VALUES (?, ?), (?, ?), (?, ?)</code>
+ * <br><br>
+ * The amount of rows per statement is chosen so the statement stays within the maximum amount of variables that SQLite allows per statement.
+ * The named parameters of each row are mapped onto the slots of that row automatically, so the same {@link StatementBinder}s and
+ * {@link NamedParameter} handles that work for the single-row statement can be used. The statements for every row count are prepared once and
+ * reused, and remaining rows are split into power-of-two chunks so only a few distinct statements are ever prepared.
+ * <br><br>
+ * Instances are not thread-safe.
+ */
+public final class BulkInsertStatement implements AutoCloseable {
+
+    /**
+     * The default value of <code>SQLITE_MAX_VARIABLE_NUMBER</code> for SQLite versions prior to 3.32.0
+     */
+    public static final int DEFAULT_MAX_VARIABLES = 999;
+
+    @NotNull
+    private static final String VALUES = "VALUES";
+
+    @NotNull
+    private final Connection connection;
+    @NotNull
+    private final NamedParameterParseResult template;
+    @NotNull
+    private final String prefix, tuple, suffix;
+    private final int variablesPerRow, rowsPerStatement;
+    @Nullable
+    private final StatementListener listener;
+    @Nullable
+    private final QueryCache queryCache;
+
+    @NotNull
+    private final Map<@NotNull Integer, @NotNull NamedPreparedStatement> statements = new HashMap<>();
+    @NotNull
+    private final Object[] buffer;
+
+    /**
+     * Creates a new bulk insert statement for the single-row INSERT statement that stays within {@link #DEFAULT_MAX_VARIABLES}
+     *
+     * @param connection The connection to use
+     * @param sql        The single-row INSERT statement with named parameters
+     * @throws NullPointerException     If the connection or the SQL string is null
+     * @throws IllegalArgumentException If the SQL string is not a single-row INSERT statement with all parameters inside the <code>VALUES</code> tuple
+     */
+    public BulkInsertStatement(@NotNull Connection connection, @NotNull String sql) {
+        this(connection, NamedPreparedStatement.parseSQLString(sql), DEFAULT_MAX_VARIABLES);
+    }
+
+    /**
+     * Creates a new bulk insert statement for the already parsed single-row INSERT statement
+     *
+     * @param connection   The connection to use
+     * @param template     The parsed single-row INSERT statement
+     * @param maxVariables The maximum amount of variables a single statement may contain
+     * @throws NullPointerException     If the connection or the template is null
+     * @throws IllegalArgumentException If the template is not a single-row INSERT statement with all parameters inside the <code>VALUES</code> tuple,
+     *                                  or if a single row has more variables than allowed
+     */
+    public BulkInsertStatement(@NotNull Connection connection, @NotNull NamedParameterParseResult template, int maxVariables) {
+        this(connection, template, maxVariables, null, null);
+    }
+
+    /**
+     * Creates a new bulk insert statement whose statements report to the listener and invalidate the written tables of the query cache, which
+     * are invalidated again once the own transaction of an insert has been committed
+     *
+     * @see SQLiteHelper#createBulkInsert(String, int)
+     */
+    BulkInsertStatement(@NotNull Connection connection, @NotNull NamedParameterParseResult template, int maxVariables,
+                        @Nullable StatementListener listener, @Nullable QueryCache queryCache) {
+        Validator.checkNotNull(connection, "The connection to use cannot be null");
+        Validator.checkNotNull(template, "The template cannot be null");
+        this.connection = connection;
+        this.template = template;
+        this.listener = listener;
+        this.queryCache = queryCache;
+
+        String sql = template.getSubstitutedSql();
+        char[] chars = sql.toCharArray();
+        int tupleStart = findValuesTuple(chars);
+        Validator.checkArgument(tupleStart >= 0, "The SQL string does not contain a VALUES tuple: %s", template.getSql());
+        int tupleEnd = findClosingParenthesis(chars, tupleStart);
+        Validator.checkArgument(tupleEnd >= 0, "The VALUES tuple of the SQL string is not closed: %s", template.getSql());
+
+        this.prefix = sql.substring(0, tupleStart);
+        this.tuple = sql.substring(tupleStart, tupleEnd + 1);
+        this.suffix = sql.substring(tupleEnd + 1);
+
+        int[] placeholders = template.getPlaceholders();
+        int variables = placeholders.length;
+        Validator.checkArgument(variables == 0 || (placeholders[0] > tupleStart && placeholders[variables - 1] < tupleEnd),
+                "All parameters must be inside the VALUES tuple of the SQL string: %s", template.getSql());
+        Validator.checkArgument(variables <= maxVariables, "A single row has %d variables, but only %d are allowed", variables, maxVariables);
+
+        this.variablesPerRow = variables;
+        this.rowsPerStatement = variables == 0 ? 1 : maxVariables / variables;
+        this.buffer = new Object[rowsPerStatement];
+    }
+
+    /**
+     * @return The maximum amount of rows that are inserted by a single statement
+     */
+    public int getRowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    /**
+     * @return The parse result of the single-row INSERT statement, which the parameter handles must be obtained from
+     */
+    public @NotNull NamedParameterParseResult getTemplate() {
+        return template;
+    }
+
+    /**
+     * Inserts all rows using multi-row statements. If the connection is in auto-commit mode, all rows are inserted inside a single transaction
+     * that is rolled back if any statement fails. Otherwise the rows are inserted as part of the transaction that is already in progress.
+     *
+     * @param rows   The rows to insert
+     * @param binder The binder that sets the parameters for every row as if it was the single-row statement
+     * @param <T>    The type of the rows
+     * @return The total number of affected rows
+     * @throws SQLException         If a database error occurs or the connection has been closed
+     * @throws NullPointerException If the rows or the binder are null
+     */
+    public <T> int insert(@NotNull Iterable<? extends T> rows, @NotNull StatementBinder<? super T> binder) throws SQLException {
+        Validator.checkNotNull(rows, "The rows to insert cannot be null");
+        Validator.checkNotNull(binder, "The binder cannot be null");
+
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        // Invalidate the written tables again once the own transaction has been committed
+        boolean tracking = autoCommit && queryCache != null && queryCache.startTracking();
+
+        int affected = 0;
+        try {
+            int buffered = 0;
+            Iterator<? extends T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                buffer[buffered++] = iterator.next();
+                if (buffered == rowsPerStatement) {
+                    affected += execute(0, buffered, binder);
+                    buffered = 0;
+                }
+            }
+
+            // Split the remaining rows into power-of-two chunks to limit the amount of distinct statements
+            int offset = 0;
+            while (offset < buffered) {
+                int chunk = Integer.highestOneBit(buffered - offset);
+                affected += execute(offset, chunk, binder);
+                offset += chunk;
+            }
+
+            if (autoCommit) {
+                connection.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (autoCommit) {
+                try {
+                    connection.rollback();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        } finally {
+            Arrays.fill(buffer, null);
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+            if (tracking) {
+                queryCache.stopTracking();
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Inserts all rows using multi-row statements. The keys of the maps are the names of the parameters, and parameters that are missing in a
+     * row are bound as NULL.
+     *
+     * @param rows The rows to insert
+     * @return The total number of affected rows
+     * @throws SQLException             If a database error occurs or the connection has been closed
+     * @throws NullPointerException     If the rows are null
+     * @throws IllegalArgumentException If a name has not been registered
+     * @see #insert(Iterable, StatementBinder)
+     */
+    public int insert(@NotNull Iterable<? extends Map<@NotNull String, ?>> rows) throws SQLException {
+        return insert(rows, (statement, row) -> {
+            // The statements are reused for every chunk, so the missing parameters must not keep the values of a previous row
+            for (NamedParameter parameter : template.getParameterArray()) {
+                if (!row.containsKey(parameter.getName())) {
+                    statement.setObject(parameter, null);
+                }
+            }
+            for (Map.Entry<String, ?> entry : row.entrySet()) {
+                statement.setObject(entry.getKey(), entry.getValue());
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> int execute(int offset, int count, @NotNull StatementBinder<? super T> binder) throws SQLException {
+        NamedPreparedStatement statement = statementFor(count);
+        try {
+            for (int row = 0; row < count; row++) {
+                statement.setIndexOffset(row * variablesPerRow);
+                binder.bind(statement, (T) buffer[offset + row]);
+            }
+        } finally {
+            statement.setIndexOffset(0);
+        }
+        return statement.executeUpdate();
+    }
+
+    private @NotNull NamedPreparedStatement statementFor(int rows) throws SQLException {
+        NamedPreparedStatement statement = statements.get(rows);
+        if (statement == null) {
+            StringBuilder sql = new StringBuilder(prefix.length() + rows * (tuple.length() + 2) + suffix.length());
+            sql.append(prefix);
+            for (int row = 0; row < rows; row++) {
+                if (row > 0) {
+                    sql.append(", ");
+                }
+                sql.append(tuple);
+            }
+            sql.append(suffix);
+            if (listener == null) {
+                statement = new NamedPreparedStatement(connection, template, sql.toString());
+            } else {
+                long start = System.nanoTime();
+                statement = new NamedPreparedStatement(connection, template, sql.toString());
+                listener.onPrepare(template, System.nanoTime() - start);
+                statement.setListener(listener);
+            }
+            statement.setQueryCache(queryCache);
+            statements.put(rows, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Closes all statements that have been prepared
+     *
+     * @throws SQLException If a database error occurs
+     */
+    @Override
+    public void close() throws SQLException {
+        SQLException exception = null;
+        for (NamedPreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        statements.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Finds the opening parenthesis of the tuple following the <code>VALUES</code> keyword, skipping string literals, quoted identifiers and
+     * comments like the {@link NamedParameterScanner}
+     */
+    private static int findValuesTuple(@NotNull char[] sql) {
+        int index = 0;
+        while (index < sql.length) {
+            int skipped = NamedParameterScanner.skipLexeme(sql, index);
+            if (skipped != index) {
+                index = skipped;
+            } else if (Character.isJavaIdentifierStart(sql[index])) {
+                int end = index + 1;
+                while (end < sql.length && Character.isJavaIdentifierPart(sql[end])) {
+                    end++;
+                }
+                if (end - index == VALUES.length() && VALUES.equalsIgnoreCase(new String(sql, index, end - index))) {
+                    int open = skipWhitespaceAndComments(sql, end);
+                    if (open < sql.length && sql[open] == '(') {
+                        return open;
+                    }
+                }
+                index = end;
+            } else {
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespaceAndComments(@NotNull char[] sql, int index) {
+        while (index < sql.length) {
+            if (Character.isWhitespace(sql[index])) {
+                index++;
+            } else if (sql[index] == '-' || sql[index] == '/') {
+                int skipped = NamedParameterScanner.skipLexeme(sql, index);
+                if (skipped == index) {
+                    break;
+                }
+                index = skipped;
+            } else {
+                break;
+            }
+        }
+        return index;
+    }
+
+    private static int findClosingParenthesis(@NotNull char[] sql, int open) {
+        int depth = 0;
+        int index = open;
+        while (index < sql.length) {
+            int skipped = NamedParameterScanner.skipLexeme(sql, index);
+            if (skipped != index) {
+                index = skipped;
+                continue;
+            }
+            char c = sql[index];
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,154 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * A growable column of primitive values that is filled from a result set by a {@link ColumnBatch}.
+ * <br><br>
+ * The values are stored in a primitive array that is reused once the column is cleared, so reading further rows into a cleared column does
+ * not allocate anything until it needs more capacity than before. If the column is nullable, a bitmap records which rows are
+ * <code>NULL</code>, otherwise <code>NULL</code> values are read as the value returned by the driver, which is <code>0</code> for numbers.
+ *
+ * @see LongColumn
+ * @see DoubleColumn
+ * @see IntColumn
+ * @see StringColumn
+ */
+public abstract class Column {
+
+    static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private final boolean nullable;
+    @Nullable
+    private long[] nulls;
+    int size = 0;
+
+    Column(boolean nullable, int initialCapacity) {
+        Validator.checkArgument(initialCapacity > 0, "The initial capacity must be positive, but is %d", initialCapacity);
+        this.nullable = nullable;
+        this.nulls = nullable ? new long[words(initialCapacity)] : null;
+    }
+
+    private static int words(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+
+    /**
+     * Appends the value of the column of the current row of the result set
+     *
+     * @param resultSet The result set positioned on a row
+     * @param column    The index of the column, starting at 1
+     * @throws SQLException If a database access error occurs
+     */
+    abstract void read(@NotNull ResultSet resultSet, int column) throws SQLException;
+
+    /**
+     * @return The amount of values the column can hold without growing
+     */
+    abstract int capacity();
+
+    /**
+     * Resizes the array of the values to the capacity, keeping the existing values
+     */
+    abstract void resize(int capacity);
+
+    /**
+     * Grows the column if it is full, so the value at the index {@link #size} can be set
+     */
+    final void ensureSpace() {
+        int capacity = capacity();
+        if (size == capacity) {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("The column cannot hold more than " + MAX_CAPACITY + " values");
+            }
+            ensureCapacity((int) Math.min(MAX_CAPACITY, 2L * capacity));
+        }
+    }
+
+    /**
+     * Records whether the value of the row at the index {@link #size} is <code>NULL</code>, if the column is nullable
+     */
+    final void recordNull(boolean isNull) {
+        long[] nulls = this.nulls;
+        if (nulls != null) {
+            if (isNull) {
+                nulls[size >>> 6] |= 1L << size;
+            } else {
+                nulls[size >>> 6] &= ~(1L << size);
+            }
+        }
+    }
+
+    final void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("The row " + row + " does not exist in a column with " + size + " rows");
+        }
+    }
+
+    /**
+     * Grows the column so it can hold at least the amount of values without growing again
+     *
+     * @param capacity The minimum capacity
+     * @throws IllegalArgumentException If the capacity is negative
+     */
+    public final void ensureCapacity(int capacity) {
+        Validator.checkArgument(capacity >= 0, "The capacity cannot be negative, but is %d", capacity);
+        if (capacity > capacity()) {
+            resize(capacity);
+            if (nulls != null) {
+                nulls = Arrays.copyOf(nulls, words(capacity));
+            }
+        }
+    }
+
+    /**
+     * @return The amount of rows in the column
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if the column records which rows are <code>NULL</code>
+     */
+    public final boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * Returns whether the value of the row is <code>NULL</code>. This is always <code>false</code> for numeric columns that are not nullable
+     *
+     * @param row The index of the row, starting at 0
+     * @return <code>true</code> if the value is <code>NULL</code>
+     * @throws IndexOutOfBoundsException If the row does not exist
+     */
+    public boolean isNull(int row) {
+        checkRow(row);
+        long[] nulls = this.nulls;
+        return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Returns the backing bitmap of the <code>NULL</code> values, where bit <code>row % 64</code> of the element <code>row / 64</code> is set
+     * if the value of the row is <code>NULL</code>. Only the bits of the first {@link #size()} rows are valid and the array is replaced
+     * once the column grows
+     *
+     * @return The bitmap or <code>null</code> if the column is not nullable
+     */
+    public final @Nullable long[] getNullBitmap() {
+        return nulls;
+    }
+
+    /**
+     * Removes all rows while keeping the capacity, so the column can be filled again without allocating
+     */
+    public void clear() {
+        size = 0;
+    }
+}
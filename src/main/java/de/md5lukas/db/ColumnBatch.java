@@ -0,0 +1,161 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * A set of {@link Column}s that are filled with the values of the columns of a result set, so analytical queries can read their results into
+ * primitive arrays without allocating objects for every row.
+ * <br><br>
+ * The columns keep their arrays when the batch is cleared, so a batch should be reused for repeated queries and the chunks of a
+ * {@link ColumnCursor}.
+ * <br><br>
+ * Example:<br>
+ * <pre><code>
+ * LongColumn ids = new LongColumn();
+ * DoubleColumn amounts = new DoubleColumn(true);
+ * ColumnBatch batch = new ColumnBatch().add("id", ids).add("amount", amounts);
+ * int rows = helper.extract("SELECT id, amount FROM orders WHERE day = :day", parameters, batch);
+ * double total = 0;
+ * for (int row = 0; row &lt; rows; row++) {
+ *     total += amounts.getValues()[row];
+ * }
+ * </code></pre>
+ *
+ * @see NamedPreparedStatement#extract(ColumnBatch)
+ * @see SQLiteHelper#extract(String, java.util.Map, ColumnBatch)
+ */
+public final class ColumnBatch {
+
+    @NotNull
+    private Column[] columns = new Column[0];
+    /**
+     * The index of the result set column of every column, or <code>0</code> if it is resolved by its label
+     */
+    @NotNull
+    private int[] indices = new int[0];
+    @NotNull
+    private String[] labels = new String[0];
+    private int size = 0;
+
+    /**
+     * Adds a column that is filled with the values of the result set column at the index
+     *
+     * @param columnIndex The index of the result set column, starting at 1
+     * @param column      The column to fill
+     * @return This instance for chaining
+     * @throws NullPointerException     If the column is null
+     * @throws IllegalArgumentException If the index is not positive or the column has already been added
+     */
+    public @NotNull ColumnBatch add(int columnIndex, @NotNull Column column) {
+        Validator.checkArgument(columnIndex > 0, "The index of the column must be positive, but is %d", columnIndex);
+        return add(columnIndex, null, column);
+    }
+
+    /**
+     * Adds a column that is filled with the values of the result set column with the label
+     *
+     * @param columnLabel The label of the result set column
+     * @param column      The column to fill
+     * @return This instance for chaining
+     * @throws NullPointerException     If the label or the column is null
+     * @throws IllegalArgumentException If the column has already been added
+     */
+    public @NotNull ColumnBatch add(@NotNull String columnLabel, @NotNull Column column) {
+        Validator.checkNotNull(columnLabel, "The label of the column cannot be null");
+        return add(0, columnLabel, column);
+    }
+
+    private @NotNull ColumnBatch add(int columnIndex, @Nullable String columnLabel, @NotNull Column column) {
+        Validator.checkNotNull(column, "The column cannot be null");
+        for (Column existing : columns) {
+            Validator.checkArgument(existing != column, "The column has already been added");
+        }
+        int count = columns.length;
+        columns = Arrays.copyOf(columns, count + 1);
+        indices = Arrays.copyOf(indices, count + 1);
+        labels = Arrays.copyOf(labels, count + 1);
+        columns[count] = column;
+        indices[count] = columnIndex;
+        labels[count] = columnLabel;
+        return this;
+    }
+
+    /**
+     * @return The amount of columns
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param index The index of the column in the order in which the columns have been added, starting at 0
+     * @return The column
+     * @throws IndexOutOfBoundsException If the column does not exist
+     */
+    public @NotNull Column getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @return The amount of rows in the columns
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all rows from the columns while keeping their capacity
+     *
+     * @see Column#clear()
+     */
+    public void clear() {
+        for (Column column : columns) {
+            column.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Looks up the indices of the result set columns once, so they are not looked up by their label for every row
+     *
+     * @param resultSet The result set
+     * @return The indices of the result set columns in the order of the columns
+     * @throws SQLException If the result set does not contain a column with one of the labels
+     */
+    @NotNull int[] resolve(@NotNull ResultSet resultSet) throws SQLException {
+        int[] resolved = indices.clone();
+        for (int i = 0; i < resolved.length; i++) {
+            if (labels[i] != null) {
+                resolved[i] = resultSet.findColumn(labels[i]);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Appends at most the amount of rows of the result set to the columns
+     *
+     * @param resultSet The result set
+     * @param resolved  The indices returned by {@link #resolve(ResultSet)}
+     * @param maxRows   The maximum amount of rows to read
+     * @return The amount of appended rows, which is less than the maximum if the result set has no rows left
+     * @throws SQLException If a database access error occurs
+     */
+    int fill(@NotNull ResultSet resultSet, @NotNull int[] resolved, int maxRows) throws SQLException {
+        Column[] columns = this.columns;
+        int count = 0;
+        while (count < maxRows && resultSet.next()) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].read(resultSet, resolved[i]);
+            }
+            count++;
+        }
+        size += count;
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the rows of a query in chunks into the columns of a {@link ColumnBatch}, so results that do not fit into memory can be processed with
+ * a constant amount of memory. Every chunk replaces the rows of the previous one in the same arrays.
+ * <br><br>
+ * The cursor holds the result set open until it is closed, so it must be used in a try-with-resources block:<br>
+ * <pre><code>
+ * try (ColumnCursor cursor = statement.extractChunks(batch)) {
+ *     while (cursor.next(10_000) &gt; 0) {
+ *         ...
+ *     }
+ * }
+ * </code></pre>
+ *
+ * @see NamedPreparedStatement#extractChunks(ColumnBatch)
+ */
+public final class ColumnCursor implements AutoCloseable {
+
+    @NotNull
+    private final ResultSet resultSet;
+    @NotNull
+    private final ColumnBatch batch;
+    @NotNull
+    private final int[] resolved;
+    @NotNull
+    private final NamedParameterParseResult parseResult;
+    @Nullable
+    private final StatementListener listener;
+    @Nullable
+    private final SQLRunnable onClose;
+    private boolean exhausted = false, closed = false;
+    private long fetchNanos = 0, rows = 0;
+
+    ColumnCursor(@NotNull ResultSet resultSet, @NotNull ColumnBatch batch, @NotNull int[] resolved, @NotNull NamedParameterParseResult parseResult,
+                 @Nullable StatementListener listener, @Nullable SQLRunnable onClose) {
+        this.resultSet = resultSet;
+        this.batch = batch;
+        this.resolved = resolved;
+        this.parseResult = parseResult;
+        this.listener = listener;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Clears the batch and reads the next chunk of rows into it
+     *
+     * @param maxRows The maximum amount of rows in the chunk
+     * @return The amount of rows in the chunk, which is <code>0</code> once all rows have been read
+     * @throws SQLException             If a database access error occurs or the cursor has been closed
+     * @throws IllegalArgumentException If the maximum is not positive
+     */
+    public int next(int maxRows) throws SQLException {
+        Validator.checkArgument(maxRows > 0, "The maximum amount of rows must be positive, but is %d", maxRows);
+        if (closed) {
+            throw new SQLException("The cursor has been closed");
+        }
+        batch.clear();
+        if (exhausted) {
+            return 0;
+        }
+        long start = listener == null ? 0 : System.nanoTime();
+        int count = batch.fill(resultSet, resolved, maxRows);
+        if (listener != null) {
+            fetchNanos += System.nanoTime() - start;
+            rows += count;
+        }
+        if (count < maxRows) {
+            exhausted = true;
+        }
+        return count;
+    }
+
+    /**
+     * @return The batch the chunks are read into
+     */
+    public @NotNull ColumnBatch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Closes the result set and reports the time spent reading the rows to the listener of the statement, if any
+     *
+     * @throws SQLException If a database access error occurs
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (listener != null) {
+                listener.onFetch(parseResult, fetchNanos, rows);
+            }
+            resultSet.close();
+        } finally {
+            if (onClose != null) {
+                onClose.run();
+            }
+        }
+    }
+}
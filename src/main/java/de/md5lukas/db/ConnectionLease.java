@@ -0,0 +1,117 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A connection that is exclusively leased to the caller until this lease is closed, which returns the connection instead of closing it.
+ * <br><br>
+ * The connection itself must therefore never be closed directly. Statements leased from this lease must be released before the lease is closed.
+ *
+ * @see SQLiteHelper#leaseReader()
+ */
+public final class ConnectionLease implements AutoCloseable {
+
+    @NotNull
+    private final Connection connection;
+    @NotNull
+    private final StatementCache statementCache;
+    @Nullable
+    private final ConnectionPool pool;
+    @Nullable
+    private final ConnectionPool.Entry entry;
+    private boolean closed = false;
+
+    ConnectionLease(@NotNull Connection connection, @NotNull StatementCache statementCache, @Nullable ConnectionPool pool, @Nullable ConnectionPool.Entry entry) {
+        this.connection = connection;
+        this.statementCache = statementCache;
+        this.pool = pool;
+        this.entry = entry;
+    }
+
+    /**
+     * @return The leased connection
+     * @throws IllegalStateException If the lease has already been closed
+     */
+    public @NotNull Connection getConnection() {
+        checkOpen();
+        return connection;
+    }
+
+    /**
+     * Leases a {@link NamedPreparedStatement} from the statement cache of the leased connection
+     *
+     * @param sql The SQL string with named parameters
+     * @return A statement that is exclusively used by the caller until it is released
+     * @throws SQLException          If a database access error occurs
+     * @throws NullPointerException  If the SQL string is null
+     * @throws IllegalStateException If the lease has already been closed
+     * @see SQLiteHelper#leaseStatement(String)
+     */
+    public @NotNull NamedPreparedStatement leaseStatement(@NotNull String sql) throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        checkOpen();
+        return statementCache.lease(sql);
+    }
+
+    /**
+     * Leases a {@link NamedPreparedStatement} for the already parsed, and possibly expanded, SQL string from the statement cache of the
+     * leased connection
+     *
+     * @param parseResult The parse result of the SQL string
+     * @return A statement that is exclusively used by the caller until it is released
+     * @throws SQLException          If a database access error occurs
+     * @throws NullPointerException  If the parse result is null
+     * @throws IllegalStateException If the lease has already been closed
+     * @see SQLiteHelper#leaseStatement(NamedParameterParseResult)
+     */
+    public @NotNull NamedPreparedStatement leaseStatement(@NotNull NamedParameterParseResult parseResult) throws SQLException {
+        Validator.checkNotNull(parseResult, "The parse result cannot be null");
+        checkOpen();
+        return statementCache.lease(parseResult);
+    }
+
+    /**
+     * Prepares a new statement for the parse result like {@link #leaseStatement(NamedParameterParseResult)}, replacing the idle statement that
+     * may be cached for it
+     */
+    @NotNull NamedPreparedStatement prepareStatement(@NotNull NamedParameterParseResult parseResult) throws SQLException {
+        checkOpen();
+        return statementCache.prepare(parseResult);
+    }
+
+    /**
+     * Gives a statement obtained by {@link #leaseStatement(String)} back to the statement cache of the leased connection
+     *
+     * @param statement The statement to release
+     * @throws NullPointerException If the statement is null
+     * @see SQLiteHelper#releaseStatement(NamedPreparedStatement)
+     */
+    public void releaseStatement(@NotNull NamedPreparedStatement statement) {
+        Validator.checkNotNull(statement, "The statement to release cannot be null");
+        statementCache.release(statement);
+    }
+
+    /**
+     * Returns the connection to the pool it has been leased from. Closing a lease multiple times has no effect
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pool != null && entry != null) {
+            pool.release(entry);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The connection lease has already been closed");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of connections that are created lazily and handed out as {@link ConnectionLease}s.
+ * <br><br>
+ * Idle connections are reused in last-in-first-out order, so the connections with the warmest statement caches are preferred.
+ */
+final class ConnectionPool {
+
+    /**
+     * Factory that opens a new connection for the pool
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+
+        @NotNull Connection open() throws SQLException;
+    }
+
+    /**
+     * A pooled connection together with its statement cache
+     */
+    static final class Entry {
+
+        @NotNull
+        final Connection connection;
+        @NotNull
+        final StatementCache statementCache;
+
+        Entry(@NotNull Connection connection, @NotNull StatementCache statementCache) {
+            this.connection = connection;
+            this.statementCache = statementCache;
+        }
+
+        void close() {
+            statementCache.close();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    @NotNull
+    private final ConnectionFactory factory;
+    @NotNull
+    private final NamedParameterParser parser;
+    private final int maximumSize, statementCacheSize;
+    @Nullable
+    private final StatementListener listener;
+
+    @NotNull
+    private final Semaphore permits;
+    @NotNull
+    private final ConcurrentLinkedDeque<@NotNull Entry> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed = false;
+
+    @NotNull
+    private final AtomicInteger active = new AtomicInteger(), created = new AtomicInteger();
+    @NotNull
+    private final LongAdder leases = new LongAdder(), timeouts = new LongAdder(), waitNanos = new LongAdder();
+
+    ConnectionPool(@NotNull ConnectionFactory factory, @NotNull NamedParameterParser parser, int maximumSize, int statementCacheSize,
+                   @Nullable StatementListener listener) {
+        this.factory = factory;
+        this.parser = parser;
+        this.maximumSize = maximumSize;
+        this.statementCacheSize = statementCacheSize;
+        this.listener = listener;
+        this.permits = new Semaphore(maximumSize, true);
+    }
+
+    /**
+     * Leases an idle connection or opens a new one if the pool is not yet full. If all connections are leased, this waits up to the timeout
+     * for a connection to be returned.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return The lease of the connection
+     * @throws SQLTimeoutException If no connection became available in time
+     * @throws SQLException        If the pool has been closed, the thread has been interrupted or a new connection could not be opened
+     */
+    @NotNull ConnectionLease lease(long timeout, @NotNull TimeUnit unit) throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool has been closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeout, unit)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("No connection became available within " + unit.toMillis(timeout) + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        waitNanos.add(System.nanoTime() - start);
+
+        Entry entry;
+        try {
+            entry = idle.pollFirst();
+            if (entry != null && entry.connection.isClosed()) {
+                entry.close();
+                entry = null;
+            }
+            if (entry == null) {
+                Connection connection = factory.open();
+                // The connections of the pool are read-only, so their statements never have to invalidate the query cache
+                entry = new Entry(connection, new StatementCache(connection, parser, statementCacheSize, listener, null));
+                created.incrementAndGet();
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        active.incrementAndGet();
+        leases.increment();
+        return new ConnectionLease(entry.connection, entry.statementCache, this, entry);
+    }
+
+    /**
+     * Returns the connection to the pool, or closes it if the pool has been closed
+     *
+     * @param entry The entry of the returned connection
+     */
+    void release(@NotNull Entry entry) {
+        active.decrementAndGet();
+        if (closed) {
+            entry.close();
+        } else {
+            idle.offerFirst(entry);
+            // The pool could have been closed concurrently before the entry was added
+            if (closed) {
+                drainIdle();
+            }
+        }
+        permits.release();
+    }
+
+    /**
+     * Closes all idle connections. Leased connections are closed once they are returned
+     */
+    void close() {
+        closed = true;
+        drainIdle();
+    }
+
+    private void drainIdle() {
+        Entry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            entry.close();
+        }
+    }
+
+    @NotNull PoolMetrics metrics() {
+        return new PoolMetrics(maximumSize, active.get(), idle.size(), created.get(), leases.sum(), timeouts.sum(), waitNanos.sum());
+    }
+}
@@ -0,0 +1,377 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Typed collection of the performance related PRAGMAs that are applied to every connection a {@link SQLiteHelper} opens.
+ * <br><br>
+ * Every setting that has not been set keeps the default of the SQLite driver. The presets {@link #durable()}, {@link #balanced()} and
+ * {@link #throughput()} are a starting point and return new instances, so they can be adjusted further.
+ *
+ * @see SQLiteOptions#profile(ConnectionProfile)
+ */
+public final class ConnectionProfile {
+
+    /**
+     * The values of <code>PRAGMA journal_mode</code>
+     */
+    public enum JournalMode {
+        /**
+         * The rollback journal is deleted at the end of every transaction
+         */
+        DELETE,
+        /**
+         * The rollback journal is truncated to zero bytes at the end of every transaction
+         */
+        TRUNCATE,
+        /**
+         * The header of the rollback journal is overwritten with zeros at the end of every transaction
+         */
+        PERSIST,
+        /**
+         * The rollback journal is kept in memory
+         */
+        MEMORY,
+        /**
+         * A write-ahead log is used instead of a rollback journal, which allows readers to run concurrently with a writer
+         */
+        WAL,
+        /**
+         * No rollback journal is used at all
+         */
+        OFF
+    }
+
+    /**
+     * The values of <code>PRAGMA synchronous</code>
+     */
+    public enum Synchronous {
+        /**
+         * Data is handed to the operating system without syncing
+         */
+        OFF,
+        /**
+         * Data is synced at the most critical moments, which in WAL mode means only at checkpoints
+         */
+        NORMAL,
+        /**
+         * Data is synced on every commit
+         */
+        FULL,
+        /**
+         * Like {@link #FULL}, but the directory containing the rollback journal is synced as well
+         */
+        EXTRA
+    }
+
+    /**
+     * The values of <code>PRAGMA temp_store</code>
+     */
+    public enum TempStore {
+        /**
+         * The compile time default of SQLite is used
+         */
+        DEFAULT,
+        /**
+         * Temporary tables and indices are stored in files
+         */
+        FILE,
+        /**
+         * Temporary tables and indices are kept in memory
+         */
+        MEMORY
+    }
+
+    /**
+     * The modes of <code>PRAGMA wal_checkpoint</code>
+     */
+    public enum CheckpointMode {
+        /**
+         * Checkpoints as many frames as possible without waiting for readers or writers
+         */
+        PASSIVE,
+        /**
+         * Waits for the writer and then for all readers before checkpointing every frame
+         */
+        FULL,
+        /**
+         * Like {@link #FULL}, but additionally waits for readers so the next writer restarts the log from the beginning
+         */
+        RESTART,
+        /**
+         * Like {@link #RESTART}, but additionally truncates the log file to zero bytes
+         */
+        TRUNCATE
+    }
+
+    /**
+     * Creates a profile that favors durability: every commit is synced to disk before it returns, while WAL still allows concurrent readers
+     *
+     * @return A new profile with the durable settings
+     */
+    public static @NotNull ConnectionProfile durable() {
+        return new ConnectionProfile()
+                .journalMode(JournalMode.WAL)
+                .synchronous(Synchronous.FULL)
+                .busyTimeout(5_000);
+    }
+
+    /**
+     * Creates a profile that only syncs at checkpoints, so a power loss can roll back the latest commits but never corrupts the database,
+     * and uses a larger page cache
+     *
+     * @return A new profile with the balanced settings
+     */
+    public static @NotNull ConnectionProfile balanced() {
+        return new ConnectionProfile()
+                .journalMode(JournalMode.WAL)
+                .synchronous(Synchronous.NORMAL)
+                .cacheSize(-16_384)
+                .tempStore(TempStore.MEMORY)
+                .busyTimeout(5_000);
+    }
+
+    /**
+     * Creates a profile for maximum throughput that never syncs to disk and memory-maps the database.
+     * An operating system crash or power loss can corrupt the database with these settings
+     *
+     * @return A new profile with the throughput settings
+     */
+    public static @NotNull ConnectionProfile throughput() {
+        return new ConnectionProfile()
+                .journalMode(JournalMode.WAL)
+                .synchronous(Synchronous.OFF)
+                .cacheSize(-65_536)
+                .mmapSize(268_435_456L)
+                .tempStore(TempStore.MEMORY)
+                .walAutocheckpoint(10_000)
+                .busyTimeout(5_000);
+    }
+
+    @Nullable
+    private JournalMode journalMode;
+    @Nullable
+    private Synchronous synchronous;
+    @Nullable
+    private Integer cacheSize;
+    @Nullable
+    private Long mmapSize;
+    @Nullable
+    private Integer pageSize;
+    @Nullable
+    private TempStore tempStore;
+    @Nullable
+    private Integer busyTimeout;
+    @Nullable
+    private Integer walAutocheckpoint;
+
+    /**
+     * Sets <code>PRAGMA journal_mode</code>
+     *
+     * @param journalMode The journal mode
+     * @return This instance for chaining
+     */
+    public @NotNull ConnectionProfile journalMode(@Nullable JournalMode journalMode) {
+        this.journalMode = journalMode;
+        return this;
+    }
+
+    /**
+     * @return The journal mode, or <code>null</code> if the default is used
+     */
+    public @Nullable JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    /**
+     * Sets <code>PRAGMA synchronous</code>
+     *
+     * @param synchronous The synchronous mode
+     * @return This instance for chaining
+     */
+    public @NotNull ConnectionProfile synchronous(@Nullable Synchronous synchronous) {
+        this.synchronous = synchronous;
+        return this;
+    }
+
+    /**
+     * @return The synchronous mode, or <code>null</code> if the default is used
+     */
+    public @Nullable Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Sets <code>PRAGMA cache_size</code>. Positive values are a number of pages, negative values a number of kibibytes
+     *
+     * @param cacheSize The size of the page cache
+     * @return This instance for chaining
+     */
+    public @NotNull ConnectionProfile cacheSize(@Nullable Integer cacheSize) {
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * @return The size of the page cache, or <code>null</code> if the default is used
+     */
+    public @Nullable Integer getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Sets <code>PRAGMA mmap_size</code>, the maximum amount of bytes of the database that are memory-mapped
+     *
+     * @param mmapSize The maximum amount of memory-mapped bytes
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the size is negative
+     */
+    public @NotNull ConnectionProfile mmapSize(@Nullable Long mmapSize) {
+        Validator.checkArgument(mmapSize == null || mmapSize >= 0, "The mmap size cannot be negative, but is %d", mmapSize);
+        this.mmapSize = mmapSize;
+        return this;
+    }
+
+    /**
+     * @return The maximum amount of memory-mapped bytes, or <code>null</code> if the default is used
+     */
+    public @Nullable Long getMmapSize() {
+        return mmapSize;
+    }
+
+    /**
+     * Sets <code>PRAGMA page_size</code>. The page size only has an effect before the database is created or when it is vacuumed
+     *
+     * @param pageSize The page size in bytes, which must be a power of two between 512 and 65536
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the page size is not a power of two between 512 and 65536
+     */
+    public @NotNull ConnectionProfile pageSize(@Nullable Integer pageSize) {
+        Validator.checkArgument(pageSize == null || (pageSize >= 512 && pageSize <= 65536 && Integer.bitCount(pageSize) == 1),
+                "The page size must be a power of two between 512 and 65536, but is %d", pageSize);
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * @return The page size, or <code>null</code> if the default is used
+     */
+    public @Nullable Integer getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Sets <code>PRAGMA temp_store</code>
+     *
+     * @param tempStore Where temporary tables and indices are stored
+     * @return This instance for chaining
+     */
+    public @NotNull ConnectionProfile tempStore(@Nullable TempStore tempStore) {
+        this.tempStore = tempStore;
+        return this;
+    }
+
+    /**
+     * @return Where temporary tables and indices are stored, or <code>null</code> if the default is used
+     */
+    public @Nullable TempStore getTempStore() {
+        return tempStore;
+    }
+
+    /**
+     * Sets <code>PRAGMA busy_timeout</code>, the time in milliseconds a connection waits for a lock before failing with <code>SQLITE_BUSY</code>
+     *
+     * @param busyTimeout The busy timeout in milliseconds
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the timeout is negative
+     */
+    public @NotNull ConnectionProfile busyTimeout(@Nullable Integer busyTimeout) {
+        Validator.checkArgument(busyTimeout == null || busyTimeout >= 0, "The busy timeout cannot be negative, but is %d", busyTimeout);
+        this.busyTimeout = busyTimeout;
+        return this;
+    }
+
+    /**
+     * @return The busy timeout in milliseconds, or <code>null</code> if the default is used
+     */
+    public @Nullable Integer getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    /**
+     * Sets <code>PRAGMA wal_autocheckpoint</code>, the amount of WAL pages after which a commit automatically runs a passive checkpoint
+     *
+     * @param walAutocheckpoint The amount of pages, or <code>0</code> to disable automatic checkpoints
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the amount is negative
+     */
+    public @NotNull ConnectionProfile walAutocheckpoint(@Nullable Integer walAutocheckpoint) {
+        Validator.checkArgument(walAutocheckpoint == null || walAutocheckpoint >= 0,
+                "The WAL autocheckpoint cannot be negative, but is %d", walAutocheckpoint);
+        this.walAutocheckpoint = walAutocheckpoint;
+        return this;
+    }
+
+    /**
+     * @return The amount of pages after which a checkpoint is run automatically, or <code>null</code> if the default is used
+     */
+    public @Nullable Integer getWalAutocheckpoint() {
+        return walAutocheckpoint;
+    }
+
+    /**
+     * Applies all settings that have been set to the connection
+     *
+     * @param connection         The connection to apply the settings to
+     * @param includeJournalMode <code>false</code> to skip the journal mode, which is persistent and only has to be set by a writing connection
+     * @throws SQLException If a database access error occurs
+     */
+    void apply(@NotNull Connection connection, boolean includeJournalMode) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // The page size has to be set before the journal mode, because it cannot be changed in WAL mode
+            if (pageSize != null) {
+                statement.execute("PRAGMA page_size = " + pageSize);
+            }
+            if (busyTimeout != null) {
+                statement.execute("PRAGMA busy_timeout = " + busyTimeout);
+            }
+            if (includeJournalMode && journalMode != null) {
+                statement.execute("PRAGMA journal_mode = " + journalMode.name());
+            }
+            if (synchronous != null) {
+                statement.execute("PRAGMA synchronous = " + synchronous.name());
+            }
+            if (cacheSize != null) {
+                statement.execute("PRAGMA cache_size = " + cacheSize);
+            }
+            if (mmapSize != null) {
+                statement.execute("PRAGMA mmap_size = " + mmapSize);
+            }
+            if (tempStore != null) {
+                statement.execute("PRAGMA temp_store = " + tempStore.name());
+            }
+            if (walAutocheckpoint != null) {
+                statement.execute("PRAGMA wal_autocheckpoint = " + walAutocheckpoint);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionProfile{" +
+                "journalMode=" + journalMode +
+                ", synchronous=" + synchronous +
+                ", cacheSize=" + cacheSize +
+                ", mmapSize=" + mmapSize +
+                ", pageSize=" + pageSize +
+                ", tempStore=" + tempStore +
+                ", busyTimeout=" + busyTimeout +
+                ", walAutocheckpoint=" + walAutocheckpoint +
+                '}';
+    }
+}
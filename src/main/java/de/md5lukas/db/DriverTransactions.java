@@ -0,0 +1,138 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Begins the transactions of {@link SQLiteHelper#inTransaction(TransactionMode, TransactionCallback)} in the requested {@link TransactionMode}.
+ * <br><br>
+ * The Xerial SQLite driver begins a transaction with the mode of its connection configuration once auto-commit is disabled, which is set for
+ * connections of that driver. The driver is only accessed reflectively, so it is not required at compile time. Connections of other drivers,
+ * or of driver versions without that configuration, end the transaction that has been begun by disabling auto-commit and begin a new one with
+ * plain SQL instead.
+ */
+final class DriverTransactions {
+
+    /**
+     * The connection class of the Xerial driver, or <code>null</code> if the driver or its transaction mode configuration is not available
+     */
+    @Nullable
+    private static final Class<?> CONNECTION_CLASS;
+    /**
+     * <code>(Object)Object</code> reading the transaction mode of the configuration of a driver connection
+     */
+    @Nullable
+    private static final MethodHandle GET_MODE;
+    /**
+     * <code>(Object, Object)void</code> setting the transaction mode of the configuration of a driver connection
+     */
+    @Nullable
+    private static final MethodHandle SET_MODE;
+    /**
+     * The transaction modes of the driver, aligned with {@link TransactionMode#values()}
+     */
+    @Nullable
+    private static final Object[] MODES;
+
+    static {
+        Class<?> connectionClass = null;
+        MethodHandle getMode = null, setMode = null;
+        Object[] modes = null;
+        try {
+            Class<?> candidate = Class.forName("org.sqlite.SQLiteConnection");
+            Class<?> modeClass = Class.forName("org.sqlite.SQLiteConfig$TransactionMode");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Method getConfig = candidate.getMethod("getConnectionConfig");
+            MethodHandle config = lookup.unreflect(getConfig);
+            Class<?> configClass = getConfig.getReturnType();
+
+            getMode = MethodHandles.filterArguments(lookup.findVirtual(configClass, "getTransactionMode", MethodType.methodType(modeClass)), 0, config)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            setMode = MethodHandles.filterArguments(lookup.findVirtual(configClass, "setTransactionMode", MethodType.methodType(void.class, modeClass)),
+                    0, config).asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+            TransactionMode[] values = TransactionMode.values();
+            modes = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                modes[i] = driverMode(modeClass, values[i].name());
+            }
+            connectionClass = candidate;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError ignored) {
+            // The driver is not available or does not support transaction modes, so plain SQL is used
+        }
+        CONNECTION_CLASS = connectionClass;
+        GET_MODE = getMode;
+        SET_MODE = setMode;
+        MODES = modes;
+    }
+
+    private DriverTransactions() {
+    }
+
+    /**
+     * Disables auto-commit on the connection and begins a transaction in the requested mode. The auto-commit flag of the driver is kept
+     * consistent, so nested batches participate in the transaction
+     *
+     * @param connection The connection in auto-commit mode
+     * @param mode       How the transaction acquires its locks
+     * @throws SQLException If a database error occurs or the database is busy
+     */
+    static void begin(@NotNull Connection connection, @NotNull TransactionMode mode) throws SQLException {
+        if (CONNECTION_CLASS != null && connection.isWrapperFor(CONNECTION_CLASS)) {
+            Object driverConnection = connection.unwrap(CONNECTION_CLASS);
+            // The driver begins the next transaction with the same mode after every commit or rollback, so the requested mode is only applied
+            // to this one. Other threads must not use the connection meanwhile, as documented by SQLiteHelper#getConnection()
+            Object previous = invoke(() -> GET_MODE.invokeExact(driverConnection));
+            invoke(() -> {
+                SET_MODE.invokeExact(driverConnection, MODES[mode.ordinal()]);
+                return null;
+            });
+            try {
+                connection.setAutoCommit(false);
+            } finally {
+                invoke(() -> {
+                    SET_MODE.invokeExact(driverConnection, previous);
+                    return null;
+                });
+            }
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        if (mode != TransactionMode.DEFERRED) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("COMMIT");
+                statement.execute("BEGIN " + mode.name());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+
+        @Nullable Object invoke() throws Throwable;
+    }
+
+    private static @Nullable Object invoke(@NotNull Invocation invocation) throws SQLException {
+        try {
+            return invocation.invoke();
+        } catch (RuntimeException | Error | SQLException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SQLException("The transaction mode of the driver could not be accessed", t);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static @NotNull Object driverMode(@NotNull Class<?> modeClass, @NotNull String name) {
+        return Enum.valueOf((Class<? extends Enum>) modeClass, name);
+    }
+}
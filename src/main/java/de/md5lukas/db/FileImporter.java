@@ -0,0 +1,506 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports a delimited text file using a pipeline of three stages.
+ * <br><br>
+ * A reader thread reads the file through a {@link FileChannel} into a fixed pool of buffers, cutting every buffer at the end of a record, so
+ * the buffers can be parsed independently. Parser threads split the records of a buffer into fields and store the mapped fields in the
+ * reusable value array of the buffer. The calling thread inserts the records of every buffer in a single transaction in the order of the file
+ * and then returns the buffer to the pool, which makes the reader wait while all buffers are in use.
+ */
+final class FileImporter {
+
+    /**
+     * A part of the file that ends at the end of a record, together with its parsed values
+     */
+    private static final class Chunk {
+
+        @NotNull
+        private byte[] data;
+        private int length;
+        private long firstLine, endPosition;
+        @NotNull
+        private String[] values = new String[0];
+        private int records;
+
+        private Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    /**
+     * Marks that the whole file has been read
+     */
+    @NotNull
+    private static final Chunk END = new Chunk(0);
+    private static final int READ_SIZE = 64 * 1024;
+
+    @FunctionalInterface
+    private interface RecordSink {
+
+        void record(@NotNull List<@Nullable String> fields, long line) throws IOException;
+    }
+
+    @NotNull
+    private final SQLiteHelper helper;
+    @NotNull
+    private final Path file;
+    @NotNull
+    private final String sql;
+    @NotNull
+    private final ImportOptions options;
+    private final byte delimiter;
+    private final int quote;
+    @NotNull
+    private final Charset charset;
+    private final boolean emptyAsNull;
+
+    /**
+     * The index of the column of every bound parameter
+     */
+    private int[] columns;
+
+    FileImporter(@NotNull SQLiteHelper helper, @NotNull Path file, @NotNull String sql, @NotNull ImportOptions options) {
+        this.helper = helper;
+        this.file = file;
+        this.sql = sql;
+        this.options = options;
+        this.delimiter = (byte) options.getDelimiter();
+        this.quote = options.getQuote() == null ? -1 : options.getQuote();
+        this.charset = options.getCharset();
+        this.emptyAsNull = options.isEmptyAsNull();
+    }
+
+    @NotNull ImportProgress run() throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long totalBytes = channel.size();
+            Source source = new Source(channel);
+            NamedPreparedStatement statement = helper.leaseStatement(sql);
+            try {
+                String[] header = null;
+                if (options.hasHeader()) {
+                    Chunk chunk = new Chunk(options.getBufferSize());
+                    List<String> names = new ArrayList<>();
+                    if (source.fill(chunk, 1)) {
+                        parse(chunk.data, chunk.length, chunk.firstLine, (fields, line) -> names.addAll(fields));
+                    }
+                    header = names.toArray(new String[0]);
+                }
+                NamedParameter[] parameters = resolve(statement.getParseResult(), header);
+                return insert(source, statement, parameters, totalBytes, start);
+            } finally {
+                helper.releaseStatement(statement);
+            }
+        }
+    }
+
+    /**
+     * Resolves the parameter and the column of every slot of a record
+     */
+    private @NotNull NamedParameter[] resolve(@NotNull NamedParameterParseResult parseResult, @Nullable String[] header) {
+        Map<String, Integer> mapping = new LinkedHashMap<>();
+        if (!options.getHeaderMappings().isEmpty() && header == null) {
+            throw new IllegalArgumentException("Columns can only be mapped by name if the file has a header");
+        }
+        if (options.getIndexMappings().isEmpty() && options.getHeaderMappings().isEmpty()) {
+            List<NamedParameter> parameters = new ArrayList<>(parseResult.getParameters());
+            if (header != null) {
+                for (NamedParameter parameter : parameters) {
+                    mapping.put(parameter.getName(), columnOf(header, parameter.getName()));
+                }
+            } else {
+                // Map the columns in the order in which the parameters first appear in the statement
+                parameters.sort(Comparator.comparingInt(parameter -> parameter.getIndexes()[0]));
+                for (int column = 0; column < parameters.size(); column++) {
+                    mapping.put(parameters.get(column).getName(), column);
+                }
+            }
+        } else {
+            options.getIndexMappings().forEach((column, parameter) -> mapping.put(parameter, column));
+            for (Map.Entry<String, String> entry : options.getHeaderMappings().entrySet()) {
+                mapping.put(entry.getValue(), columnOf(header, entry.getKey()));
+            }
+        }
+
+        for (NamedParameter parameter : parseResult.getParameters()) {
+            Validator.checkArgument(mapping.containsKey(parameter.getName()), "The parameter %s is not mapped to a column", parameter.getName());
+        }
+        NamedParameter[] parameters = new NamedParameter[mapping.size()];
+        columns = new int[mapping.size()];
+        int slot = 0;
+        for (Map.Entry<String, Integer> entry : mapping.entrySet()) {
+            parameters[slot] = parseResult.getParameter(entry.getKey());
+            columns[slot++] = entry.getValue();
+        }
+        return parameters;
+    }
+
+    private static int columnOf(@NotNull String[] header, @NotNull String name) {
+        for (int column = 0; column < header.length; column++) {
+            if (name.equals(header[column])) {
+                return column;
+            }
+        }
+        for (int column = 0; column < header.length; column++) {
+            if (name.equalsIgnoreCase(header[column])) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException(String.format("The header does not contain a column named %s", name));
+    }
+
+    private @NotNull ImportProgress insert(@NotNull Source source, @NotNull NamedPreparedStatement statement, @NotNull NamedParameter[] parameters,
+                                           long totalBytes, long start) throws IOException, SQLException {
+        String name = file.getFileName().toString();
+        AtomicInteger parserNumber = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(options.getParserThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "SQLiteHelper import parser " + parserNumber.incrementAndGet() + " " + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(options.getBufferCount());
+        for (int i = 0; i < options.getBufferCount(); i++) {
+            free.add(new Chunk(options.getBufferSize()));
+        }
+        // Every chunk is either free or parsed, so the final future always fits into the additional slot
+        BlockingQueue<CompletableFuture<Chunk>> parsed = new ArrayBlockingQueue<>(options.getBufferCount() + 1);
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    Chunk chunk = free.take();
+                    if (!source.fill(chunk, options.getChunkSize())) {
+                        break;
+                    }
+                    CompletableFuture<Chunk> future = new CompletableFuture<>();
+                    parsers.execute(() -> {
+                        try {
+                            parse(chunk, parameters.length);
+                            future.complete(chunk);
+                        } catch (Throwable t) {
+                            future.completeExceptionally(t);
+                        }
+                    });
+                    parsed.put(future);
+                }
+                parsed.offer(CompletableFuture.completedFuture(END));
+            } catch (InterruptedException e) {
+                // The import has been cancelled
+            } catch (IOException | RuntimeException e) {
+                CompletableFuture<Chunk> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                parsed.offer(failed);
+            }
+        }, "SQLiteHelper import reader " + name);
+        reader.setDaemon(true);
+        reader.start();
+
+        ImportListener listener = options.getProgressListener();
+        int batchSize = options.getBatchSize();
+        long records = 0, transactions = 0, bytes = 0;
+        try {
+            while (true) {
+                Chunk chunk = await(parsed);
+                if (chunk == END) {
+                    break;
+                }
+                helper.inTransaction(connection -> {
+                    statement.clearBatch();
+                    int pending = 0;
+                    for (int record = 0; record < chunk.records; record++) {
+                        int base = record * parameters.length;
+                        for (int slot = 0; slot < parameters.length; slot++) {
+                            statement.setString(parameters[slot], chunk.values[base + slot]);
+                        }
+                        statement.addBatch();
+                        if (++pending == batchSize) {
+                            statement.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        statement.executeBatch();
+                    }
+                    return null;
+                });
+                records += chunk.records;
+                transactions++;
+                bytes = chunk.endPosition;
+                free.add(chunk);
+                if (listener != null) {
+                    listener.onProgress(new ImportProgress(bytes, totalBytes, records, transactions, System.nanoTime() - start));
+                }
+            }
+        } finally {
+            reader.interrupt();
+            parsers.shutdownNow();
+            boolean interrupted = false;
+            while (reader.isAlive()) {
+                try {
+                    reader.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new ImportProgress(bytes, totalBytes, records, transactions, System.nanoTime() - start);
+    }
+
+    private static @NotNull Chunk await(@NotNull BlockingQueue<@NotNull CompletableFuture<Chunk>> parsed) throws IOException, SQLException {
+        try {
+            return parsed.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The import has been interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Parses the records of the chunk and stores the values of the mapped columns
+     */
+    private void parse(@NotNull Chunk chunk, int width) throws IOException {
+        chunk.records = 0;
+        parse(chunk.data, chunk.length, chunk.firstLine, (fields, line) -> {
+            int base = chunk.records * width;
+            if (base + width > chunk.values.length) {
+                chunk.values = Arrays.copyOf(chunk.values, Math.max(base + width, chunk.values.length * 2));
+            }
+            for (int slot = 0; slot < width; slot++) {
+                int column = columns[slot];
+                if (column >= fields.size()) {
+                    throw new IOException(String.format("Line %d has %d columns, but column %d is mapped", line, fields.size(), column));
+                }
+                chunk.values[base + slot] = fields.get(column);
+            }
+            chunk.records++;
+        });
+    }
+
+    /**
+     * Splits the bytes into records and fields. Empty lines are skipped
+     */
+    private void parse(@NotNull byte[] data, int length, long firstLine, @NotNull RecordSink sink) throws IOException {
+        List<String> fields = new ArrayList<>();
+        byte[] scratch = null;
+        int pos = 0;
+        long line = firstLine;
+        while (pos < length) {
+            if (data[pos] == '\n' || (data[pos] == '\r' && (pos + 1 == length || data[pos + 1] == '\n'))) {
+                pos += data[pos] == '\r' && pos + 1 < length ? 2 : 1;
+                line++;
+                continue;
+            }
+            fields.clear();
+            long recordLine = line;
+            while (true) {
+                if (quote >= 0 && pos < length && data[pos] == quote) {
+                    int start = ++pos;
+                    boolean escaped = false;
+                    while (true) {
+                        if (pos >= length) {
+                            throw new IOException(String.format("The quoted field in line %d is not terminated", recordLine));
+                        }
+                        if (data[pos] == quote) {
+                            if (pos + 1 < length && data[pos + 1] == quote) {
+                                escaped = true;
+                                pos += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (data[pos] == '\n') {
+                            line++;
+                        }
+                        pos++;
+                    }
+                    if (escaped) {
+                        if (scratch == null || scratch.length < pos - start) {
+                            scratch = new byte[Math.max(pos - start, 64)];
+                        }
+                        int size = 0;
+                        for (int i = start; i < pos; i++) {
+                            scratch[size++] = data[i];
+                            if (data[i] == quote) {
+                                i++;
+                            }
+                        }
+                        fields.add(new String(scratch, 0, size, charset));
+                    } else {
+                        fields.add(new String(data, start, pos - start, charset));
+                    }
+                    pos++;
+                    if (pos < length && data[pos] != delimiter && data[pos] != '\n' && data[pos] != '\r') {
+                        throw new IOException(String.format("Unexpected character after the quoted field in line %d", line));
+                    }
+                } else {
+                    int start = pos;
+                    while (pos < length && data[pos] != delimiter && data[pos] != '\n') {
+                        pos++;
+                    }
+                    int end = pos;
+                    if (end > start && data[end - 1] == '\r') {
+                        end--;
+                    }
+                    fields.add(end == start ? (emptyAsNull ? null : "") : new String(data, start, end - start, charset));
+                }
+
+                if (pos < length && data[pos] == delimiter) {
+                    pos++;
+                    continue;
+                }
+                if (pos < length && data[pos] == '\r') {
+                    pos++;
+                }
+                if (pos < length && data[pos] == '\n') {
+                    pos++;
+                    line++;
+                }
+                break;
+            }
+            sink.record(fields, recordLine);
+        }
+    }
+
+    /**
+     * Reads the file and cuts it into chunks that end at the end of a record. Only used by a single thread at a time
+     */
+    private final class Source {
+
+        @NotNull
+        private final FileChannel channel;
+        @NotNull
+        private byte[] carry = new byte[0];
+        private int carryLength;
+        private boolean eof;
+        private long line = 1, position;
+
+        private Source(@NotNull FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Fills the chunk with the next complete records
+         *
+         * @return <code>false</code> if the end of the file has been reached
+         */
+        boolean fill(@NotNull Chunk chunk, int maxRecords) throws IOException {
+            if (chunk.data.length <= carryLength) {
+                chunk.data = new byte[Math.max(carryLength * 2, chunk.data.length)];
+            }
+            System.arraycopy(carry, 0, chunk.data, 0, carryLength);
+            int length = carryLength;
+            carryLength = 0;
+
+            boolean quoted = false;
+            int scanned = 0, records = 0, end = -1;
+            long newlines = 0, endNewlines = 0;
+            while (true) {
+                if (scanned == length && !eof && length < chunk.data.length) {
+                    length = read(chunk.data, length);
+                }
+                byte[] data = chunk.data;
+                for (; scanned < length && records < maxRecords; scanned++) {
+                    byte b = data[scanned];
+                    if (quote >= 0 && b == quote) {
+                        // Escaped quotes toggle the state twice
+                        quoted = !quoted;
+                    } else if (b == '\n') {
+                        newlines++;
+                        if (!quoted) {
+                            end = scanned + 1;
+                            endNewlines = newlines;
+                            records++;
+                        }
+                    }
+                }
+                if (records == maxRecords) {
+                    break;
+                }
+                if (eof) {
+                    if (end < 0) {
+                        // The last record does not end with a line break
+                        end = length;
+                        endNewlines = newlines;
+                    }
+                    break;
+                }
+                if (length == data.length) {
+                    if (end >= 0) {
+                        break;
+                    }
+                    // A single record does not fit into the buffer
+                    chunk.data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+            if (end == 0) {
+                return false;
+            }
+
+            carryLength = length - end;
+            if (carry.length < carryLength) {
+                carry = new byte[Math.max(carryLength, carry.length * 2)];
+            }
+            System.arraycopy(chunk.data, end, carry, 0, carryLength);
+            chunk.length = end;
+            chunk.firstLine = line;
+            line += endNewlines;
+            position += end;
+            chunk.endPosition = position;
+            return true;
+        }
+
+        /**
+         * Reads the next part of the file, which is limited in size, so chunks that end early because of the maximum amount of records do not
+         * carry over most of the buffer
+         */
+        private int read(@NotNull byte[] data, int length) throws IOException {
+            int count = channel.read(ByteBuffer.wrap(data, length, Math.min(READ_SIZE, data.length - length)));
+            if (count < 0) {
+                eof = true;
+                return length;
+            }
+            return length + count;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener that is notified about the progress of an import
+ *
+ * @see ImportOptions#progressListener(ImportListener)
+ */
+@FunctionalInterface
+public interface ImportListener {
+
+    /**
+     * Called on the importing thread after every committed transaction, so it should return quickly
+     *
+     * @param progress The progress of the import after the transaction
+     */
+    void onProgress(@NotNull ImportProgress progress);
+}
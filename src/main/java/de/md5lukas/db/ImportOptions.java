@@ -0,0 +1,297 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options that configure how {@link SQLiteHelper#importFile(Path, String, ImportOptions)} reads a delimited text file and inserts its records.
+ * <br><br>
+ * The defaults read a CSV file as described by RFC 4180 without a header, where the columns are mapped onto the parameters of the INSERT
+ * statement in the order in which the parameters first appear in the statement. TSV files are read with <code>delimiter('\t').quote(null)</code>.
+ * <br><br>
+ * Example:<br>
+ * <pre><code>
+ * ImportOptions options = new ImportOptions().header(true).column("Country Code", "code").column(3, "population");
+ * helper.importFile(file, "INSERT INTO countries (code, population) VALUES (:code, :population)", options);
+ * </code></pre>
+ */
+public final class ImportOptions {
+
+    private char delimiter = ',';
+    @Nullable
+    private Character quote = '"';
+    @NotNull
+    private Charset charset = StandardCharsets.UTF_8;
+    private boolean header = false, emptyAsNull = false;
+    @NotNull
+    private final Map<@NotNull Integer, @NotNull String> indexMappings = new LinkedHashMap<>();
+    @NotNull
+    private final Map<@NotNull String, @NotNull String> headerMappings = new LinkedHashMap<>();
+    private int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private int bufferCount = 2 * parserThreads + 2, bufferSize = 1 << 20;
+    private int chunkSize = 10_000, batchSize = 1_000;
+    @Nullable
+    private ImportListener listener;
+
+    /**
+     * Sets the character that separates the fields of a record. Defaults to <code>','</code>
+     *
+     * @param delimiter The delimiter
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the delimiter is not an ASCII character, a line break or the quote character
+     */
+    public @NotNull ImportOptions delimiter(char delimiter) {
+        Validator.checkArgument(delimiter < 0x80 && delimiter != '\n' && delimiter != '\r', "The delimiter must be an ASCII character other than a line break");
+        Validator.checkArgument(quote == null || delimiter != quote, "The delimiter cannot be the quote character");
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * @return The character that separates the fields of a record
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Sets the character that encloses fields containing delimiters, line breaks or quotes, which are escaped by doubling them.
+     * Defaults to <code>'"'</code>
+     *
+     * @param quote The quote character or <code>null</code> to read all fields literally
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the quote is not an ASCII character, a line break or the delimiter
+     */
+    public @NotNull ImportOptions quote(@Nullable Character quote) {
+        if (quote != null) {
+            Validator.checkArgument(quote < 0x80 && quote != '\n' && quote != '\r', "The quote must be an ASCII character other than a line break");
+            Validator.checkArgument(quote != delimiter, "The quote character cannot be the delimiter");
+        }
+        this.quote = quote;
+        return this;
+    }
+
+    /**
+     * @return The quote character or <code>null</code> if fields are read literally
+     */
+    public @Nullable Character getQuote() {
+        return quote;
+    }
+
+    /**
+     * Sets the charset of the file. Defaults to UTF-8
+     *
+     * @param charset The charset, which must encode ASCII characters as single bytes
+     * @return This instance for chaining
+     * @throws NullPointerException     If the charset is null
+     * @throws IllegalArgumentException If the charset does not encode ASCII characters as single bytes
+     */
+    public @NotNull ImportOptions charset(@NotNull Charset charset) {
+        Validator.checkNotNull(charset, "The charset cannot be null");
+        String ascii = "\t\n\r \",;|";
+        Validator.checkArgument(Arrays.equals(ascii.getBytes(charset), ascii.getBytes(StandardCharsets.US_ASCII)),
+                "The charset %s does not encode ASCII characters as single bytes", charset);
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * @return The charset of the file
+     */
+    public @NotNull Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Sets whether the first record of the file contains the names of the columns. If it does and no columns have been mapped explicitly,
+     * the columns are mapped onto the parameters with the same name, ignoring the case. Defaults to <code>false</code>
+     *
+     * @param header <code>true</code> if the file starts with a header
+     * @return This instance for chaining
+     */
+    public @NotNull ImportOptions header(boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if the first record of the file contains the names of the columns
+     */
+    public boolean hasHeader() {
+        return header;
+    }
+
+    /**
+     * Sets whether empty fields that are not quoted are inserted as <code>NULL</code> instead of an empty string. Defaults to <code>false</code>
+     *
+     * @param emptyAsNull <code>true</code> to insert empty fields as <code>NULL</code>
+     * @return This instance for chaining
+     */
+    public @NotNull ImportOptions emptyAsNull(boolean emptyAsNull) {
+        this.emptyAsNull = emptyAsNull;
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if empty fields that are not quoted are inserted as <code>NULL</code>
+     */
+    public boolean isEmptyAsNull() {
+        return emptyAsNull;
+    }
+
+    /**
+     * Maps the column at the index onto the named parameter. Once any column has been mapped, only the mapped columns are imported
+     *
+     * @param index     The index of the column, starting at 0
+     * @param parameter The name of the parameter
+     * @return This instance for chaining
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the index is negative
+     */
+    public @NotNull ImportOptions column(int index, @NotNull String parameter) {
+        Validator.checkNotNull(parameter, "The name of the parameter cannot be null");
+        Validator.checkArgument(index >= 0, "The index of the column cannot be negative, but is %d", index);
+        indexMappings.put(index, parameter);
+        return this;
+    }
+
+    /**
+     * Maps the column with the name in the header onto the named parameter
+     *
+     * @param column    The name of the column in the header
+     * @param parameter The name of the parameter
+     * @return This instance for chaining
+     * @throws NullPointerException If the column or the parameter is null
+     * @see #header(boolean)
+     */
+    public @NotNull ImportOptions column(@NotNull String column, @NotNull String parameter) {
+        Validator.checkNotNull(column, "The name of the column cannot be null");
+        Validator.checkNotNull(parameter, "The name of the parameter cannot be null");
+        headerMappings.put(column, parameter);
+        return this;
+    }
+
+    /**
+     * @return The parameters mapped by the index of their column
+     */
+    @NotNull Map<@NotNull Integer, @NotNull String> getIndexMappings() {
+        return indexMappings;
+    }
+
+    /**
+     * @return The parameters mapped by the name of their column in the header
+     */
+    @NotNull Map<@NotNull String, @NotNull String> getHeaderMappings() {
+        return headerMappings;
+    }
+
+    /**
+     * Sets the amount of threads that parse the records, while the file is read by another thread and the records are inserted by the calling
+     * thread. Defaults to one less than the amount of available processors
+     *
+     * @param parserThreads The amount of parser threads
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the amount is not positive
+     */
+    public @NotNull ImportOptions parserThreads(int parserThreads) {
+        Validator.checkArgument(parserThreads > 0, "The amount of parser threads must be positive, but is %d", parserThreads);
+        this.parserThreads = parserThreads;
+        return this;
+    }
+
+    /**
+     * @return The amount of threads that parse the records
+     */
+    public int getParserThreads() {
+        return parserThreads;
+    }
+
+    /**
+     * Sets the amount and the initial size of the buffers that hold the chunks of the file while they are parsed and inserted. The buffers are
+     * reused for the whole import, so the reader waits for a free buffer once all of them are in use, which bounds the memory used by the
+     * import and slows down reading if inserting cannot keep up. Buffers grow if a single record does not fit.
+     * Defaults to two buffers per parser thread plus two and one MiB per buffer
+     *
+     * @param bufferCount The amount of buffers
+     * @param bufferSize  The initial size of every buffer in bytes
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the amount is less than two or the size is not positive
+     */
+    public @NotNull ImportOptions buffers(int bufferCount, int bufferSize) {
+        Validator.checkArgument(bufferCount >= 2, "The amount of buffers must be at least two, but is %d", bufferCount);
+        Validator.checkArgument(bufferSize > 0, "The size of the buffers must be positive, but is %d", bufferSize);
+        this.bufferCount = bufferCount;
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * @return The amount of buffers
+     */
+    public int getBufferCount() {
+        return bufferCount;
+    }
+
+    /**
+     * @return The initial size of every buffer in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the maximum amount of records per transaction and the amount of records that are sent to the database as a single batch.
+     * Every buffer holds at most one transaction. Defaults to 10,000 records per transaction and batches of 1,000 records
+     *
+     * @param chunkSize The maximum amount of records per transaction
+     * @param batchSize The amount of records per batch
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If a size is not positive
+     */
+    public @NotNull ImportOptions chunks(int chunkSize, int batchSize) {
+        Validator.checkArgument(chunkSize > 0, "The chunk size must be positive, but is %d", chunkSize);
+        Validator.checkArgument(batchSize > 0, "The batch size must be positive, but is %d", batchSize);
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @return The maximum amount of records per transaction
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return The amount of records per batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the listener that is notified after every committed transaction
+     *
+     * @param listener The listener or <code>null</code> to disable the notifications
+     * @return This instance for chaining
+     */
+    public @NotNull ImportOptions progressListener(@Nullable ImportListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @return The listener that is notified after every committed transaction, or <code>null</code> if none has been set
+     */
+    public @Nullable ImportListener getProgressListener() {
+        return listener;
+    }
+}
@@ -0,0 +1,88 @@
+package de.md5lukas.db;
+
+import java.nio.file.Path;
+
+/**
+ * Snapshot of the progress of an import at the time it has been created
+ *
+ * @see SQLiteHelper#importFile(Path, String, ImportOptions)
+ */
+public final class ImportProgress {
+
+    private final long bytesImported, totalBytes, recordsImported, transactionCount, elapsedNanos;
+
+    ImportProgress(long bytesImported, long totalBytes, long recordsImported, long transactionCount, long elapsedNanos) {
+        this.bytesImported = bytesImported;
+        this.totalBytes = totalBytes;
+        this.recordsImported = recordsImported;
+        this.transactionCount = transactionCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The amount of bytes of the file whose records have been committed
+     */
+    public long getBytesImported() {
+        return bytesImported;
+    }
+
+    /**
+     * @return The size of the file in bytes when the import has been started
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The ratio of the file that has been imported between <code>0</code> and <code>1</code>
+     */
+    public double getFraction() {
+        return totalBytes == 0 ? 1 : Math.min(1, (double) bytesImported / totalBytes);
+    }
+
+    /**
+     * @return The amount of records that have been committed, excluding the header
+     */
+    public long getRecordsImported() {
+        return recordsImported;
+    }
+
+    /**
+     * @return The amount of committed transactions
+     */
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * @return The time in nanoseconds since the import has been started
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The average amount of records imported per second
+     */
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : recordsImported * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The average amount of bytes imported per second
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesImported * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportProgress{" +
+                "bytesImported=" + bytesImported +
+                ", totalBytes=" + totalBytes +
+                ", recordsImported=" + recordsImported +
+                ", transactionCount=" + transactionCount +
+                ", elapsedNanos=" + elapsedNanos +
+                '}';
+    }
+}
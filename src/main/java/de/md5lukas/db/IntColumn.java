@@ -0,0 +1,93 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * A column of <code>int</code> values read with {@link ResultSet#getInt(int)}
+ *
+ * @see ColumnBatch
+ */
+public final class IntColumn extends Column {
+
+    @NotNull
+    private int[] values;
+
+    /**
+     * Creates a new column that is not nullable
+     */
+    public IntColumn() {
+        this(false);
+    }
+
+    /**
+     * Creates a new column
+     *
+     * @param nullable <code>true</code> to record which rows are <code>NULL</code>
+     */
+    public IntColumn(boolean nullable) {
+        this(nullable, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new column
+     *
+     * @param nullable        <code>true</code> to record which rows are <code>NULL</code>
+     * @param initialCapacity The amount of values the column can hold before it grows
+     * @throws IllegalArgumentException If the initial capacity is not positive
+     */
+    public IntColumn(boolean nullable, int initialCapacity) {
+        super(nullable, initialCapacity);
+        this.values = new int[initialCapacity];
+    }
+
+    @Override
+    void read(@NotNull ResultSet resultSet, int column) throws SQLException {
+        ensureSpace();
+        values[size] = resultSet.getInt(column);
+        if (isNullable()) {
+            recordNull(resultSet.wasNull());
+        }
+        size++;
+    }
+
+    @Override
+    int capacity() {
+        return values.length;
+    }
+
+    @Override
+    void resize(int capacity) {
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * @param row The index of the row, starting at 0
+     * @return The value of the row
+     * @throws IndexOutOfBoundsException If the row does not exist
+     */
+    public int get(int row) {
+        checkRow(row);
+        return values[row];
+    }
+
+    /**
+     * Returns the backing array of the values, which is only valid for the first {@link #size()} elements and is replaced once the column grows
+     *
+     * @return The backing array
+     * @see LongColumn#getValues()
+     */
+    public @NotNull int[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return A copy of the values of all rows
+     */
+    public @NotNull int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
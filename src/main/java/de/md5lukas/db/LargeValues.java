@@ -0,0 +1,178 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Helpers that copy large column values of the current row of a {@link ResultSet} into buffers, channels and streams provided by the caller.
+ * <br><br>
+ * The values are read through {@link ResultSet#getBinaryStream(int)} and {@link ResultSet#getCharacterStream(int)} and copied in small chunks,
+ * so no further copies of the whole value are created in addition to the one the driver may hold. Together with the stream setters of
+ * {@link NamedPreparedStatement} this keeps the heap usage of storing and loading large values close to the size of a single value.
+ */
+public final class LargeValues {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private LargeValues() {
+    }
+
+    /**
+     * Copies the bytes of the column into the remaining space of the buffer and advances its position by the amount of copied bytes.
+     * If the value is larger than the remaining space, only its beginning is copied, which can be detected by comparing the returned
+     * length with the amount of copied bytes
+     *
+     * @param resultSet The result set positioned on a row
+     * @param column    The index of the column, starting at 1
+     * @param target    The buffer to copy the bytes into, which may be a direct buffer
+     * @return The length of the whole value in bytes, or <code>-1</code> if it is <code>NULL</code>
+     * @throws SQLException         If a database access error occurs or the value cannot be read
+     * @throws NullPointerException If the result set or the buffer is null
+     */
+    public static long read(@NotNull ResultSet resultSet, int column, @NotNull ByteBuffer target) throws SQLException {
+        Validator.checkNotNull(resultSet, "The result set cannot be null");
+        Validator.checkNotNull(target, "The target buffer cannot be null");
+        try (InputStream in = resultSet.getBinaryStream(column)) {
+            if (in == null) {
+                return -1;
+            }
+            long length = 0;
+            if (target.hasArray()) {
+                int count;
+                while (target.hasRemaining() && (count = in.read(target.array(), target.arrayOffset() + target.position(), target.remaining())) >= 0) {
+                    // Cast to Buffer, because the covariant override of position(int) does not exist on Java 8
+                    ((Buffer) target).position(target.position() + count);
+                    length += count;
+                }
+            } else {
+                byte[] chunk = new byte[Math.min(CHUNK_SIZE, Math.max(1, target.remaining()))];
+                int count;
+                while (target.hasRemaining() && (count = in.read(chunk, 0, Math.min(chunk.length, target.remaining()))) >= 0) {
+                    target.put(chunk, 0, count);
+                    length += count;
+                }
+            }
+            return length + skipRemaining(in);
+        } catch (IOException e) {
+            throw new SQLException("Could not read the value of column " + column, e);
+        }
+    }
+
+    /**
+     * Writes the bytes of the column to the channel
+     *
+     * @param resultSet The result set positioned on a row
+     * @param column    The index of the column, starting at 1
+     * @param channel   The channel to write to, which is not closed
+     * @return The amount of written bytes, or <code>-1</code> if the value is <code>NULL</code>
+     * @throws SQLException         If a database access error occurs or the value cannot be read or written
+     * @throws NullPointerException If the result set or the channel is null
+     */
+    public static long transferTo(@NotNull ResultSet resultSet, int column, @NotNull WritableByteChannel channel) throws SQLException {
+        Validator.checkNotNull(resultSet, "The result set cannot be null");
+        Validator.checkNotNull(channel, "The channel cannot be null");
+        try (InputStream in = resultSet.getBinaryStream(column)) {
+            if (in == null) {
+                return -1;
+            }
+            byte[] chunk = new byte[CHUNK_SIZE];
+            long length = 0;
+            int count;
+            while ((count = in.read(chunk)) >= 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, count);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                length += count;
+            }
+            return length;
+        } catch (IOException e) {
+            throw new SQLException("Could not transfer the value of column " + column, e);
+        }
+    }
+
+    /**
+     * Writes the bytes of the column to the stream
+     *
+     * @param resultSet The result set positioned on a row
+     * @param column    The index of the column, starting at 1
+     * @param out       The stream to write to, which is not closed
+     * @return The amount of written bytes, or <code>-1</code> if the value is <code>NULL</code>
+     * @throws SQLException         If a database access error occurs or the value cannot be read or written
+     * @throws NullPointerException If the result set or the stream is null
+     */
+    public static long transferTo(@NotNull ResultSet resultSet, int column, @NotNull OutputStream out) throws SQLException {
+        Validator.checkNotNull(resultSet, "The result set cannot be null");
+        Validator.checkNotNull(out, "The output stream cannot be null");
+        try (InputStream in = resultSet.getBinaryStream(column)) {
+            if (in == null) {
+                return -1;
+            }
+            byte[] chunk = new byte[CHUNK_SIZE];
+            long length = 0;
+            int count;
+            while ((count = in.read(chunk)) >= 0) {
+                out.write(chunk, 0, count);
+                length += count;
+            }
+            return length;
+        } catch (IOException e) {
+            throw new SQLException("Could not transfer the value of column " + column, e);
+        }
+    }
+
+    /**
+     * Writes the characters of the column to the writer
+     *
+     * @param resultSet The result set positioned on a row
+     * @param column    The index of the column, starting at 1
+     * @param writer    The writer to write to, which is not closed
+     * @return The amount of written characters, or <code>-1</code> if the value is <code>NULL</code>
+     * @throws SQLException         If a database access error occurs or the value cannot be read or written
+     * @throws NullPointerException If the result set or the writer is null
+     */
+    public static long transferTo(@NotNull ResultSet resultSet, int column, @NotNull Writer writer) throws SQLException {
+        Validator.checkNotNull(resultSet, "The result set cannot be null");
+        Validator.checkNotNull(writer, "The writer cannot be null");
+        try (Reader reader = resultSet.getCharacterStream(column)) {
+            if (reader == null) {
+                return -1;
+            }
+            char[] chunk = new char[CHUNK_SIZE];
+            long length = 0;
+            int count;
+            while ((count = reader.read(chunk)) >= 0) {
+                writer.write(chunk, 0, count);
+                length += count;
+            }
+            return length;
+        } catch (IOException e) {
+            throw new SQLException("Could not transfer the value of column " + column, e);
+        }
+    }
+
+    private static long skipRemaining(@NotNull InputStream in) throws IOException {
+        long skipped = 0;
+        while (true) {
+            long count = in.skip(Long.MAX_VALUE);
+            if (count > 0) {
+                skipped += count;
+            } else if (in.read() >= 0) {
+                // skip() may return 0 before the end of the stream has been reached
+                skipped++;
+            } else {
+                return skipped;
+            }
+        }
+    }
+}
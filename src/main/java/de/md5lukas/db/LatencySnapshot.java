@@ -0,0 +1,111 @@
+package de.md5lukas.db;
+
+/**
+ * Snapshot of a latency histogram at the time it has been requested.
+ * <br><br>
+ * The latencies are recorded in log-linear buckets, so the percentiles are accurate within 12.5% of the actual value.
+ * The raw buckets can be exported using {@link #getBucketCounts()} and {@link #getBucketUpperBound(int)}.
+ *
+ * @see StatementStatistics
+ */
+public final class LatencySnapshot {
+
+    private final long[] bucketCounts;
+    private final long count, totalNanos, maxNanos;
+
+    LatencySnapshot(long[] bucketCounts, long totalNanos, long maxNanos) {
+        this.bucketCounts = bucketCounts;
+        long count = 0;
+        for (long bucketCount : bucketCounts) {
+            count += bucketCount;
+        }
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @return The amount of recorded latencies
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The sum of all recorded latencies in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return The highest recorded latency in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return The mean of the recorded latencies in nanoseconds, or <code>0</code> if nothing has been recorded
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Returns the latency that the provided percentage of the recorded latencies are less than or equal to
+     *
+     * @param percentile The percentile between <code>0</code> and <code>100</code>
+     * @return The latency at the percentile in nanoseconds, or <code>0</code> if nothing has been recorded
+     * @throws IllegalArgumentException If the percentile is not between <code>0</code> and <code>100</code>
+     */
+    public long getValueAtPercentile(double percentile) {
+        Validator.checkArgument(percentile >= 0 && percentile <= 100, "The percentile must be between 0 and 100, but is %s", percentile);
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            seen += bucketCounts[bucket];
+            if (seen >= target) {
+                return Math.min(LatencyHistogram.upperBoundOf(bucket), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * The returned array contains the amount of latencies recorded in every bucket. The array is a copy, so modifying it does not affect
+     * this instance
+     *
+     * @return The counts of all buckets
+     */
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+
+    /**
+     * Returns the highest latency in nanoseconds that is recorded in the bucket. The lowest latency of a bucket is one more than the
+     * upper bound of the previous bucket
+     *
+     * @param bucket The index of the bucket
+     * @return The inclusive upper bound of the bucket
+     * @throws IllegalArgumentException If the bucket does not exist
+     */
+    public long getBucketUpperBound(int bucket) {
+        Validator.checkArgument(bucket >= 0 && bucket < bucketCounts.length, "The bucket %d does not exist", bucket);
+        return LatencyHistogram.upperBoundOf(bucket);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySnapshot{" +
+                "count=" + count +
+                ", meanNanos=" + (long) getMeanNanos() +
+                ", p50Nanos=" + getValueAtPercentile(50) +
+                ", p99Nanos=" + getValueAtPercentile(99) +
+                ", maxNanos=" + maxNanos +
+                '}';
+    }
+}
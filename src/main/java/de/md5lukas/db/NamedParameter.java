@@ -0,0 +1,76 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Precompiled handle for a named parameter of a {@link NamedParameterParseResult}.
+ * <br><br>
+ * Setting a value through a handle writes directly to the precomputed indexes of the PreparedStatement, without looking up the name of the parameter
+ * or copying the indexes. A handle can only be used with statements created from the parse result it has been obtained from.
+ *
+ * @see NamedParameterParseResult#getParameter(String)
+ */
+public final class NamedParameter {
+
+    @NotNull
+    final NamedParameterParseResult parseResult;
+    @NotNull
+    private final String name;
+    private final int ordinal;
+    @NotNull
+    final int[] indexes;
+    /**
+     * The size of the placeholder list of every occurrence, or <code>0</code> if the parameter has not been expanded
+     */
+    final int expandedSize;
+
+    NamedParameter(@NotNull NamedParameterParseResult parseResult, @NotNull String name, int ordinal, int[] indexes, int expandedSize) {
+        this.parseResult = parseResult;
+        this.name = name;
+        this.ordinal = ordinal;
+        this.indexes = indexes;
+        this.expandedSize = expandedSize;
+    }
+
+    /**
+     * @return The name of the parameter
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * The ordinal of the parameter is its position in {@link NamedParameterParseResult#getParameters()}
+     *
+     * @return The ordinal of the parameter
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * @return A copy of the indexes of this parameter in the PreparedStatement
+     */
+    public int[] getIndexes() {
+        return indexes.clone();
+    }
+
+    /**
+     * Returns the amount of placeholders every occurrence of this parameter has been expanded to. The indexes of the placeholders of every
+     * occurrence are consecutive in {@link #getIndexes()}
+     *
+     * @return The size of the placeholder lists, or <code>0</code> if the parameter has not been expanded
+     * @see NamedParameterParseResult#expand(String, int)
+     */
+    public int getExpandedSize() {
+        return expandedSize;
+    }
+
+    @Override
+    public String toString() {
+        return "NamedParameter{" +
+                "name='" + name + '\'' +
+                ", ordinal=" + ordinal +
+                '}';
+    }
+}
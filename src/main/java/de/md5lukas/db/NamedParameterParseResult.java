@@ -1,24 +1,106 @@
 package de.md5lukas.db;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Class containing the result of a parsed SQL string with named parameters
+ * Class containing the result of a parsed SQL string with named parameters.
+ * <br><br>
+ * Instances are immutable and can therefore safely be shared between threads, which is done by a caching {@link NamedParameterParser}
+ * <br><br>
+ * A parameter that should be bound to a collection, like <code>:ids</code> in <code>WHERE id IN (:ids)</code>, can be expanded into a list of
+ * placeholders using {@link #expand(String, int)}. The list is padded to the next power of two, so the amount of distinct statements stays
+ * logarithmic in the size of the collections, and the expanded results are cached by the result they have been expanded from.
  */
 public final class NamedParameterParseResult {
 
+    @NotNull
+    private final String sql;
     @NotNull
     private final String substitutedSql;
+    /**
+     * The parameter names sorted in their natural order, so they can be looked up using a binary search
+     */
+    @NotNull
+    private final String[] names;
+    @NotNull
+    private final NamedParameter[] parameters;
+    /**
+     * The offsets of the <code>"?"</code> placeholders in the substituted SQL string, in the order of their indexes
+     */
+    @NotNull
+    private final int[] placeholders;
+    /**
+     * Identifies the statement in a {@link StatementCache}, which is the SQL string itself unless this result has been expanded
+     */
     @NotNull
-    private final Map<@NotNull String, int[]> indexMappings;
+    private final String cacheKey;
+    @NotNull
+    private final ConcurrentMap<@NotNull Integer, @NotNull NamedParameterParseResult> expansions = new ConcurrentHashMap<>();
+
+    /**
+     * @param sql            The original SQL string
+     * @param substitutedSql The SQL string with the named parameters replaced with <code>"?"</code>
+     * @param names          The distinct parameter names in any order
+     * @param indexes        The indexes of every parameter, aligned with the names
+     * @param placeholders   The offsets of the placeholders in the substituted SQL string
+     */
+    NamedParameterParseResult(@NotNull String sql, @NotNull String substitutedSql, @NotNull String[] names, int[][] indexes,
+                              @NotNull int[] placeholders) {
+        this(sql, sql, substitutedSql, names, indexes, new int[names.length], placeholders);
+    }
 
-    NamedParameterParseResult(@NotNull String substitutedSql, @NotNull Map<@NotNull String, int[]> indexMappings) {
+    private NamedParameterParseResult(@NotNull String sql, @NotNull String cacheKey, @NotNull String substitutedSql, @NotNull String[] names,
+                                      int[][] indexes, int[] expandedSizes, @NotNull int[] placeholders) {
+        this.sql = sql;
+        this.cacheKey = cacheKey;
         this.substitutedSql = substitutedSql;
-        this.indexMappings = indexMappings;
+        this.placeholders = placeholders;
+        this.names = names.clone();
+        Arrays.sort(this.names);
+        this.parameters = new NamedParameter[names.length];
+        for (int i = 0; i < names.length; i++) {
+            int ordinal = Arrays.binarySearch(this.names, names[i]);
+            parameters[ordinal] = new NamedParameter(this, names[i], ordinal, indexes[i], expandedSizes[i]);
+        }
+    }
+
+    /**
+     * @return The original SQL string with the named parameters that has been parsed
+     */
+    public @NotNull String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The key of the prepared statement in a {@link StatementCache}
+     */
+    @NotNull String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * @return The offsets of the <code>"?"</code> placeholders in the substituted SQL string, in the order of their indexes
+     */
+    @NotNull int[] getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * @return The parameters in the order of their names, without copying them
+     */
+    @NotNull NamedParameter[] getParameterArray() {
+        return parameters;
     }
 
     /**
@@ -31,12 +113,64 @@ public final class NamedParameterParseResult {
     }
 
     /**
-     * The returned map contains translations from the named parameter to the associated indexes in the sql statement
+     * The returned map contains translations from the named parameter to the associated indexes in the sql statement.
+     * <br><br>
+     * The returned map and the arrays in it are a copy, so modifying them does not affect this instance
      *
      * @return The index mappings
      */
     public @NotNull Map<@NotNull String, int[]> getIndexMappings() {
-        return indexMappings;
+        Map<String, int[]> copy = new HashMap<>(parameters.length);
+        for (NamedParameter parameter : parameters) {
+            copy.put(parameter.getName(), parameter.getIndexes());
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the handle of the named parameter, which can be used to set the value of the parameter without looking it up by its name again
+     *
+     * @param name The name of the parameter
+     * @return The handle of the parameter
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered
+     */
+    public @NotNull NamedParameter getParameter(@NotNull String name) {
+        Validator.checkNotNull(name, "The name of the parameter cannot be null");
+        NamedParameter parameter = findParameter(name);
+        if (parameter == null) {
+            throw new IllegalArgumentException(String.format("The parameter name %s was provided, but is not registered", name));
+        }
+        return parameter;
+    }
+
+    /**
+     * @param name The name of the parameter
+     * @return <code>true</code> if the SQL string contains a parameter with that name
+     * @throws NullPointerException If the name is null
+     */
+    public boolean hasParameter(@NotNull String name) {
+        Validator.checkNotNull(name, "The name of the parameter cannot be null");
+        return findParameter(name) != null;
+    }
+
+    /**
+     * @return All parameters of the SQL string sorted by their name, so the index in the list is the ordinal of the parameter
+     */
+    public @NotNull List<@NotNull NamedParameter> getParameters() {
+        return Collections.unmodifiableList(Arrays.asList(parameters));
+    }
+
+    /**
+     * @return The amount of distinct named parameters
+     */
+    public int getParameterCount() {
+        return parameters.length;
+    }
+
+    @Nullable NamedParameter findParameter(@NotNull String name) {
+        int ordinal = Arrays.binarySearch(names, name);
+        return ordinal >= 0 ? parameters[ordinal] : null;
     }
 
     /**
@@ -50,4 +184,90 @@ public final class NamedParameterParseResult {
         Validator.checkNotNull(connection, "The connection to use cannot be null");
         return new NamedPreparedStatement(connection, this);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a parse result in which every occurrence of the parameter is replaced with a list of placeholders, so it can be bound to a
+     * collection using {@link NamedPreparedStatement#setCollection(String, java.util.Collection)}. The indexes of all parameters that follow
+     * are shifted accordingly.
+     * <br><br>
+     * The list is padded to the next power of two of the size, so collections of similar sizes share the same statement.
+     * The original SQL string of the returned result stays the same, so it can be expanded again for a different parameter.
+     * <br><br>
+     * Example:<br>
+     * <code>SELECT * FROM table WHERE id IN (:ids) AND name = :name</code><br>
+     * Expanded for <code>ids</code> with a size of three would return the following substituted SQL string:<br>
+     * <code>SELECT * FROM table WHERE id IN (?, ?, ?, ?) AND name = ?</code>
+     *
+     * @param name The name of the parameter to expand
+     * @param size The size of the collection that will be bound to the parameter
+     * @return The expanded parse result, which is cached by this instance
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered, the parameter has already been expanded or the size is negative
+     *                                  or larger than <code>2^30</code>
+     */
+    public @NotNull NamedParameterParseResult expand(@NotNull String name, int size) {
+        NamedParameter parameter = getParameter(name);
+        Validator.checkArgument(size >= 0 && size <= 1 << 30, "The size of the collection must be between 0 and 2^30, but is %d", size);
+        Validator.checkArgument(parameter.expandedSize == 0, "The parameter %s has already been expanded", name);
+        int bucketSize = size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+
+        Integer key = parameter.getOrdinal() << 5 | Integer.numberOfTrailingZeros(bucketSize);
+        NamedParameterParseResult expanded = expansions.get(key);
+        if (expanded == null) {
+            expanded = expansions.computeIfAbsent(key, k -> expand(parameter, bucketSize));
+        }
+        return expanded;
+    }
+
+    private @NotNull NamedParameterParseResult expand(@NotNull NamedParameter target, int bucketSize) {
+        int occurrences = target.indexes.length;
+        boolean[] expanded = new boolean[placeholders.length];
+        for (int index : target.indexes) {
+            expanded[index - 1] = true;
+        }
+
+        // The new index of every placeholder and, for the expanded ones, of the first placeholder of the list
+        int[] newIndexes = new int[placeholders.length];
+        int[] newPlaceholders = new int[placeholders.length + occurrences * (bucketSize - 1)];
+        StringBuilder expandedSql = new StringBuilder(substitutedSql.length() + occurrences * (bucketSize - 1) * 3);
+        int runStart = 0, next = 0;
+        for (int i = 0; i < placeholders.length; i++) {
+            expandedSql.append(substitutedSql, runStart, placeholders[i]);
+            newIndexes[i] = next + 1;
+            int slots = expanded[i] ? bucketSize : 1;
+            for (int slot = 0; slot < slots; slot++) {
+                if (slot > 0) {
+                    expandedSql.append(", ");
+                }
+                newPlaceholders[next++] = expandedSql.length();
+                expandedSql.append('?');
+            }
+            runStart = placeholders[i] + 1;
+        }
+        expandedSql.append(substitutedSql, runStart, substitutedSql.length());
+
+        int[][] indexes = new int[parameters.length][];
+        int[] expandedSizes = new int[parameters.length];
+        for (NamedParameter parameter : parameters) {
+            int ordinal = parameter.getOrdinal();
+            if (parameter == target) {
+                indexes[ordinal] = new int[occurrences * bucketSize];
+                for (int occurrence = 0; occurrence < occurrences; occurrence++) {
+                    for (int slot = 0; slot < bucketSize; slot++) {
+                        indexes[ordinal][occurrence * bucketSize + slot] = newIndexes[parameter.indexes[occurrence] - 1] + slot;
+                    }
+                }
+                expandedSizes[ordinal] = bucketSize;
+            } else {
+                indexes[ordinal] = new int[parameter.indexes.length];
+                for (int i = 0; i < parameter.indexes.length; i++) {
+                    indexes[ordinal][i] = newIndexes[parameter.indexes[i] - 1];
+                }
+                expandedSizes[ordinal] = parameter.expandedSize;
+            }
+        }
+
+        return new NamedParameterParseResult(sql, cacheKey + '\0' + target.getName() + '[' + bucketSize + ']', expandedSql.toString(),
+                names, indexes, expandedSizes, newPlaceholders);
+    }
+}
@@ -0,0 +1,197 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parser for SQL strings with named parameters that can optionally cache the parse results.
+ * <br><br>
+ * A caching parser is bounded either by the amount of entries or by the total length of the cached SQL strings and evicts the least recently
+ * used entries first. The cached {@link NamedParameterParseResult}s are immutable and shared between all callers, so parsing the same SQL string
+ * repeatedly is reduced to a single lookup. All instances are thread-safe.
+ *
+ * @see NamedPreparedStatement#parseSQLString(String)
+ */
+public final class NamedParameterParser {
+
+    @NotNull
+    private static final NamedParameterParser UNCACHED = new NamedParameterParser(0, false);
+
+    /**
+     * Returns a parser that does not cache anything and always parses the SQL string again
+     *
+     * @return A parser without a cache
+     */
+    public static @NotNull NamedParameterParser uncached() {
+        return UNCACHED;
+    }
+
+    /**
+     * Creates a new parser that caches up to the provided amount of parse results
+     *
+     * @param maximumSize The maximum amount of cached parse results
+     * @return A new caching parser
+     * @throws IllegalArgumentException If the maximum size is not positive
+     */
+    public static @NotNull NamedParameterParser cached(int maximumSize) {
+        Validator.checkArgument(maximumSize > 0, "The maximum size must be positive, but is %d", maximumSize);
+        return new NamedParameterParser(maximumSize, false);
+    }
+
+    /**
+     * Creates a new parser that caches parse results until the combined length of all cached SQL strings exceeds the provided weight
+     *
+     * @param maximumWeight The maximum combined length of all cached SQL strings
+     * @return A new caching parser
+     * @throws IllegalArgumentException If the maximum weight is not positive
+     */
+    public static @NotNull NamedParameterParser weighted(long maximumWeight) {
+        Validator.checkArgument(maximumWeight > 0, "The maximum weight must be positive, but is %d", maximumWeight);
+        return new NamedParameterParser(maximumWeight, true);
+    }
+
+    private final long maximum;
+    private final boolean weighted;
+
+    @NotNull
+    private final Object cacheLock = new Object[0];
+    @Nullable
+    private final LinkedHashMap<@NotNull String, @NotNull NamedParameterParseResult> cache;
+    private long weight;
+
+    @NotNull
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    private NamedParameterParser(long maximum, boolean weighted) {
+        this.maximum = maximum;
+        this.weighted = weighted;
+        this.cache = maximum > 0 ? new LinkedHashMap<>(16, 0.75f, true) : null;
+    }
+
+    /**
+     * Parses the provided SQL string or returns the cached result of a previous parse of the same SQL string
+     *
+     * @param sql The SQL string to parse
+     * @return The substituted SQL string and index mappings in a wrapper object
+     * @throws NullPointerException If the provided SQL string is <code>null</code>
+     * @see NamedPreparedStatement#parseSQLString(String)
+     */
+    public @NotNull NamedParameterParseResult parse(@NotNull String sql) {
+        Validator.checkNotNull(sql, "The SQL string to parse cannot be null");
+        if (cache == null) {
+            return NamedPreparedStatement.parseSQLString(sql);
+        }
+
+        NamedParameterParseResult result;
+        synchronized (cacheLock) {
+            result = cache.get(sql);
+        }
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        misses.increment();
+
+        // Parse outside of the lock, so other threads are not blocked by a slow parse
+        NamedParameterParseResult parsed = NamedPreparedStatement.parseSQLString(sql);
+        synchronized (cacheLock) {
+            result = cache.putIfAbsent(sql, parsed);
+            if (result != null) {
+                return result;
+            }
+            weight += weigh(sql);
+            evict();
+        }
+        return parsed;
+    }
+
+    /**
+     * Creates a new NamedPreparedStatement using the parse result of {@link #parse(String)}
+     *
+     * @param connection The connection to create a PreparedStatement on
+     * @param sql        The SQL string to parse
+     * @return A new NamedPreparedStatement using the SQL string
+     * @throws SQLException         If a database error occurs or the connection has been closed
+     * @throws NullPointerException If the connection or the SQL string is <code>null</code>
+     */
+    public @NotNull NamedPreparedStatement prepare(@NotNull Connection connection, @NotNull String sql) throws SQLException {
+        Validator.checkNotNull(connection, "The connection to use cannot be null");
+        return new NamedPreparedStatement(connection, parse(sql));
+    }
+
+    private void evict() {
+        if (cache == null) {
+            return;
+        }
+        Iterator<Map.Entry<String, NamedParameterParseResult>> iterator = cache.entrySet().iterator();
+        while ((weighted ? weight : cache.size()) > maximum && iterator.hasNext()) {
+            weight -= weigh(iterator.next().getKey());
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private long weigh(@NotNull String sql) {
+        return weighted ? sql.length() : 1;
+    }
+
+    /**
+     * Removes all cached parse results
+     */
+    public void invalidateAll() {
+        if (cache == null) {
+            return;
+        }
+        synchronized (cacheLock) {
+            cache.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if this parser caches parse results
+     */
+    public boolean isCaching() {
+        return cache != null;
+    }
+
+    /**
+     * @return The amount of currently cached parse results
+     */
+    public int size() {
+        if (cache == null) {
+            return 0;
+        }
+        synchronized (cacheLock) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return The amount of times a cached parse result could be returned
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The amount of times a SQL string had to be parsed, because it was not cached
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The amount of parse results that have been removed to stay within the bounds of the cache
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+}
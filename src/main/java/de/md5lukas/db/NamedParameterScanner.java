@@ -0,0 +1,271 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass scanner that replaces the named parameters of a SQL string with <code>"?"</code>.
+ * <br><br>
+ * The scanner keeps track of the lexical state of the SQL string, so colons inside string literals, quoted identifiers and comments and the
+ * double colon of PostgreSQL-style casts are not treated as named parameters. The text between two named parameters is copied in bulk, and the
+ * indexes of the parameters are collected in primitive arrays using an open-addressing table over the characters of the names, so a repeated
+ * parameter name does not allocate anything.
+ */
+final class NamedParameterScanner {
+
+    @NotNull
+    private final char[] sql;
+
+    /**
+     * The distinct parameter names in the order of their first occurrence
+     */
+    @NotNull
+    private String[] names = new String[8];
+    @NotNull
+    private int[][] indexes = new int[8][];
+    @NotNull
+    private int[] counts = new int[8];
+    private int nameCount = 0;
+    /**
+     * The offsets of the <code>"?"</code> placeholders in the substituted SQL string, in the order of their indexes
+     */
+    @NotNull
+    private int[] placeholders = new int[8];
+
+    /**
+     * Open-addressing table from the hash of a name to its position in {@link #names} plus one, or zero for empty buckets
+     */
+    @NotNull
+    private int[] table = new int[16];
+    @NotNull
+    private int[] hashes = new int[8];
+
+    private NamedParameterScanner(@NotNull char[] sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Scans the SQL string and creates the parse result
+     *
+     * @param sql The SQL string to parse
+     * @return The substituted SQL string and index mappings in a wrapper object
+     */
+    static @NotNull NamedParameterParseResult scan(@NotNull String sql) {
+        return new NamedParameterScanner(sql.toCharArray()).run(sql);
+    }
+
+    private @NotNull NamedParameterParseResult run(@NotNull String original) {
+        final char[] sql = this.sql;
+        final int length = sql.length;
+        // Only allocated once the first parameter is found, so SQL strings without parameters are returned as they are
+        StringBuilder result = null;
+        int runStart = 0, parameterIndex = 1;
+
+        int index = 0;
+        while (index < length) {
+            char c = sql[index];
+            switch (c) {
+                case '\'':
+                case '"':
+                case '`':
+                    index = skipQuoted(sql, index, c);
+                    break;
+                case '[':
+                    index = skipQuoted(sql, index, ']');
+                    break;
+                case '-':
+                    if (index + 1 < length && sql[index + 1] == '-') {
+                        index = skipLineComment(sql, index + 2);
+                    } else {
+                        index++;
+                    }
+                    break;
+                case '/':
+                    if (index + 1 < length && sql[index + 1] == '*') {
+                        index = skipBlockComment(sql, index + 2);
+                    } else {
+                        index++;
+                    }
+                    break;
+                case ':':
+                    int nameStart = index + 1;
+                    if (nameStart < length && sql[nameStart] == ':') {
+                        // PostgreSQL-style cast
+                        index = nameStart + 1;
+                        break;
+                    }
+                    if (nameStart >= length || !Character.isJavaIdentifierStart(Character.codePointAt(sql, nameStart))) {
+                        index++;
+                        break;
+                    }
+                    int nameEnd = nameStart + Character.charCount(Character.codePointAt(sql, nameStart));
+                    while (nameEnd < length) {
+                        int codePoint = Character.codePointAt(sql, nameEnd);
+                        if (!Character.isJavaIdentifierPart(codePoint)) {
+                            break;
+                        }
+                        nameEnd += Character.charCount(codePoint);
+                    }
+
+                    if (result == null) {
+                        result = new StringBuilder(length);
+                    }
+                    result.append(sql, runStart, index - runStart);
+                    if (parameterIndex > placeholders.length) {
+                        placeholders = Arrays.copyOf(placeholders, placeholders.length * 2);
+                    }
+                    placeholders[parameterIndex - 1] = result.length();
+                    result.append('?');
+                    addIndex(nameStart, nameEnd, parameterIndex++);
+                    runStart = index = nameEnd;
+                    break;
+                default:
+                    index++;
+                    break;
+            }
+        }
+
+        String substitutedSql;
+        if (result == null) {
+            substitutedSql = original;
+        } else {
+            substitutedSql = result.append(sql, runStart, length - runStart).toString();
+        }
+
+        String[] resultNames = Arrays.copyOf(names, nameCount);
+        int[][] resultIndexes = new int[nameCount][];
+        for (int i = 0; i < nameCount; i++) {
+            resultIndexes[i] = counts[i] == indexes[i].length ? indexes[i] : Arrays.copyOf(indexes[i], counts[i]);
+        }
+        return new NamedParameterParseResult(original, substitutedSql, resultNames, resultIndexes, Arrays.copyOf(placeholders, parameterIndex - 1));
+    }
+
+    /**
+     * Skips the string literal, quoted identifier or comment starting at the index, following the same lexical rules as the scanner
+     *
+     * @param sql   The characters of the SQL string
+     * @param index The index to start at
+     * @return The index after the literal, identifier or comment, or the index itself if none starts there
+     */
+    static int skipLexeme(@NotNull char[] sql, int index) {
+        if (index >= sql.length) {
+            return index;
+        }
+        char c = sql[index];
+        switch (c) {
+            case '\'':
+            case '"':
+            case '`':
+                return skipQuoted(sql, index, c);
+            case '[':
+                return skipQuoted(sql, index, ']');
+            case '-':
+                return index + 1 < sql.length && sql[index + 1] == '-' ? skipLineComment(sql, index + 2) : index;
+            case '/':
+                return index + 1 < sql.length && sql[index + 1] == '*' ? skipBlockComment(sql, index + 2) : index;
+            default:
+                return index;
+        }
+    }
+
+    /**
+     * @return The index after the closing character, where a doubled closing character is an escaped one
+     */
+    private static int skipQuoted(@NotNull char[] sql, int open, char close) {
+        int index = open + 1;
+        while (index < sql.length) {
+            if (sql[index++] == close) {
+                if (index < sql.length && sql[index] == close) {
+                    index++;
+                } else {
+                    return index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static int skipLineComment(@NotNull char[] sql, int index) {
+        while (index < sql.length && sql[index] != '\n' && sql[index] != '\r') {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipBlockComment(@NotNull char[] sql, int index) {
+        while (index + 1 < sql.length) {
+            if (sql[index] == '*' && sql[index + 1] == '/') {
+                return index + 2;
+            }
+            index++;
+        }
+        return sql.length;
+    }
+
+    private void addIndex(int nameStart, int nameEnd, int parameterIndex) {
+        int hash = 0;
+        for (int i = nameStart; i < nameEnd; i++) {
+            hash = 31 * hash + sql[i];
+        }
+
+        int mask = table.length - 1;
+        int bucket = mix(hash) & mask;
+        while (table[bucket] != 0) {
+            int slot = table[bucket] - 1;
+            if (hashes[slot] == hash && matches(names[slot], nameStart, nameEnd)) {
+                if (counts[slot] == indexes[slot].length) {
+                    indexes[slot] = Arrays.copyOf(indexes[slot], counts[slot] * 2);
+                }
+                indexes[slot][counts[slot]++] = parameterIndex;
+                return;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+            indexes = Arrays.copyOf(indexes, nameCount * 2);
+            counts = Arrays.copyOf(counts, nameCount * 2);
+            hashes = Arrays.copyOf(hashes, nameCount * 2);
+        }
+        int slot = nameCount++;
+        names[slot] = new String(sql, nameStart, nameEnd - nameStart);
+        indexes[slot] = new int[] { parameterIndex, 0 };
+        counts[slot] = 1;
+        hashes[slot] = hash;
+        table[bucket] = slot + 1;
+
+        if (nameCount * 2 > table.length) {
+            rehash();
+        }
+    }
+
+    private boolean matches(@NotNull String name, int nameStart, int nameEnd) {
+        if (name.length() != nameEnd - nameStart) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != sql[nameStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int slot = 0; slot < nameCount; slot++) {
+            int bucket = mix(hashes[slot]) & mask;
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = slot + 1;
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -3,27 +3,47 @@ package de.md5lukas.db;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Wrapper class for {@link PreparedStatement} that allows one to use named parameters instead of having to use indexed parameters
  */
-public final class NamedPreparedStatement {
+public final class NamedPreparedStatement implements AutoCloseable {
 
     @NotNull
-    private final PreparedStatement preparedStatement;
+    private final NamedParameterParseResult parseResult;
     @NotNull
-    private final Map<@NotNull String, int[]> indexMappings;
+    private final PreparedStatement preparedStatement;
+    /**
+     * Offset added to every index when setting a parameter, which is used to bind multiple rows of a multi-row statement
+     */
+    private int indexOffset = 0;
+    @Nullable
+    private StatementListener listener;
+    /**
+     * The cache whose results depending on the tables written by this statement are invalidated after every successful update
+     */
+    @Nullable
+    private QueryCache queryCache;
+    private long bindStartNanos;
+    private boolean binding = false;
 
     /**
-     * Creates a new PreparedStatement using the provided connection and sql string. This is recommended for a one time use
+     * Creates a new PreparedStatement using the provided connection and sql string. This is recommended for a one time use,
+     * otherwise a caching {@link NamedParameterParser} should be used to avoid parsing the same SQL string again
      *
      * @param connection The connection to use
      * @param sql        The sql string with to use
@@ -32,13 +52,17 @@ public final class NamedPreparedStatement {
     public NamedPreparedStatement(@NotNull Connection connection, @NotNull String sql) throws SQLException {
         Validator.checkNotNull(connection, "The connection to use cannot be null");
         NamedParameterParseResult nppr = parseSQLString(sql);
-        this.indexMappings = nppr.getIndexMappings();
+        this.parseResult = nppr;
         this.preparedStatement = connection.prepareStatement(nppr.getSubstitutedSql());
     }
 
     NamedPreparedStatement(@NotNull Connection connection, @NotNull NamedParameterParseResult nppr) throws SQLException {
-        this.indexMappings = nppr.getIndexMappings();
-        this.preparedStatement = connection.prepareStatement(nppr.getSubstitutedSql());
+        this(connection, nppr, nppr.getSubstitutedSql());
+    }
+
+    NamedPreparedStatement(@NotNull Connection connection, @NotNull NamedParameterParseResult nppr, @NotNull String substitutedSql) throws SQLException {
+        this.parseResult = nppr;
+        this.preparedStatement = connection.prepareStatement(substitutedSql);
     }
 
     /**
@@ -48,6 +72,13 @@ public final class NamedPreparedStatement {
         return preparedStatement;
     }
 
+    /**
+     * @return The parse result of the SQL string this statement has been created with
+     */
+    public @NotNull NamedParameterParseResult getParseResult() {
+        return parseResult;
+    }
+
     /**
      * Executes the {@link PreparedStatement} as a query
      *
@@ -58,7 +89,158 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#executeQuery()
      */
     public @NotNull ResultSet executeQuery() throws SQLException {
-        return preparedStatement.executeQuery();
+        StatementListener listener = this.listener;
+        if (listener == null) {
+            return preparedStatement.executeQuery();
+        }
+        long start = endBind(listener);
+        boolean failed = true;
+        try {
+            ResultSet resultSet = preparedStatement.executeQuery();
+            failed = false;
+            return resultSet;
+        } finally {
+            listener.onExecute(parseResult, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Executes the {@link PreparedStatement} as a query and returns a stream that maps the rows lazily while it is consumed,
+     * so only the current row is materialized. The result set is closed when the stream is closed, so the stream should be used in a
+     * try-with-resources block.
+     *
+     * @param mapper The mapper that maps every row
+     * @param <T>    The type of the mapped rows
+     * @return A stream of the mapped rows
+     * @throws SQLException         If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException If the mapper is null
+     * @see #stream(RowMapper, int, boolean)
+     */
+    public <T> @NotNull Stream<T> stream(@NotNull RowMapper<? extends T> mapper) throws SQLException {
+        return stream(mapper, 0, false);
+    }
+
+    /**
+     * Executes the {@link PreparedStatement} as a query and returns a stream that maps the rows lazily while it is consumed,
+     * so only the current row is materialized. The result set, and optionally this statement, is closed when the stream is closed,
+     * so the stream should be used in a try-with-resources block.
+     * <br><br>
+     * A {@link SQLException} that occurs while the stream is consumed is thrown as an {@link UncheckedSQLException}.
+     *
+     * @param mapper         The mapper that maps every row
+     * @param fetchSize      The amount of rows the driver should fetch at once, or <code>0</code> to use the default of the driver
+     * @param closeStatement <code>true</code> to close this statement when the stream is closed
+     * @param <T>            The type of the mapped rows
+     * @return A stream of the mapped rows
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the mapper is null
+     * @throws IllegalArgumentException If the fetch size is negative
+     */
+    public <T> @NotNull Stream<T> stream(@NotNull RowMapper<? extends T> mapper, int fetchSize, boolean closeStatement) throws SQLException {
+        Validator.checkNotNull(mapper, "The row mapper cannot be null");
+        Validator.checkArgument(fetchSize >= 0, "The fetch size cannot be negative, but is %d", fetchSize);
+        return stream(mapper, fetchSize, closeStatement ? this::close : null);
+    }
+
+    <T> @NotNull Stream<T> stream(@NotNull RowMapper<? extends T> mapper, int fetchSize, @Nullable SQLRunnable onClose) throws SQLException {
+        if (fetchSize > 0) {
+            preparedStatement.setFetchSize(fetchSize);
+        }
+        ResultSet resultSet;
+        try {
+            resultSet = executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            if (onClose != null) {
+                try {
+                    onClose.run();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(resultSet, mapper, parseResult, listener);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                try {
+                    spliterator.reportFetch();
+                    resultSet.close();
+                } finally {
+                    if (onClose != null) {
+                        onClose.run();
+                    }
+                }
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        });
+    }
+
+    /**
+     * Executes the {@link PreparedStatement} as a query and reads all rows into the columns of the batch, which is cleared first.
+     * The values are read with the primitive getters of the result set, so no objects are allocated for numeric columns.
+     *
+     * @param batch The batch to read the rows into
+     * @return The amount of rows
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or a column label does not exist
+     * @throws NullPointerException     If the batch is null
+     * @throws IllegalArgumentException If the batch does not contain any columns
+     * @see #extractChunks(ColumnBatch)
+     */
+    public int extract(@NotNull ColumnBatch batch) throws SQLException {
+        try (ColumnCursor cursor = extractChunks(batch)) {
+            return cursor.next(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Executes the {@link PreparedStatement} as a query and returns a cursor that reads the rows in chunks into the columns of the batch.
+     * The result set is closed when the cursor is closed, so the cursor should be used in a try-with-resources block.
+     *
+     * @param batch The batch to read the chunks into
+     * @return The cursor of the rows
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or a column label does not exist
+     * @throws NullPointerException     If the batch is null
+     * @throws IllegalArgumentException If the batch does not contain any columns
+     */
+    public @NotNull ColumnCursor extractChunks(@NotNull ColumnBatch batch) throws SQLException {
+        return extractChunks(batch, null);
+    }
+
+    @NotNull ColumnCursor extractChunks(@NotNull ColumnBatch batch, @Nullable SQLRunnable onClose) throws SQLException {
+        ResultSet resultSet = null;
+        try {
+            Validator.checkNotNull(batch, "The batch cannot be null");
+            Validator.checkArgument(batch.getColumnCount() > 0, "The batch does not contain any columns");
+            resultSet = executeQuery();
+            return new ColumnCursor(resultSet, batch, batch.resolve(resultSet), parseResult, listener, onClose);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                try {
+                    if (resultSet != null) {
+                        resultSet.close();
+                    }
+                } finally {
+                    if (onClose != null) {
+                        onClose.run();
+                    }
+                }
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the amount of rows the driver should fetch at once for result sets of this statement
+     *
+     * @param rows The amount of rows, or <code>0</code> to use the default of the driver
+     * @throws SQLException If a database error occurs or the PreparedStatement has been closed
+     * @see PreparedStatement#setFetchSize(int)
+     */
+    public void setFetchSize(int rows) throws SQLException {
+        preparedStatement.setFetchSize(rows);
     }
 
     /**
@@ -71,7 +253,198 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#executeUpdate()
      */
     public int executeUpdate() throws SQLException {
-        return preparedStatement.executeUpdate();
+        StatementListener listener = this.listener;
+        if (listener == null) {
+            int updateCount = preparedStatement.executeUpdate();
+            invalidateWritten();
+            return updateCount;
+        }
+        long start = endBind(listener);
+        boolean failed = true;
+        try {
+            int updateCount = preparedStatement.executeUpdate();
+            failed = false;
+            invalidateWritten();
+            return updateCount;
+        } finally {
+            listener.onExecute(parseResult, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Adds the current parameter values to the batch of the {@link PreparedStatement}
+     *
+     * @throws SQLException If a database error occurs or the PreparedStatement has been closed
+     * @see PreparedStatement#addBatch()
+     */
+    public void addBatch() throws SQLException {
+        StatementListener listener = this.listener;
+        if (listener != null) {
+            endBind(listener);
+        }
+        preparedStatement.addBatch();
+    }
+
+    /**
+     * Removes all parameter values that have been added to the batch
+     *
+     * @throws SQLException If a database error occurs or the PreparedStatement has been closed
+     * @see PreparedStatement#clearBatch()
+     */
+    public void clearBatch() throws SQLException {
+        preparedStatement.clearBatch();
+    }
+
+    /**
+     * Executes all parameter values that have been added to the batch
+     *
+     * @return The update counts of every entry in the batch
+     * @throws SQLException If a database error occurs or the PreparedStatement has been closed
+     * @see PreparedStatement#executeBatch()
+     */
+    public int[] executeBatch() throws SQLException {
+        StatementListener listener = this.listener;
+        if (listener == null) {
+            int[] updateCounts = preparedStatement.executeBatch();
+            invalidateWritten();
+            return updateCounts;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            int[] updateCounts = preparedStatement.executeBatch();
+            failed = false;
+            invalidateWritten();
+            return updateCounts;
+        } finally {
+            listener.onExecute(parseResult, System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Binds every row using the binder and executes them as batches containing at most <code>chunkSize</code> rows.
+     * <br><br>
+     * If the connection is in auto-commit mode, all batches are executed inside a single transaction that is rolled back if any batch fails.
+     * Otherwise the batches are executed as part of the transaction that is already in progress.
+     *
+     * @param rows      The rows to execute
+     * @param binder    The binder that sets the parameters for every row
+     * @param chunkSize The maximum amount of rows per executed batch
+     * @param <T>       The type of the rows
+     * @return The update counts of all rows in the order they have been provided
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the rows or the binder are null
+     * @throws IllegalArgumentException If the chunk size is not positive
+     */
+    public <T> int[] executeBatch(@NotNull Iterable<? extends T> rows, @NotNull StatementBinder<? super T> binder, int chunkSize) throws SQLException {
+        Validator.checkNotNull(rows, "The rows to execute cannot be null");
+        return executeBatch(rows.iterator(), binder, chunkSize);
+    }
+
+    /**
+     * Binds every row of the stream using the binder and executes them as batches containing at most <code>chunkSize</code> rows.
+     * The stream is consumed, but not closed.
+     *
+     * @param rows      The rows to execute
+     * @param binder    The binder that sets the parameters for every row
+     * @param chunkSize The maximum amount of rows per executed batch
+     * @param <T>       The type of the rows
+     * @return The update counts of all rows in the order they have been provided
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the rows or the binder are null
+     * @throws IllegalArgumentException If the chunk size is not positive
+     * @see #executeBatch(Iterable, StatementBinder, int)
+     */
+    public <T> int[] executeBatch(@NotNull Stream<? extends T> rows, @NotNull StatementBinder<? super T> binder, int chunkSize) throws SQLException {
+        Validator.checkNotNull(rows, "The rows to execute cannot be null");
+        return executeBatch(rows.iterator(), binder, chunkSize);
+    }
+
+    /**
+     * Sets the parameters to the values of every map and executes them as batches containing at most <code>chunkSize</code> rows.
+     * The keys of the maps are the names of the parameters. The parameters are cleared before every row, so parameters that are missing from
+     * a map are bound as <code>NULL</code> instead of keeping the value of the previous row.
+     *
+     * @param rows      The rows to execute
+     * @param chunkSize The maximum amount of rows per executed batch
+     * @return The update counts of all rows in the order they have been provided
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the rows are null
+     * @throws IllegalArgumentException If the chunk size is not positive or a name has not been registered
+     * @see #executeBatch(Iterable, StatementBinder, int)
+     */
+    public int[] executeBatch(@NotNull Iterable<? extends Map<@NotNull String, ?>> rows, int chunkSize) throws SQLException {
+        return executeBatch(rows, NamedPreparedStatement::setObjects, chunkSize);
+    }
+
+    private <T> int[] executeBatch(@NotNull Iterator<? extends T> rows, @NotNull StatementBinder<? super T> binder, int chunkSize) throws SQLException {
+        Validator.checkNotNull(binder, "The binder cannot be null");
+        Validator.checkArgument(chunkSize > 0, "The chunk size must be positive, but is %d", chunkSize);
+
+        Connection connection = preparedStatement.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        // Invalidate the written tables again once the own transaction has been committed
+        QueryCache queryCache = this.queryCache;
+        boolean tracking = autoCommit && queryCache != null && queryCache.startTracking();
+
+        int[] updateCounts = new int[Math.min(chunkSize, 1024)];
+        int rowCount = 0, pending = 0;
+        try {
+            while (rows.hasNext()) {
+                binder.bind(this, rows.next());
+                addBatch();
+                if (++pending == chunkSize) {
+                    updateCounts = appendUpdateCounts(updateCounts, rowCount, executeBatch());
+                    rowCount += pending;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                updateCounts = appendUpdateCounts(updateCounts, rowCount, executeBatch());
+                rowCount += pending;
+            }
+
+            if (autoCommit) {
+                connection.commit();
+            }
+        } catch (SQLException | RuntimeException e) {
+            try {
+                preparedStatement.clearBatch();
+                if (autoCommit) {
+                    connection.rollback();
+                }
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+            if (tracking) {
+                queryCache.stopTracking();
+            }
+        }
+
+        return rowCount == updateCounts.length ? updateCounts : Arrays.copyOf(updateCounts, rowCount);
+    }
+
+    private static int[] appendUpdateCounts(int[] updateCounts, int offset, int[] batchCounts) {
+        if (offset + batchCounts.length > updateCounts.length) {
+            updateCounts = Arrays.copyOf(updateCounts, Math.max(updateCounts.length * 2, offset + batchCounts.length));
+        }
+        System.arraycopy(batchCounts, 0, updateCounts, offset, batchCounts.length);
+        return updateCounts;
+    }
+
+    private static void setObjects(@NotNull NamedPreparedStatement statement, @NotNull Map<@NotNull String, ?> row) throws SQLException {
+        statement.clearParameters();
+        for (Map.Entry<String, ?> entry : row.entrySet()) {
+            statement.setObject(entry.getKey(), entry.getValue());
+        }
     }
 
     /**
@@ -85,8 +458,24 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setBoolean(int, boolean)
      */
     public void setBoolean(@NotNull String name, boolean x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setBoolean(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setBoolean(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the boolean for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setBoolean(int, boolean)
+     */
+    public void setBoolean(@NotNull NamedParameter parameter, boolean x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setBoolean(index + indexOffset, x);
         }
     }
 
@@ -101,8 +490,24 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setByte(int, byte)
      */
     public void setByte(@NotNull String name, byte x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setByte(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setByte(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the byte for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setByte(int, byte)
+     */
+    public void setByte(@NotNull NamedParameter parameter, byte x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setByte(index + indexOffset, x);
         }
     }
 
@@ -117,8 +522,24 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setShort(int, short)
      */
     public void setShort(@NotNull String name, short x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setShort(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setShort(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the short for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setShort(int, short)
+     */
+    public void setShort(@NotNull NamedParameter parameter, short x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setShort(index + indexOffset, x);
         }
     }
 
@@ -133,8 +554,24 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setInt(int, int)
      */
     public void setInt(@NotNull String name, int x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setInt(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setInt(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the integer for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setInt(int, int)
+     */
+    public void setInt(@NotNull NamedParameter parameter, int x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setInt(index + indexOffset, x);
         }
     }
 
@@ -149,8 +586,24 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setLong(int, long)
      */
     public void setLong(@NotNull String name, long x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setLong(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setLong(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the long for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setLong(int, long)
+     */
+    public void setLong(@NotNull NamedParameter parameter, long x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setLong(index + indexOffset, x);
         }
     }
 
@@ -165,8 +618,24 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setFloat(int, float)
      */
     public void setFloat(@NotNull String name, float x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setFloat(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setFloat(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the float for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setFloat(int, float)
+     */
+    public void setFloat(@NotNull NamedParameter parameter, float x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setFloat(index + indexOffset, x);
         }
     }
 
@@ -181,8 +650,24 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setDouble(int, double)
      */
     public void setDouble(@NotNull String name, double x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setDouble(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setDouble(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the double for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setDouble(int, double)
+     */
+    public void setDouble(@NotNull NamedParameter parameter, double x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setDouble(index + indexOffset, x);
         }
     }
 
@@ -197,9 +682,365 @@ public final class NamedPreparedStatement {
      * @see PreparedStatement#setString(int, String)
      */
     public void setString(@NotNull String name, @Nullable String x) throws SQLException {
-        for (int index : getIndexes(name)) {
-            preparedStatement.setString(index, x);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setString(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the string for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setString(int, String)
+     */
+    public void setString(@NotNull NamedParameter parameter, @Nullable String x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setString(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the bytes for the named parameter. The array is passed to the driver without copying it, so it must not be modified until the
+     * statement has been executed
+     *
+     * @param name The name of the parameter
+     * @param x    The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered
+     * @see PreparedStatement#setBytes(int, byte[])
+     */
+    public void setBytes(@NotNull String name, @Nullable byte[] x) throws SQLException {
+        for (int index : indexesOf(name)) {
+            preparedStatement.setBytes(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the bytes for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see #setBytes(String, byte[])
+     */
+    public void setBytes(@NotNull NamedParameter parameter, @Nullable byte[] x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setBytes(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the remaining bytes of the buffer for the named parameter without changing its position. If the buffer wraps an array exactly,
+     * the array is passed to the driver without copying it, otherwise the remaining bytes, including those of direct buffers, are copied once
+     *
+     * @param name The name of the parameter
+     * @param x    The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered
+     */
+    public void setByteBuffer(@NotNull String name, @Nullable ByteBuffer x) throws SQLException {
+        bindBytes(indexesOf(name), x == null ? null : toBytes(x));
+    }
+
+    /**
+     * Sets the remaining bytes of the buffer for the parameter handle without changing its position
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see #setByteBuffer(String, ByteBuffer)
+     */
+    public void setByteBuffer(@NotNull NamedParameter parameter, @Nullable ByteBuffer x) throws SQLException {
+        bindBytes(indexesOf(parameter), x == null ? null : toBytes(x));
+    }
+
+    /**
+     * Sets the next <code>length</code> bytes of the stream for the named parameter. The stream is read once into an array of exactly that length,
+     * which is bound to every occurrence of the parameter, and is not closed
+     *
+     * @param name   The name of the parameter
+     * @param x      The stream to read the value from
+     * @param length The amount of bytes to read
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or the stream cannot be read or ends early
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered or the length is negative
+     * @see PreparedStatement#setBinaryStream(int, InputStream, int)
+     */
+    public void setBinaryStream(@NotNull String name, @Nullable InputStream x, int length) throws SQLException {
+        bindBytes(indexesOf(name), x == null ? null : readBytes(x, length));
+    }
+
+    /**
+     * Sets the next <code>length</code> bytes of the stream for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The stream to read the value from
+     * @param length    The amount of bytes to read
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or the stream cannot be read or ends early
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string or the length is negative
+     * @see #setBinaryStream(String, InputStream, int)
+     */
+    public void setBinaryStream(@NotNull NamedParameter parameter, @Nullable InputStream x, int length) throws SQLException {
+        bindBytes(indexesOf(parameter), x == null ? null : readBytes(x, length));
+    }
+
+    /**
+     * Sets the next <code>length</code> characters of the reader for the named parameter. The reader is read once into an array of exactly that
+     * length, which is bound to every occurrence of the parameter, and is not closed
+     *
+     * @param name   The name of the parameter
+     * @param x      The reader to read the value from
+     * @param length The amount of characters to read
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or the reader cannot be read or ends early
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered or the length is negative
+     * @see PreparedStatement#setCharacterStream(int, Reader, int)
+     */
+    public void setCharacterStream(@NotNull String name, @Nullable Reader x, int length) throws SQLException {
+        String value = x == null ? null : readString(x, length);
+        for (int index : indexesOf(name)) {
+            preparedStatement.setString(index + indexOffset, value);
+        }
+    }
+
+    /**
+     * Sets the next <code>length</code> characters of the reader for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The reader to read the value from
+     * @param length    The amount of characters to read
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or the reader cannot be read or ends early
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string or the length is negative
+     * @see #setCharacterStream(String, Reader, int)
+     */
+    public void setCharacterStream(@NotNull NamedParameter parameter, @Nullable Reader x, int length) throws SQLException {
+        String value = x == null ? null : readString(x, length);
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setString(index + indexOffset, value);
+        }
+    }
+
+    private void bindBytes(int[] indexes, @Nullable byte[] value) throws SQLException {
+        for (int index : indexes) {
+            preparedStatement.setBytes(index + indexOffset, value);
+        }
+    }
+
+    private static @NotNull byte[] toBytes(@NotNull ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static @NotNull byte[] readBytes(@NotNull InputStream in, int length) throws SQLException {
+        Validator.checkArgument(length >= 0, "The length cannot be negative, but is %d", length);
+        byte[] bytes = new byte[length];
+        try {
+            int read = 0;
+            while (read < length) {
+                int count = in.read(bytes, read, length - read);
+                if (count < 0) {
+                    throw new SQLException(String.format("The stream ended after %d of %d bytes", read, length));
+                }
+                read += count;
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read the stream", e);
+        }
+        return bytes;
+    }
+
+    private static @NotNull String readString(@NotNull Reader reader, int length) throws SQLException {
+        Validator.checkArgument(length >= 0, "The length cannot be negative, but is %d", length);
+        char[] chars = new char[length];
+        try {
+            int read = 0;
+            while (read < length) {
+                int count = reader.read(chars, read, length - read);
+                if (count < 0) {
+                    throw new SQLException(String.format("The reader ended after %d of %d characters", read, length));
+                }
+                read += count;
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read the reader", e);
         }
+        return new String(chars);
+    }
+
+    /**
+     * Sets the object for the named parameter
+     *
+     * @param name The name of the parameter
+     * @param x    The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered
+     * @see PreparedStatement#setObject(int, Object)
+     */
+    public void setObject(@NotNull String name, @Nullable Object x) throws SQLException {
+        for (int index : indexesOf(name)) {
+            preparedStatement.setObject(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets the object for the parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param x         The value to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string
+     * @see PreparedStatement#setObject(int, Object)
+     */
+    public void setObject(@NotNull NamedParameter parameter, @Nullable Object x) throws SQLException {
+        for (int index : indexesOf(parameter)) {
+            preparedStatement.setObject(index + indexOffset, x);
+        }
+    }
+
+    /**
+     * Sets every parameter to the value of the property of the object with the same name, which is read through the cached accessors of
+     * a {@link BeanMapper}
+     *
+     * @param bean The object containing the values
+     * @throws SQLException             If a database error occurs, the PreparedStatement has been closed or a getter throws an exception
+     * @throws NullPointerException     If the object is null
+     * @throws IllegalArgumentException If the class of the object has no readable property for a parameter
+     * @see BeanMapper#of(Class)
+     */
+    @SuppressWarnings("unchecked")
+    public void bindFrom(@NotNull Object bean) throws SQLException {
+        Validator.checkNotNull(bean, "The object to bind cannot be null");
+        ((BeanMapper<Object>) BeanMapper.of(bean.getClass())).bind(this, bean);
+    }
+
+    /**
+     * Sets the values of the collection for the expanded named parameter. The remaining placeholders of the list are set to the last value
+     * of the collection, so they do not change the result of an <code>IN</code> list. If the collection is empty, all placeholders are set
+     * to <code>NULL</code>
+     *
+     * @param name   The name of the parameter
+     * @param values The values to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the name or the collection is null
+     * @throws IllegalArgumentException If the name has not been registered, the parameter has not been expanded or the collection does not fit
+     * @see NamedParameterParseResult#expand(String, int)
+     */
+    public void setCollection(@NotNull String name, @NotNull Collection<?> values) throws SQLException {
+        bindCollection(parameterOf(name), values);
+    }
+
+    /**
+     * Sets the values of the collection for the expanded parameter handle
+     *
+     * @param parameter The handle of the parameter
+     * @param values    The values to set
+     * @throws SQLException             If a database error occurs or the PreparedStatement has been closed
+     * @throws NullPointerException     If the parameter or the collection is null
+     * @throws IllegalArgumentException If the parameter belongs to a different SQL string, has not been expanded or the collection does not fit
+     * @see #setCollection(String, Collection)
+     */
+    public void setCollection(@NotNull NamedParameter parameter, @NotNull Collection<?> values) throws SQLException {
+        bindCollection(parameterOf(parameter), values);
+    }
+
+    private void bindCollection(@NotNull NamedParameter parameter, @NotNull Collection<?> values) throws SQLException {
+        Validator.checkNotNull(values, "The collection to set cannot be null");
+        int expandedSize = parameter.expandedSize;
+        Validator.checkArgument(expandedSize > 0, "The parameter %s has not been expanded", parameter.getName());
+        Validator.checkArgument(values.size() <= expandedSize, "The collection has %d values, but the parameter %s has only been expanded to %d",
+                values.size(), parameter.getName(), expandedSize);
+
+        Object[] array = values.toArray();
+        int[] indexes = parameter.indexes;
+        for (int occurrence = 0; occurrence < indexes.length; occurrence += expandedSize) {
+            for (int slot = 0; slot < expandedSize; slot++) {
+                Object value = array.length == 0 ? null : array[Math.min(slot, array.length - 1)];
+                preparedStatement.setObject(indexes[occurrence + slot] + indexOffset, value);
+            }
+        }
+    }
+
+    /**
+     * Clears the values of all parameters while keeping the compiled {@link PreparedStatement}, so it can be reused
+     *
+     * @throws SQLException If a database error occurs or the PreparedStatement has been closed
+     * @see PreparedStatement#clearParameters()
+     */
+    public void clearParameters() throws SQLException {
+        binding = false;
+        preparedStatement.clearParameters();
+    }
+
+    /**
+     * @return <code>true</code> if the {@link PreparedStatement} has been closed
+     * @throws SQLException If a database error occurs
+     * @see PreparedStatement#isClosed()
+     */
+    public boolean isClosed() throws SQLException {
+        return preparedStatement.isClosed();
+    }
+
+    /**
+     * Closes the {@link PreparedStatement}
+     *
+     * @throws SQLException If a database error occurs
+     * @see PreparedStatement#close()
+     */
+    @Override
+    public void close() throws SQLException {
+        preparedStatement.close();
+    }
+
+    /**
+     * Sets the listener that is notified about binding, executing and fetching the results of this statement. Statements leased from a
+     * {@link SQLiteHelper} already use the listener configured in its options
+     *
+     * @param listener The listener or <code>null</code> to disable the notifications
+     * @see StatementMetrics
+     */
+    public void setListener(@Nullable StatementListener listener) {
+        this.listener = listener;
+        this.binding = false;
+    }
+
+    /**
+     * @return The listener that is notified about this statement, or <code>null</code> if none has been set
+     */
+    public @Nullable StatementListener getListener() {
+        return listener;
+    }
+
+    void setQueryCache(@Nullable QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    private void invalidateWritten() {
+        QueryCache queryCache = this.queryCache;
+        if (queryCache != null) {
+            queryCache.written(parseResult);
+        }
+    }
+
+    void setIndexOffset(int indexOffset) {
+        this.indexOffset = indexOffset;
     }
 
     /**
@@ -211,22 +1052,85 @@ public final class NamedPreparedStatement {
      * @throws IllegalArgumentException If the name has not been registered
      */
     public int[] getIndexes(@NotNull String name) {
-        checkParameterName(name);
-        return indexMappings.get(name).clone();
+        return parseResult.getParameter(name).getIndexes();
     }
 
-    private void checkParameterName(@NotNull String name) {
+    /**
+     * Returns the handle of the named parameter, which can be used to set the value of the parameter without looking it up by its name again
+     *
+     * @param name The name of the parameter
+     * @return The handle of the parameter
+     * @throws NullPointerException     If the name is null
+     * @throws IllegalArgumentException If the name has not been registered
+     * @see NamedParameterParseResult#getParameter(String)
+     */
+    public @NotNull NamedParameter getParameter(@NotNull String name) {
+        return parseResult.getParameter(name);
+    }
+
+    private int[] indexesOf(@NotNull String name) {
+        return parameterOf(name).indexes;
+    }
+
+    private int[] indexesOf(@NotNull NamedParameter parameter) {
+        return parameterOf(parameter).indexes;
+    }
+
+    private @NotNull NamedParameter parameterOf(@NotNull String name) {
         Validator.checkNotNull(name, "The name of the parameter to set cannot be null");
-        Validator.checkArgument(indexMappings.containsKey(name), "The parameter name %s was provided, but is not registered", name);
+        if (listener != null) {
+            startBind();
+        }
+        NamedParameter parameter = parseResult.findParameter(name);
+        if (parameter == null) {
+            throw new IllegalArgumentException(String.format("The parameter name %s was provided, but is not registered", name));
+        }
+        return parameter;
+    }
+
+    private @NotNull NamedParameter parameterOf(@NotNull NamedParameter parameter) {
+        Validator.checkNotNull(parameter, "The parameter to set cannot be null");
+        if (parameter.parseResult != parseResult) {
+            throw new IllegalArgumentException(String.format("The parameter %s belongs to a different SQL string", parameter.getName()));
+        }
+        if (listener != null) {
+            startBind();
+        }
+        return parameter;
+    }
+
+    private void startBind() {
+        if (!binding) {
+            binding = true;
+            bindStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Reports the time since the first parameter has been set, if any, to the listener
+     *
+     * @return The current value of {@link System#nanoTime()}
+     */
+    private long endBind(@NotNull StatementListener listener) {
+        long now = System.nanoTime();
+        if (binding) {
+            binding = false;
+            listener.onBind(parseResult, now - bindStartNanos);
+        }
+        return now;
     }
 
     /**
      * Parses the provided SQL string for named parameters and replaces them with <code>"?"</code> and creates index mappings based on the named parameter,
      * so it can be used for PreparedStatements.
      * <br><br>
-     * Named parameters start with a double colon and then must be followed directly with a character that is valid according to
-     * {@link Character#isJavaIdentifierStart(char)}. The further characters of the named parameter must be valid according to
-     * {@link Character#isJavaIdentifierPart(char)}.
+     * Named parameters start with a colon and then must be followed directly with a character that is valid according to
+     * {@link Character#isJavaIdentifierStart(int)}. The further characters of the named parameter must be valid according to
+     * {@link Character#isJavaIdentifierPart(int)}.
+     * <br><br>
+     * Colons inside string literals (<code>'...'</code>), quoted identifiers (<code>"..."</code>, <code>`...`</code> and <code>[...]</code>),
+     * line comments (<code>-- ...</code>) and block comments (<code>/* ... *{@literal /}</code>) are left untouched, as is the double colon of
+     * a PostgreSQL-style cast like <code>value::text</code>.
      * <br><br>
      * Example:<br>
      * <code>INSERT INTO table (id, name) VALUES :id, :name</code><br>
@@ -241,52 +1145,10 @@ public final class NamedPreparedStatement {
      * @param sql The SQL string to parse
      * @return The substituted SQL string and index mappings in a wrapper object
      * @throws NullPointerException If the provided SQL string is <code>null</code>
+     * @see NamedParameterParser#cached(int)
      */
     public static @NotNull NamedParameterParseResult parseSQLString(@NotNull String sql) {
         Validator.checkNotNull(sql, "The SQL string to parse cannot be null");
-        StringBuilder result = new StringBuilder(), parameterName = new StringBuilder();
-        int parameterIndex = 1;
-        Map<String, List<Integer>> indexCache = new HashMap<>();
-
-        for (int index = 0; index < sql.length(); index++) {
-            if (sql.charAt(index) == ':') {
-                int parameterNameStart = index + 1;
-                if (parameterNameStart < sql.length() &&
-                        Character.isJavaIdentifierStart(sql.codePointAt(parameterNameStart))) {
-                    index = parameterNameStart;
-
-                    while (true) {
-                        parameterName.append(sql.charAt(index));
-                        int next = index + 1;
-                        if (next < sql.length() && Character.isJavaIdentifierPart(sql.codePointAt(next))) {
-                            index = next;
-                        } else {
-                            break;
-                        }
-                    }
-
-                    String parameterNameString = parameterName.toString();
-                    parameterName.setLength(0);
-                    indexCache.computeIfAbsent(parameterNameString, k -> new ArrayList<>());
-                    indexCache.get(parameterNameString).add(parameterIndex++);
-                    result.append('?');
-                } else {
-                    result.append(sql.charAt(index));
-                }
-            } else {
-                result.append(sql.charAt(index));
-            }
-        }
-
-        Map<String, int[]> indexMappings = new HashMap<>();
-        indexCache.forEach((key, indexes) -> {
-            int[] indexArray = new int[indexes.size()];
-            for (int j = 0; j < indexes.size(); j++) {
-                indexArray[j] = indexes.get(j);
-            }
-            indexMappings.put(key, indexArray);
-        });
-
-        return new NamedParameterParseResult(result.toString(), indexMappings);
+        return NamedParameterScanner.scan(sql);
     }
 }
@@ -0,0 +1,84 @@
+package de.md5lukas.db;
+
+/**
+ * Snapshot of the metrics of a connection pool at the time it has been requested
+ *
+ * @see SQLiteHelper#getReaderPoolMetrics()
+ */
+public final class PoolMetrics {
+
+    private final int maximumSize, activeCount, idleCount, createdCount;
+    private final long leaseCount, timeoutCount, totalWaitNanos;
+
+    PoolMetrics(int maximumSize, int activeCount, int idleCount, int createdCount, long leaseCount, long timeoutCount, long totalWaitNanos) {
+        this.maximumSize = maximumSize;
+        this.activeCount = activeCount;
+        this.idleCount = idleCount;
+        this.createdCount = createdCount;
+        this.leaseCount = leaseCount;
+        this.timeoutCount = timeoutCount;
+        this.totalWaitNanos = totalWaitNanos;
+    }
+
+    /**
+     * @return The maximum amount of connections in the pool
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return The amount of connections that are currently leased
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return The amount of open connections that are currently not leased
+     */
+    public int getIdleCount() {
+        return idleCount;
+    }
+
+    /**
+     * @return The amount of connections that have been opened in total
+     */
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    /**
+     * @return The amount of successful leases
+     */
+    public long getLeaseCount() {
+        return leaseCount;
+    }
+
+    /**
+     * @return The amount of leases that failed, because no connection became available in time
+     */
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    /**
+     * @return The total time in nanoseconds that successful leases had to wait for a connection
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "maximumSize=" + maximumSize +
+                ", activeCount=" + activeCount +
+                ", idleCount=" + idleCount +
+                ", createdCount=" + createdCount +
+                ", leaseCount=" + leaseCount +
+                ", timeoutCount=" + timeoutCount +
+                ", totalWaitNanos=" + totalWaitNanos +
+                '}';
+    }
+}
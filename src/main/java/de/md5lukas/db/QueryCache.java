@@ -0,0 +1,447 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache for the mapped results of queries, which is used by {@link SQLiteHelper#cachedQuery(String, Map, RowMapper)}.
+ * <br><br>
+ * Results are keyed by the SQL string, the values of the parameters and the row mapper, and are bounded either by the amount of cached queries
+ * or by the total amount of cached rows, evicting the least recently used results first. Every result depends on the tables it has been read
+ * from, which are either declared by the caller or extracted from the <code>FROM</code> and <code>JOIN</code> clauses of the SQL string.
+ * <br><br>
+ * Writes that are executed by statements of the SQLiteHelper using this cache, including transactions and the write pipeline, invalidate
+ * all results depending on the tables they write to. Writes that bypass the statements of the SQLiteHelper, for example statements created
+ * directly on {@link SQLiteHelper#getConnection()}, other processes writing to the database or tables changed by triggers, are not seen
+ * and have to be invalidated with {@link #invalidate(String...)}. Because the row mapper is part of the key, it should be a constant instead
+ * of a lambda that is created for every query. All instances are thread-safe.
+ * <br><br>
+ * Example:<br>
+ * <pre><code>
+ * QueryCache cache = QueryCache.bySize(1024);
+ * SQLiteHelper helper = new SQLiteHelper(file, new SQLiteOptions().queryCache(cache));
+ * List&lt;String&gt; names = helper.cachedQuery("SELECT name FROM countries WHERE code = :code", parameters, NAME_MAPPER);
+ * </code></pre>
+ *
+ * @see SQLiteOptions#queryCache(QueryCache)
+ */
+public final class QueryCache {
+
+    /**
+     * Creates a new cache that keeps the results of up to the provided amount of queries
+     *
+     * @param maximumSize The maximum amount of cached results
+     * @return A new query cache
+     * @throws IllegalArgumentException If the maximum size is not positive
+     */
+    public static @NotNull QueryCache bySize(int maximumSize) {
+        Validator.checkArgument(maximumSize > 0, "The maximum size must be positive, but is %d", maximumSize);
+        return new QueryCache(maximumSize, false);
+    }
+
+    /**
+     * Creates a new cache that keeps results until the combined amount of rows of all cached results exceeds the provided weight.
+     * Empty results count as a single row
+     *
+     * @param maximumRows The maximum combined amount of rows of all cached results
+     * @return A new query cache
+     * @throws IllegalArgumentException If the maximum weight is not positive
+     */
+    public static @NotNull QueryCache byWeight(long maximumRows) {
+        Validator.checkArgument(maximumRows > 0, "The maximum weight must be positive, but is %d", maximumRows);
+        return new QueryCache(maximumRows, true);
+    }
+
+    /**
+     * The key of a cached result
+     */
+    static final class Key {
+
+        @NotNull
+        private final String sql;
+        @NotNull
+        private final Object[] parameters;
+        @NotNull
+        private final RowMapper<?> mapper;
+        private final int hash;
+
+        private Key(@NotNull String sql, @NotNull Object[] parameters, @NotNull RowMapper<?> mapper) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.mapper = mapper;
+            this.hash = (sql.hashCode() * 31 + Arrays.deepHashCode(parameters)) * 31 + mapper.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && sql.equals(key.sql) && mapper.equals(key.mapper) && Arrays.deepEquals(parameters, key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A cached result and the tables it depends on
+     */
+    private static final class Entry {
+
+        @NotNull
+        private final List<?> rows;
+        @NotNull
+        private final String[] tables;
+
+        private Entry(@NotNull List<?> rows, @NotNull String[] tables) {
+            this.rows = rows;
+            this.tables = tables;
+        }
+    }
+
+    /**
+     * Marks that a tracked write changed tables that could not be determined
+     */
+    @NotNull
+    private static final String ALL_TABLES = "*";
+    private static final int TABLES_CACHE_SIZE = 4096;
+
+    private final long maximum;
+    private final boolean weighted;
+
+    @NotNull
+    private final Object cacheLock = new Object[0];
+    @NotNull
+    private final LinkedHashMap<@NotNull Key, @NotNull Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    @NotNull
+    private final Map<@NotNull String, @NotNull Set<@NotNull Key>> dependents = new HashMap<>();
+    private long weight;
+    /**
+     * Every invalidation advances the clock and stamps the invalidated tables with it, so loads that raced with an invalidation of their
+     * tables can be detected
+     */
+    private long clock, allInvalidated;
+    @NotNull
+    private final Map<@NotNull String, @NotNull Long> invalidated = new HashMap<>();
+
+    @NotNull
+    private final ConcurrentMap<@NotNull String, @NotNull String[]> readTables = new ConcurrentHashMap<>(), writtenTables = new ConcurrentHashMap<>();
+    @NotNull
+    private final ThreadLocal<Set<String>> tracked = new ThreadLocal<>();
+
+    @NotNull
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder(), invalidations = new LongAdder();
+
+    private QueryCache(long maximum, boolean weighted) {
+        this.maximum = maximum;
+        this.weighted = weighted;
+    }
+
+    /**
+     * Creates the key of a query, sorting the parameters by their names
+     */
+    @NotNull Key key(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters, @NotNull RowMapper<?> mapper) {
+        Object[] sorted = new Object[parameters.size() * 2];
+        int index = 0;
+        for (String name : parameters.keySet().stream().sorted().toArray(String[]::new)) {
+            sorted[index++] = name;
+            sorted[index++] = parameters.get(name);
+        }
+        return new Key(sql, sorted, mapper);
+    }
+
+    /**
+     * @return The tables the SQL string reads from
+     */
+    @NotNull String[] readTablesOf(@NotNull String sql) {
+        return tablesOf(readTables, sql, false);
+    }
+
+    /**
+     * Normalizes the names of declared tables
+     */
+    static @NotNull String[] normalize(@NotNull Collection<@NotNull String> tables) {
+        String[] normalized = new String[tables.size()];
+        int index = 0;
+        for (String table : tables) {
+            Validator.checkNotNull(table, "The name of a table cannot be null");
+            normalized[index++] = table.toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+
+    /**
+     * @return The cached result or <code>null</code> if the query has not been cached
+     */
+    @Nullable List<?> get(@NotNull Key key) {
+        Entry entry;
+        synchronized (cacheLock) {
+            entry = cache.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.rows;
+    }
+
+    /**
+     * Must be called before loading a result and passed to {@link #put(Key, String[], List, long)}
+     *
+     * @return The last time any of the tables has been invalidated
+     */
+    long stamp(@NotNull String[] tables) {
+        synchronized (cacheLock) {
+            long stamp = allInvalidated;
+            for (String table : tables) {
+                Long time = invalidated.get(table);
+                if (time != null && time > stamp) {
+                    stamp = time;
+                }
+            }
+            return stamp;
+        }
+    }
+
+    /**
+     * Caches the loaded result, unless any of its tables has been invalidated while it was loaded
+     */
+    void put(@NotNull Key key, @NotNull String[] tables, @NotNull List<?> rows, long stamp) {
+        long entryWeight = weigh(rows);
+        if (entryWeight > maximum) {
+            return;
+        }
+        synchronized (cacheLock) {
+            if (stamp(tables) != stamp) {
+                return;
+            }
+            Entry previous = cache.put(key, new Entry(rows, tables));
+            if (previous != null) {
+                weight -= weigh(previous.rows);
+                removeDependent(key, previous.tables);
+            }
+            weight += entryWeight;
+            for (String table : tables) {
+                dependents.computeIfAbsent(table, k -> new HashSet<>()).add(key);
+            }
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> iterator = cache.entrySet().iterator();
+        while ((weighted ? weight : cache.size()) > maximum && iterator.hasNext()) {
+            Map.Entry<Key, Entry> eldest = iterator.next();
+            iterator.remove();
+            weight -= weigh(eldest.getValue().rows);
+            removeDependent(eldest.getKey(), eldest.getValue().tables);
+            evictions.increment();
+        }
+    }
+
+    private void removeDependent(@NotNull Key key, @NotNull String[] tables) {
+        for (String table : tables) {
+            Set<Key> keys = dependents.get(table);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                dependents.remove(table);
+            }
+        }
+    }
+
+    private long weigh(@NotNull List<?> rows) {
+        return weighted ? Math.max(1, rows.size()) : 1;
+    }
+
+    /**
+     * Removes all cached results that depend on any of the tables
+     *
+     * @param tables The names of the tables, which are compared case-insensitively
+     * @throws NullPointerException If the tables or any name are null
+     */
+    public void invalidate(@NotNull String... tables) {
+        Validator.checkNotNull(tables, "The tables cannot be null");
+        invalidate(normalize(Arrays.asList(tables)), true);
+    }
+
+    private void invalidate(@NotNull String[] tables, boolean trackable) {
+        Set<String> tracking = trackable ? tracked.get() : null;
+        if (tracking != null) {
+            tracking.addAll(Arrays.asList(tables));
+        }
+        synchronized (cacheLock) {
+            clock++;
+            for (String table : tables) {
+                invalidated.put(table, clock);
+                Set<Key> keys = dependents.remove(table);
+                if (keys == null) {
+                    continue;
+                }
+                for (Key key : keys) {
+                    Entry entry = cache.remove(key);
+                    if (entry != null) {
+                        weight -= weigh(entry.rows);
+                        removeDependent(key, entry.tables);
+                        invalidations.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results
+     */
+    public void invalidateAll() {
+        invalidateAll(true);
+    }
+
+    private void invalidateAll(boolean trackable) {
+        Set<String> tracking = trackable ? tracked.get() : null;
+        if (tracking != null) {
+            tracking.add(ALL_TABLES);
+        }
+        synchronized (cacheLock) {
+            clock++;
+            allInvalidated = clock;
+            // The stamps of single tables are superseded by the stamp of all tables
+            invalidated.clear();
+            invalidations.add(cache.size());
+            cache.clear();
+            dependents.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Starts collecting the tables that are written on the current thread, so they can be invalidated again once the transaction has ended.
+     * Otherwise other connections could cache the old rows between the write and the commit.
+     *
+     * @return <code>true</code> if tracking has been started and {@link #stopTracking()} must be called
+     */
+    boolean startTracking() {
+        if (tracked.get() != null) {
+            return false;
+        }
+        tracked.set(new HashSet<>());
+        return true;
+    }
+
+    /**
+     * Invalidates all tables that have been written on the current thread since {@link #startTracking()}
+     */
+    void stopTracking() {
+        Set<String> tables = tracked.get();
+        tracked.remove();
+        if (tables == null || tables.isEmpty()) {
+            return;
+        }
+        if (tables.contains(ALL_TABLES)) {
+            invalidateAll(false);
+        } else {
+            invalidate(tables.toArray(new String[0]), false);
+        }
+    }
+
+    /**
+     * Invalidates the tables written by a statement that has been executed successfully. This is called by the statements of the SQLiteHelper
+     * independently of its {@link StatementListener}, so statements are not timed only to invalidate the cache
+     *
+     * @param parseResult The parse result of the executed statement
+     */
+    void written(@NotNull NamedParameterParseResult parseResult) {
+        String[] tables = tablesOf(writtenTables, parseResult.getSql(), true);
+        if (tables == SqlTables.ALL) {
+            invalidateAll(true);
+        } else if (tables.length > 0) {
+            invalidate(tables, true);
+        }
+    }
+
+    private static @NotNull String[] tablesOf(@NotNull ConcurrentMap<@NotNull String, @NotNull String[]> tables, @NotNull String sql, boolean written) {
+        String[] result = tables.get(sql);
+        if (result == null) {
+            if (written) {
+                result = SqlTables.written(sql);
+                // Statements that do not write are cached as an empty array
+                if (result == null) {
+                    result = new String[0];
+                }
+            } else {
+                result = SqlTables.read(sql);
+            }
+            // A crude bound for applications that build SQL strings dynamically
+            if (tables.size() >= TABLES_CACHE_SIZE) {
+                tables.clear();
+            }
+            tables.put(sql, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return The amount of currently cached results
+     */
+    public int size() {
+        synchronized (cacheLock) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return The amount of times a cached result could be returned
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The amount of times a query had to be executed, because its result was not cached
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The ratio of lookups that returned a cached result, or <code>0</code> if nothing has been looked up yet
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum(), total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return The amount of results that have been removed to stay within the bounds of the cache
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The amount of results that have been removed, because a table they depend on has been written to
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+}
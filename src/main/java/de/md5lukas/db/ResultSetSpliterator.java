@@ -0,0 +1,102 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator that maps the rows of a {@link ResultSet} on demand, so only the current row is materialized at any time.
+ * <br><br>
+ * If a listener is present, the time spent advancing the result set and mapping the rows is accumulated and reported by {@link #reportFetch()}
+ *
+ * @param <T> The type of the mapped rows
+ */
+final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    @NotNull
+    private final ResultSet resultSet;
+    @NotNull
+    private RowMapper<? extends T> mapper;
+    @NotNull
+    private final NamedParameterParseResult parseResult;
+    @Nullable
+    private final StatementListener listener;
+    private long fetchNanos = 0, rows = 0;
+    private boolean resolved = false, reported = false;
+
+    ResultSetSpliterator(@NotNull ResultSet resultSet, @NotNull RowMapper<? extends T> mapper, @NotNull NamedParameterParseResult parseResult,
+                         @Nullable StatementListener listener) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED);
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+        this.parseResult = parseResult;
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean tryAdvance(@NotNull Consumer<? super T> action) {
+        try {
+            if (listener == null) {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                action.accept(mapper().map(resultSet));
+                return true;
+            }
+
+            long start = System.nanoTime();
+            if (!resultSet.next()) {
+                fetchNanos += System.nanoTime() - start;
+                return false;
+            }
+            T row = mapper().map(resultSet);
+            fetchNanos += System.nanoTime() - start;
+            rows++;
+            action.accept(row);
+            return true;
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    @Override
+    public void forEachRemaining(@NotNull Consumer<? super T> action) {
+        if (listener != null) {
+            super.forEachRemaining(action);
+            return;
+        }
+        try {
+            while (resultSet.next()) {
+                action.accept(mapper().map(resultSet));
+            }
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * @return The mapper resolved for the result set when the first row is mapped
+     */
+    private @NotNull RowMapper<? extends T> mapper() throws SQLException {
+        if (!resolved) {
+            mapper = mapper.forResultSet(resultSet);
+            resolved = true;
+        }
+        return mapper;
+    }
+
+    /**
+     * Reports the accumulated fetch time and the amount of fetched rows to the listener, at most once
+     */
+    void reportFetch() {
+        if (listener != null && !reported) {
+            reported = true;
+            listener.onFetch(parseResult, fetchNanos, rows);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Functional interface that maps the current row of a {@link ResultSet} to an object
+ *
+ * @param <T> The type of the mapped object
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Maps the current row of the result set. Implementations must not move the cursor of the result set
+     *
+     * @param resultSet The result set positioned at the row to map
+     * @return The mapped object
+     * @throws SQLException If a database error occurs or the ResultSet has been closed
+     */
+    T map(@NotNull ResultSet resultSet) throws SQLException;
+
+    /**
+     * Returns the mapper that is used for all rows of the result set, which is called once before the first row is mapped. Mappers that
+     * resolve the columns of the result set by their labels can resolve them once here instead of for every row.
+     *
+     * @param resultSet The result set positioned at its first row
+     * @return The mapper for all rows of the result set, by default this mapper itself
+     * @throws SQLException If a database error occurs or the ResultSet has been closed
+     */
+    default @NotNull RowMapper<T> forResultSet(@NotNull ResultSet resultSet) throws SQLException {
+        return this;
+    }
+}
@@ -0,0 +1,12 @@
+package de.md5lukas.db;
+
+import java.sql.SQLException;
+
+/**
+ * A runnable that can throw a {@link SQLException}
+ */
+@FunctionalInterface
+interface SQLRunnable {
+
+    void run() throws SQLException;
+}
@@ -4,9 +4,23 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Helper class for SQLite connections, which can optionally sub-classed
@@ -15,6 +29,10 @@ public class SQLiteHelper {
 
     @Nullable
     private static Boolean available = null;
+    /**
+     * The amount of parse results of queries with collection parameters that are cached if the configured parser does not cache anything
+     */
+    private static final int EXPANSION_CACHE_SIZE = 256;
 
     /**
      * Checks if a SQLite driver is present without throwing an exception and then stores the result
@@ -39,12 +57,44 @@ public class SQLiteHelper {
 
     @NotNull
     private final File file;
+    @NotNull
+    private final SQLiteOptions options;
+    @Nullable
+    private final StatementListener statementListener;
+    /**
+     * Parses the SQL strings of queries with collection parameters. This parser always caches, so the placeholder lists a parse result has
+     * been expanded to are reused instead of being expanded again for every query
+     */
+    @NotNull
+    private final NamedParameterParser expansionParser;
+    @NotNull
+    private final StatementRegistry statementRegistry;
 
     @NotNull
     private final Object connectionLock = new Object[0];
 
     @Nullable
-    private Connection connection;
+    private volatile Connection connection;
+    @Nullable
+    private volatile StatementCache statementCache;
+    @Nullable
+    private volatile ConnectionPool readerPool;
+    @Nullable
+    private volatile WriteBehindQueue writeBehindQueue;
+    @Nullable
+    private volatile WalCheckpointer walCheckpointer;
+
+    /**
+     * Serializes the transactions of different threads on the connection and allows nesting them on the same thread. Only
+     * {@link #inTransaction(TransactionMode, TransactionCallback)} takes this lock, the writer connection itself is exclusive to the running
+     * transaction as documented by {@link #getConnection()}
+     */
+    @NotNull
+    private final ReentrantLock transactionLock = new ReentrantLock();
+    private boolean transactionActive = false;
+    @NotNull
+    private final LongAdder commits = new LongAdder(), rollbacks = new LongAdder(), retries = new LongAdder(), busyFailures = new LongAdder(),
+            backoffNanos = new LongAdder();
 
     /**
      * Creates a new instance of the SQLiteHelper with the given file. The SQLite database file will be the provided file
@@ -53,48 +103,775 @@ public class SQLiteHelper {
      * @throws IllegalStateException If a SQLite driver is not available
      */
     public SQLiteHelper(@NotNull File file) {
+        this(file, new SQLiteOptions());
+    }
+
+    /**
+     * Creates a new instance of the SQLiteHelper with the given file and options. The SQLite database file will be the provided file
+     *
+     * @param file    The file for the database
+     * @param options The options to configure the connections and statements with
+     * @throws IllegalStateException    If a SQLite driver is not available
+     * @throws IllegalArgumentException If a reader pool has been configured together with a profile using a journal mode other than
+     *                                  {@link ConnectionProfile.JournalMode#WAL}, which would block the readers during writes
+     */
+    public SQLiteHelper(@NotNull File file, @NotNull SQLiteOptions options) {
         if (!checkAvailability())
             throw new IllegalStateException("The SQLite driver is not available");
 
         Validator.checkNotNull(file, "The file for the SQLite database cannot be null");
+        Validator.checkNotNull(options, "The options for the SQLite database cannot be null");
+        ConnectionProfile profile = options.getProfile();
+        Validator.checkArgument(options.getReaderPoolSize() == 0 || profile == null || profile.getJournalMode() == null
+                        || profile.getJournalMode() == ConnectionProfile.JournalMode.WAL,
+                "A reader pool requires the WAL journal mode, but the profile uses %s", profile == null ? null : profile.getJournalMode());
         this.file = file;
+        this.options = options;
+        this.statementListener = options.getStatementListener();
+        this.expansionParser = options.getParser().isCaching() ? options.getParser() : NamedParameterParser.cached(EXPANSION_CACHE_SIZE);
+        this.statementRegistry = new StatementRegistry(this, options);
     }
 
     /**
-     * Returns a previously created Connection or a newly created Connection to the SQLite database
+     * Returns a previously created Connection or a newly created Connection to the SQLite database.
+     * <br><br>
+     * If a reader pool has been configured, this is the single connection that should be used for all writes.
+     * <br><br>
+     * The connection is not locked while a transaction of {@link #inTransaction(TransactionMode, TransactionCallback)} runs. Instead it is
+     * exclusive to that transaction: statements that other threads execute directly on the connection, or with statements leased by
+     * {@link #leaseStatement(String)}, become part of the running transaction and are committed or rolled back with it. Threads that write
+     * concurrently should therefore use {@link #inTransaction(TransactionMode, TransactionCallback)} or {@link #submitWrite(String, Map)}
      *
      * @return A Connection to the SQLite database
      * @throws SQLException          If a database access error occurs
+     * @see SQLiteOptions#readerPoolSize(int)
      */
     public final @NotNull Connection getConnection() throws SQLException {
-        if (connection == null) {
+        Connection current = connection;
+        if (current == null) {
             synchronized (connectionLock) {
-                if (connection == null) {
-                    connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+                current = connection;
+                if (current == null) {
+                    current = openConnection(false);
+                    statementCache = new StatementCache(current, options.getParser(), options.getStatementCacheSize(), statementListener,
+                            options.getQueryCache());
+                    try {
+                        if (options.getReaderPoolSize() > 0) {
+                            readerPool = new ConnectionPool(() -> openConnection(true), options.getParser(),
+                                    options.getReaderPoolSize(), options.getStatementCacheSize(), statementListener);
+                        }
+                        if (options.getWriteQueueCapacity() > 0) {
+                            writeBehindQueue = new WriteBehindQueue(this, "SQLiteHelper writer " + file.getName(), options.getWriteQueueCapacity(),
+                                    options.getWriteBatchSize(), options.getWriteLatencyNanos());
+                        }
+                        if (options.getCheckpointMode() != null) {
+                            walCheckpointer = new WalCheckpointer(openConnection(false), options.getCheckpointMode(),
+                                    "SQLiteHelper checkpointer " + file.getName(), options.getCheckpointIntervalNanos());
+                        }
+                    } catch (SQLException | RuntimeException e) {
+                        // Let close() release everything that has been opened so far
+                        connection = current;
+                        close();
+                        throw e;
+                    }
+                    connection = current;
                 }
             }
         }
 
-        return connection;
+        return current;
     }
 
     /**
-     * Closes the connection to the database and then sets it to <code>null</code>
+     * Leases a read-only connection from the reader pool, waiting at most the configured acquire timeout for one to become available.
+     * The lease must be closed once it is no longer used, which returns the connection to the pool.
+     * <br><br>
+     * If no reader pool has been configured, the returned lease contains the connection of {@link #getConnection()} and closing it has no effect
+     *
+     * @return The lease of a read-only connection
+     * @throws SQLException If a database access error occurs or no connection became available in time
+     * @see SQLiteOptions#readerPoolSize(int)
+     * @see SQLiteOptions#acquireTimeout(long, TimeUnit)
      */
-    public void close() {
+    public final @NotNull ConnectionLease leaseReader() throws SQLException {
+        return leaseReader(options.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a read-only connection from the reader pool, waiting at most the provided timeout for one to become available
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return The lease of a read-only connection
+     * @throws SQLException         If a database access error occurs or no connection became available in time
+     * @throws NullPointerException If the unit is null
+     * @see #leaseReader()
+     */
+    public final @NotNull ConnectionLease leaseReader(long timeout, @NotNull TimeUnit unit) throws SQLException {
+        Validator.checkNotNull(unit, "The unit of the timeout cannot be null");
+        // The writer connection is always opened first, so the WAL journal mode is set before any reader exists
+        Connection writer = getConnection();
+        if (options.getReaderPoolSize() == 0) {
+            return new ConnectionLease(writer, getStatementCache(), null, null);
+        }
+        ConnectionPool pool = readerPool;
+        if (pool == null) {
+            throw new SQLException("The connection has been closed concurrently");
+        }
+        return pool.lease(timeout, unit);
+    }
+
+    /**
+     * Executes the query on a leased read-only connection and returns a stream that maps the rows lazily while it is consumed.
+     * The keys of the map are the names of the parameters. Parameters with a {@link Collection} as their value are expanded into a list of
+     * placeholders, so they can be used with <code>IN</code> lists.
+     * <br><br>
+     * The statement and the connection are leased until the stream is closed, so the stream must be used in a try-with-resources block.
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters
+     * @param mapper     The mapper that maps every row
+     * @param <T>        The type of the mapped rows
+     * @return A stream of the mapped rows
+     * @throws SQLException             If a database access error occurs or no connection became available in time
+     * @throws NullPointerException     If the SQL string, the parameters or the mapper are null
+     * @throws IllegalArgumentException If a name has not been registered
+     * @see NamedPreparedStatement#stream(RowMapper, int, boolean)
+     */
+    public final <T> @NotNull Stream<T> query(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters, @NotNull RowMapper<? extends T> mapper)
+            throws SQLException {
+        Validator.checkNotNull(parameters, "The parameters cannot be null");
+        Validator.checkNotNull(mapper, "The row mapper cannot be null");
+        ConnectionLease lease = leaseReader();
+        NamedPreparedStatement statement = prepare(lease, sql, parameters);
+        // The stream releases the statement and the lease once it is closed or if the query fails
+        return statement.stream(mapper, 0, () -> {
+            lease.releaseStatement(statement);
+            lease.close();
+        });
+    }
+
+    /**
+     * Executes the query on a leased read-only connection like {@link #query(String, Map, RowMapper)} and reads all rows into the columns of the
+     * batch, which is cleared first
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters
+     * @param batch      The batch to read the rows into
+     * @return The amount of rows
+     * @throws SQLException             If a database access error occurs, no connection became available in time or a column label does not exist
+     * @throws NullPointerException     If the SQL string, the parameters or the batch are null
+     * @throws IllegalArgumentException If a name has not been registered or the batch does not contain any columns
+     * @see NamedPreparedStatement#extract(ColumnBatch)
+     */
+    public final int extract(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters, @NotNull ColumnBatch batch) throws SQLException {
+        try (ColumnCursor cursor = extractChunks(sql, parameters, batch)) {
+            return cursor.next(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Executes the query on a leased read-only connection like {@link #query(String, Map, RowMapper)} and returns a cursor that reads the rows
+     * in chunks into the columns of the batch. The statement and the connection are leased until the cursor is closed, so the cursor must be
+     * used in a try-with-resources block.
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters
+     * @param batch      The batch to read the chunks into
+     * @return The cursor of the rows
+     * @throws SQLException             If a database access error occurs, no connection became available in time or a column label does not exist
+     * @throws NullPointerException     If the SQL string, the parameters or the batch are null
+     * @throws IllegalArgumentException If a name has not been registered or the batch does not contain any columns
+     * @see NamedPreparedStatement#extractChunks(ColumnBatch)
+     */
+    public final @NotNull ColumnCursor extractChunks(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters, @NotNull ColumnBatch batch)
+            throws SQLException {
+        Validator.checkNotNull(parameters, "The parameters cannot be null");
+        Validator.checkNotNull(batch, "The batch cannot be null");
+        ConnectionLease lease = leaseReader();
+        NamedPreparedStatement statement = prepare(lease, sql, parameters);
+        return statement.extractChunks(batch, () -> {
+            lease.releaseStatement(statement);
+            lease.close();
+        });
+    }
+
+    /**
+     * Leases a statement from the lease and binds the parameters, expanding the ones with a {@link Collection} as their value. The lease is
+     * closed if this fails
+     */
+    private @NotNull NamedPreparedStatement prepare(@NotNull ConnectionLease lease, @NotNull String sql, @NotNull Map<@NotNull String, ?> parameters)
+            throws SQLException {
+        NamedPreparedStatement statement = null;
         try {
-            if (connection == null || connection.isClosed()) {
-                return;
+            NamedParameterParseResult expanded = null;
+            for (Map.Entry<String, ?> entry : parameters.entrySet()) {
+                if (entry.getValue() instanceof Collection) {
+                    if (expanded == null) {
+                        expanded = expansionParser.parse(sql);
+                    }
+                    expanded = expanded.expand(entry.getKey(), ((Collection<?>) entry.getValue()).size());
+                }
             }
-            synchronized (connectionLock) {
-                if (connection == null || connection.isClosed()) {
-                    return;
+
+            statement = expanded == null ? lease.leaseStatement(sql) : lease.leaseStatement(expanded);
+            for (Map.Entry<String, ?> entry : parameters.entrySet()) {
+                if (entry.getValue() instanceof Collection) {
+                    statement.setCollection(entry.getKey(), (Collection<?>) entry.getValue());
+                } else {
+                    statement.setObject(entry.getKey(), entry.getValue());
                 }
-                connection.close();
-                connection = null;
             }
+            return statement;
+        } catch (SQLException | RuntimeException e) {
+            if (statement != null) {
+                lease.releaseStatement(statement);
+            }
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the query like {@link #query(String, Map, RowMapper)} and returns all mapped rows, or returns the rows of a previous execution
+     * with the same parameters and mapper from the configured {@link QueryCache}. The cached result depends on the tables in the
+     * <code>FROM</code> and <code>JOIN</code> clauses of the SQL string and is invalidated once any of them is written to.
+     * <br><br>
+     * The returned list is shared by all callers and cannot be modified, so the mapped rows should be immutable as well
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters
+     * @param mapper     The mapper that maps every row, which is part of the cache key
+     * @param <T>        The type of the mapped rows
+     * @return An unmodifiable list of the mapped rows
+     * @throws SQLException             If a database access error occurs or no connection became available in time
+     * @throws NullPointerException     If the SQL string, the parameters or the mapper are null
+     * @throws IllegalArgumentException If a name has not been registered
+     * @throws IllegalStateException    If no query cache has been configured
+     * @see SQLiteOptions#queryCache(QueryCache)
+     */
+    public final <T> @NotNull List<T> cachedQuery(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters, @NotNull RowMapper<? extends T> mapper)
+            throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        return loadCached(sql, null, parameters, mapper);
+    }
+
+    /**
+     * Executes the query like {@link #cachedQuery(String, Map, RowMapper)}, but the cached result depends on the provided tables instead of the
+     * tables extracted from the SQL string. This is required if the query reads from views or from tables that are written by triggers.
+     *
+     * @param sql        The SQL string with named parameters
+     * @param tables     The names of the tables the result depends on
+     * @param parameters The values of the named parameters
+     * @param mapper     The mapper that maps every row, which is part of the cache key
+     * @param <T>        The type of the mapped rows
+     * @return An unmodifiable list of the mapped rows
+     * @throws SQLException             If a database access error occurs or no connection became available in time
+     * @throws NullPointerException     If the SQL string, the tables, the parameters or the mapper are null
+     * @throws IllegalArgumentException If a name has not been registered
+     * @throws IllegalStateException    If no query cache has been configured
+     */
+    public final <T> @NotNull List<T> cachedQuery(@NotNull String sql, @NotNull Collection<@NotNull String> tables, @NotNull Map<@NotNull String, ?> parameters,
+                                                  @NotNull RowMapper<? extends T> mapper) throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        Validator.checkNotNull(tables, "The tables cannot be null");
+        return loadCached(sql, QueryCache.normalize(tables), parameters, mapper);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> @NotNull List<T> loadCached(@NotNull String sql, @Nullable String[] tables, @NotNull Map<@NotNull String, ?> parameters,
+                                            @NotNull RowMapper<? extends T> mapper) throws SQLException {
+        Validator.checkNotNull(parameters, "The parameters cannot be null");
+        Validator.checkNotNull(mapper, "The row mapper cannot be null");
+        QueryCache cache = options.getQueryCache();
+        if (cache == null) {
+            throw new IllegalStateException("The query cache has not been enabled");
+        }
+        if (tables == null) {
+            tables = cache.readTablesOf(sql);
+        }
+
+        QueryCache.Key key = cache.key(sql, parameters, mapper);
+        List<T> rows = (List<T>) cache.get(key);
+        if (rows != null) {
+            return rows;
+        }
+        long stamp = cache.stamp(tables);
+        try (Stream<T> stream = query(sql, parameters, mapper)) {
+            rows = Collections.unmodifiableList(stream.collect(Collectors.toList()));
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+        cache.put(key, tables, rows, stamp);
+        return rows;
+    }
+
+    /**
+     * Imports the records of a delimited text file, like a CSV or TSV file, by executing the INSERT statement for every record on the connection
+     * returned by {@link #getConnection()}.
+     * <br><br>
+     * The file is read by a background thread and parsed by multiple parser threads, while the calling thread inserts the records in batches.
+     * Every chunk of records is inserted in its own transaction, which is retried like {@link #inTransaction(TransactionCallback)} if the
+     * database is busy, so a failing import keeps the records of the chunks that have already been committed. All fields are bound as strings,
+     * so they are converted according to the type affinity of their columns.
+     *
+     * @param file    The file to import
+     * @param sql     The INSERT statement with named parameters
+     * @param options The options describing the format of the file and how its columns are mapped onto the parameters
+     * @return The final progress of the import
+     * @throws IOException              If the file cannot be read or contains a malformed record
+     * @throws SQLException             If a database access error occurs
+     * @throws NullPointerException     If the file, the SQL string or the options are null
+     * @throws IllegalArgumentException If a column is mapped to an unknown parameter or a parameter is not mapped to a column
+     * @see ImportOptions
+     */
+    public final @NotNull ImportProgress importFile(@NotNull Path file, @NotNull String sql, @NotNull ImportOptions options) throws IOException, SQLException {
+        Validator.checkNotNull(file, "The file to import cannot be null");
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        Validator.checkNotNull(options, "The import options cannot be null");
+        return new FileImporter(this, file, sql, options).run();
+    }
+
+    /**
+     * Creates a {@link BulkInsertStatement} for the single-row INSERT statement on the connection returned by {@link #getConnection()} that stays
+     * within {@link BulkInsertStatement#DEFAULT_MAX_VARIABLES}
+     *
+     * @param sql The single-row INSERT statement with named parameters
+     * @return The bulk insert statement, which must be closed once it is no longer used
+     * @throws SQLException             If a database access error occurs
+     * @throws NullPointerException     If the SQL string is null
+     * @throws IllegalArgumentException If the SQL string is not a single-row INSERT statement with all parameters inside the <code>VALUES</code> tuple
+     * @see #createBulkInsert(String, int)
+     */
+    public final @NotNull BulkInsertStatement createBulkInsert(@NotNull String sql) throws SQLException {
+        return createBulkInsert(sql, BulkInsertStatement.DEFAULT_MAX_VARIABLES);
+    }
 
-        } catch (SQLException ignored) {
+    /**
+     * Creates a {@link BulkInsertStatement} for the single-row INSERT statement on the connection returned by {@link #getConnection()}. Its
+     * statements report to the configured {@link StatementListener} and invalidate the tables they write in the configured {@link QueryCache},
+     * unlike bulk insert statements created with the public constructors.
+     *
+     * @param sql          The single-row INSERT statement with named parameters
+     * @param maxVariables The maximum amount of variables a single statement may contain
+     * @return The bulk insert statement, which must be closed once it is no longer used
+     * @throws SQLException             If a database access error occurs
+     * @throws NullPointerException     If the SQL string is null
+     * @throws IllegalArgumentException If the SQL string is not a single-row INSERT statement with all parameters inside the <code>VALUES</code> tuple,
+     *                                  or if a single row has more variables than allowed
+     */
+    public final @NotNull BulkInsertStatement createBulkInsert(@NotNull String sql, int maxVariables) throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        return new BulkInsertStatement(getConnection(), options.getParser().parse(sql), maxVariables, statementListener, options.getQueryCache());
+    }
+
+    /**
+     * Submits a write to the asynchronous write pipeline. The keys of the map are the names of the parameters.
+     * <br><br>
+     * This blocks while the queue of pending writes is full. The returned future is completed with the update count once the transaction
+     * containing the write has been committed, or exceptionally if the write failed. The writes are executed on the connection returned by
+     * {@link #getConnection()} in transactions like {@link #inTransaction(TransactionCallback)}, so the future must not be waited for inside
+     * a transaction, which would never end.
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters
+     * @return A future that is completed once the write has been committed
+     * @throws SQLException          If a database access error occurs while opening the connections
+     * @throws NullPointerException  If the SQL string or the parameters are null
+     * @throws IllegalStateException If the write pipeline has not been enabled
+     * @see SQLiteOptions#writeBehind(int, int, long, TimeUnit)
+     */
+    public final @NotNull CompletableFuture<Integer> submitWrite(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters) throws SQLException {
+        Validator.checkNotNull(parameters, "The parameters cannot be null");
+        return submitWrite(sql, parameters, (statement, row) -> {
+            for (Map.Entry<String, ?> entry : row.entrySet()) {
+                statement.setObject(entry.getKey(), entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * Submits a write to the asynchronous write pipeline, which binds the row using the binder on the writer thread
+     *
+     * @param sql    The SQL string with named parameters
+     * @param row    The row to bind
+     * @param binder The binder that sets the parameters of the statement
+     * @param <T>    The type of the row
+     * @return A future that is completed once the write has been committed
+     * @throws SQLException          If a database access error occurs while opening the connections
+     * @throws NullPointerException  If the SQL string or the binder are null
+     * @throws IllegalStateException If the write pipeline has not been enabled
+     * @see #submitWrite(String, Map)
+     */
+    public final <T> @NotNull CompletableFuture<Integer> submitWrite(@NotNull String sql, @Nullable T row, @NotNull StatementBinder<? super T> binder)
+            throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        Validator.checkNotNull(binder, "The binder cannot be null");
+        if (options.getWriteQueueCapacity() == 0) {
+            throw new IllegalStateException("The write-behind queue has not been enabled");
+        }
+        getConnection();
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue == null) {
+            throw new SQLException("The connection has been closed concurrently");
+        }
+        return queue.submit(sql, row, binder);
+    }
+
+    /**
+     * @return The amount of submitted writes that have not been executed yet
+     */
+    public final int getPendingWriteCount() {
+        WriteBehindQueue queue = writeBehindQueue;
+        return queue == null ? 0 : queue.pendingCount();
+    }
+
+    /**
+     * @return The metrics of the reader pool, or <code>null</code> if no reader pool has been configured or no connection is open
+     */
+    public final @Nullable PoolMetrics getReaderPoolMetrics() {
+        ConnectionPool pool = readerPool;
+        return pool == null ? null : pool.metrics();
+    }
+
+    /**
+     * Opens a new connection to the SQLite database and applies the configured {@link ConnectionProfile}
+     *
+     * @param readOnly <code>true</code> if the connection is used for the reader pool
+     * @return The new connection
+     * @throws SQLException If a database access error occurs
+     */
+    private @NotNull Connection openConnection(boolean readOnly) throws SQLException {
+        Connection newConnection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try {
+            ConnectionProfile profile = options.getProfile();
+            if (profile != null) {
+                profile.apply(newConnection, !readOnly);
+            }
+            try (Statement statement = newConnection.createStatement()) {
+                if (readOnly) {
+                    statement.execute("PRAGMA query_only = ON");
+                } else if (options.getReaderPoolSize() > 0 && (profile == null || profile.getJournalMode() == null)) {
+                    statement.execute("PRAGMA journal_mode = WAL");
+                }
+            }
+        } catch (SQLException e) {
+            try {
+                newConnection.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        return newConnection;
+    }
+
+    /**
+     * @return The amount of background WAL checkpoints that have been run
+     * @see SQLiteOptions#walCheckpoint(ConnectionProfile.CheckpointMode, long, TimeUnit)
+     */
+    public final long getCheckpointCount() {
+        WalCheckpointer checkpointer = walCheckpointer;
+        return checkpointer == null ? 0 : checkpointer.checkpointCount();
+    }
+
+    /**
+     * @return The amount of background WAL checkpoints that could not complete, because they were blocked by other connections
+     */
+    public final long getBusyCheckpointCount() {
+        WalCheckpointer checkpointer = walCheckpointer;
+        return checkpointer == null ? 0 : checkpointer.busyCheckpointCount();
+    }
+
+    /**
+     * @return The amount of background WAL checkpoints that failed with an exception, like an I/O error or a database that is not in WAL mode
+     */
+    public final long getFailedCheckpointCount() {
+        WalCheckpointer checkpointer = walCheckpointer;
+        return checkpointer == null ? 0 : checkpointer.failedCheckpointCount();
+    }
+
+    /**
+     * Runs the callback inside an immediate transaction on the connection returned by {@link #getConnection()}
+     *
+     * @param callback The work to do inside the transaction
+     * @param <T>      The type of the result
+     * @return The result of the callback
+     * @throws SQLException         If a database access error occurs or the database is still busy after the last retry
+     * @throws NullPointerException If the callback is null
+     * @see #inTransaction(TransactionMode, TransactionCallback)
+     */
+    public final <T> T inTransaction(@NotNull TransactionCallback<T> callback) throws SQLException {
+        return inTransaction(TransactionMode.IMMEDIATE, callback);
+    }
+
+    /**
+     * Runs the callback inside a transaction on the connection returned by {@link #getConnection()}, which is committed if the callback
+     * returns normally and rolled back if it throws an exception.
+     * <br><br>
+     * If the transaction fails because the database is busy or locked (<code>SQLITE_BUSY</code> or <code>SQLITE_LOCKED</code>), it is rolled
+     * back and the callback is run again in a new transaction after a jittered exponential backoff, as configured by
+     * {@link SQLiteOptions#transactionRetry(int, long, long, TimeUnit)}.
+     * <br><br>
+     * Transactions of different threads are serialized, but other uses of the connection are not, see {@link #getConnection()}. Calling this method again from inside the callback creates a savepoint instead, which
+     * only rolls back the work of the nested callback if it throws an exception. Nested transactions are never retried on their own, instead
+     * the exception causes the outermost transaction to be retried, so the mode of nested transactions is ignored.
+     *
+     * @param mode     How the transaction acquires its locks
+     * @param callback The work to do inside the transaction
+     * @param <T>      The type of the result
+     * @return The result of the callback
+     * @throws SQLException         If a database access error occurs or the database is still busy after the last retry
+     * @throws NullPointerException If the mode or the callback is null
+     * @see #getTransactionMetrics()
+     */
+    public final <T> T inTransaction(@NotNull TransactionMode mode, @NotNull TransactionCallback<T> callback) throws SQLException {
+        Validator.checkNotNull(mode, "The transaction mode cannot be null");
+        Validator.checkNotNull(callback, "The transaction callback cannot be null");
+        Connection connection = getConnection();
+        transactionLock.lock();
+        try {
+            if (transactionActive) {
+                return inSavepoint(connection, callback);
+            }
+
+            // Invalidate the written tables again once the transaction has ended
+            QueryCache queryCache = options.getQueryCache();
+            boolean tracking = queryCache != null && queryCache.startTracking();
+            try {
+                return retryTransaction(connection, mode, callback);
+            } finally {
+                if (tracking) {
+                    queryCache.stopTracking();
+                }
+            }
+        } finally {
+            transactionLock.unlock();
+        }
+    }
+
+    private <T> T retryTransaction(@NotNull Connection connection, @NotNull TransactionMode mode, @NotNull TransactionCallback<T> callback)
+            throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            transactionActive = true;
+            try {
+                return runTransaction(connection, mode, callback);
+            } catch (SQLException | RuntimeException e) {
+                rollbacks.increment();
+                if (!isBusy(e)) {
+                    throw e;
+                }
+                if (attempt >= options.getTransactionMaxRetries()) {
+                    busyFailures.increment();
+                    throw e;
+                }
+                retries.increment();
+                backoff(attempt, e);
+            } finally {
+                transactionActive = false;
+            }
+        }
+    }
+
+    /**
+     * @return A snapshot of the metrics of the transactions started by {@link #inTransaction(TransactionMode, TransactionCallback)}, including
+     * the transactions of the write pipeline and of {@link #importFile(Path, String, ImportOptions)}
+     */
+    public final @NotNull TransactionMetrics getTransactionMetrics() {
+        return new TransactionMetrics(commits.sum(), rollbacks.sum(), retries.sum(), busyFailures.sum(), backoffNanos.sum());
+    }
+
+    private <T> T runTransaction(@NotNull Connection connection, @NotNull TransactionMode mode, @NotNull TransactionCallback<T> callback)
+            throws SQLException {
+        try {
+            DriverTransactions.begin(connection, mode);
+            T result = callback.execute(connection);
+            connection.commit();
+            commits.increment();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException suppressed) {
+                // The transaction may have never been started or already been rolled back by SQLite
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // The driver restores the auto-commit flag even if there is no transaction to end
+            }
+        }
+    }
+
+    private static <T> T inSavepoint(@NotNull Connection connection, @NotNull TransactionCallback<T> callback) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SAVEPOINT nested");
+            T result;
+            try {
+                result = callback.execute(connection);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    statement.execute("ROLLBACK TO nested");
+                    statement.execute("RELEASE nested");
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            statement.execute("RELEASE nested");
+            return result;
+        }
+    }
+
+    private void backoff(int attempt, @NotNull Exception cause) throws SQLException {
+        long delay = backoffDelay(attempt, options.getTransactionBaseDelayNanos(), options.getTransactionMaxDelayNanos());
+        long sleep = delay <= 0 ? 0 : ThreadLocalRandom.current().nextLong(delay + 1);
+        backoffNanos.add(sleep);
+        try {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            SQLException exception = cause instanceof SQLException ? (SQLException) cause : new SQLException(cause.getMessage(), cause);
+            exception.addSuppressed(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * @return The base delay doubled for every attempt, clamped to the maximum delay before shifting so it cannot overflow
+     */
+    static long backoffDelay(int attempt, long base, long max) {
+        return base > 0 && (attempt >= Long.SIZE - 1 || base > (max >> attempt)) ? max : base << attempt;
+    }
+
+    /**
+     * Checks the exception and its causes for the <code>SQLITE_BUSY</code> (5) and <code>SQLITE_LOCKED</code> (6) result codes, ignoring the
+     * extended result codes
+     */
+    static boolean isBusy(@Nullable Throwable t) {
+        for (int depth = 0; t != null && depth < 8; t = t.getCause(), depth++) {
+            if (t instanceof SQLException) {
+                int code = ((SQLException) t).getErrorCode() & 0xFF;
+                if (code == 5 || code == 6) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private @NotNull StatementCache getStatementCache() throws SQLException {
+        StatementCache cache = statementCache;
+        if (cache == null) {
+            throw new SQLException("The connection has been closed concurrently");
+        }
+        return cache;
+    }
+
+    /**
+     * Leases a {@link NamedPreparedStatement} for the SQL string from the statement cache of the connection, or prepares a new one if no
+     * idle statement is cached. The statement must be given back with {@link #releaseStatement(NamedPreparedStatement)} once it is no longer used
+     * instead of closing it, so the compiled statement can be reused.
+     * <br><br>
+     * Like the connection itself, the statement is not serialized with running transactions, as described by {@link #getConnection()}.
+     *
+     * @param sql The SQL string with named parameters
+     * @return A statement that is exclusively used by the caller until it is released
+     * @throws SQLException         If a database access error occurs
+     * @throws NullPointerException If the SQL string is null
+     */
+    public final @NotNull NamedPreparedStatement leaseStatement(@NotNull String sql) throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        getConnection();
+        return getStatementCache().lease(sql);
+    }
+
+    /**
+     * Leases a {@link NamedPreparedStatement} for the already parsed SQL string. This is used for parse results that have been expanded for
+     * collections, which are cached separately for every size of the placeholder lists.
+     *
+     * @param parseResult The parse result of the SQL string
+     * @return A statement that is exclusively used by the caller until it is released
+     * @throws SQLException         If a database access error occurs
+     * @throws NullPointerException If the parse result is null
+     * @see NamedParameterParseResult#expand(String, int)
+     */
+    public final @NotNull NamedPreparedStatement leaseStatement(@NotNull NamedParameterParseResult parseResult) throws SQLException {
+        Validator.checkNotNull(parseResult, "The parse result cannot be null");
+        getConnection();
+        return getStatementCache().lease(parseResult);
+    }
+
+    /**
+     * Prepares a new statement for the parse result like {@link #leaseStatement(NamedParameterParseResult)}, replacing the idle statement that
+     * may be cached for it
+     */
+    final @NotNull NamedPreparedStatement prepareStatement(@NotNull NamedParameterParseResult parseResult) throws SQLException {
+        getConnection();
+        return getStatementCache().prepare(parseResult);
+    }
+
+    /**
+     * Returns the registry of the SQL templates of the application, which can be warmed up in the background during startup
+     *
+     * @return The statement registry of this helper
+     */
+    public final @NotNull StatementRegistry getStatementRegistry() {
+        return statementRegistry;
+    }
+
+    /**
+     * Gives a statement obtained by {@link #leaseStatement(String)} back to the statement cache. The parameters of the statement are cleared,
+     * but the compiled statement is kept. If the cache is full the least recently used statement is closed.
+     *
+     * @param statement The statement to release
+     * @throws NullPointerException If the statement is null
+     */
+    public final void releaseStatement(@NotNull NamedPreparedStatement statement) {
+        Validator.checkNotNull(statement, "The statement to release cannot be null");
+        StatementCache cache = statementCache;
+        if (cache == null) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        } else {
+            cache.release(statement);
+        }
+    }
+
+    /**
+     * Waits for all pending writes to be executed and then closes all cached statements, the reader pool and the connection to the database
+     * and then sets it to <code>null</code>. Leased read-only connections are closed once their lease is closed
+     */
+    public void close() {
+        synchronized (connectionLock) {
+            if (writeBehindQueue != null) {
+                writeBehindQueue.close();
+                writeBehindQueue = null;
+            }
+            if (walCheckpointer != null) {
+                walCheckpointer.close();
+                walCheckpointer = null;
+            }
+            if (readerPool != null) {
+                readerPool.close();
+                readerPool = null;
+            }
+            if (statementCache != null) {
+                statementCache.close();
+                statementCache = null;
+            }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+                connection = null;
+            }
         }
     }
 }
@@ -0,0 +1,311 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options that configure how a {@link SQLiteHelper} manages its connections and statements.
+ * <br><br>
+ * The options are read once when the SQLiteHelper is created, so changing them afterwards has no effect on existing helpers
+ */
+public final class SQLiteOptions {
+
+    private int statementCacheSize = 32;
+    @NotNull
+    private NamedParameterParser parser = NamedParameterParser.uncached();
+    private int readerPoolSize = 0;
+    private long acquireTimeoutMillis = 30_000;
+    private int writeQueueCapacity = 0, writeBatchSize = 0;
+    private long writeLatencyNanos = 0;
+    @Nullable
+    private ConnectionProfile profile;
+    @Nullable
+    private ConnectionProfile.CheckpointMode checkpointMode;
+    private long checkpointIntervalNanos = 0;
+    @Nullable
+    private StatementListener statementListener;
+    @Nullable
+    private QueryCache queryCache;
+    private int transactionMaxRetries = 10;
+    private long transactionBaseDelayNanos = TimeUnit.MILLISECONDS.toNanos(1), transactionMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Sets the amount of idle {@link NamedPreparedStatement}s that are kept per connection.
+     * A size of <code>0</code> disables the statement cache. Defaults to <code>32</code>
+     *
+     * @param statementCacheSize The maximum amount of cached statements per connection
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the size is negative
+     */
+    public @NotNull SQLiteOptions statementCacheSize(int statementCacheSize) {
+        Validator.checkArgument(statementCacheSize >= 0, "The statement cache size cannot be negative, but is %d", statementCacheSize);
+        this.statementCacheSize = statementCacheSize;
+        return this;
+    }
+
+    /**
+     * @return The maximum amount of cached statements per connection
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Sets the parser that is used to parse the SQL strings of statements that are not cached. Defaults to {@link NamedParameterParser#uncached()}
+     *
+     * @param parser The parser to use
+     * @return This instance for chaining
+     * @throws NullPointerException If the parser is null
+     */
+    public @NotNull SQLiteOptions parser(@NotNull NamedParameterParser parser) {
+        Validator.checkNotNull(parser, "The parser cannot be null");
+        this.parser = parser;
+        return this;
+    }
+
+    /**
+     * @return The parser that is used to parse the SQL strings
+     */
+    public @NotNull NamedParameterParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Sets the maximum amount of read-only connections that are pooled in addition to the connection returned by {@link SQLiteHelper#getConnection()}.
+     * <br><br>
+     * If the size is positive, the database is switched to the WAL journal mode, so readers can query the database concurrently while the single
+     * writer connection serializes all writes. A size of <code>0</code> disables the pool. Defaults to <code>0</code>
+     *
+     * @param readerPoolSize The maximum amount of read-only connections
+     * @return This instance for chaining
+     * @throws IllegalArgumentException If the size is negative
+     * @see SQLiteHelper#leaseReader()
+     */
+    public @NotNull SQLiteOptions readerPoolSize(int readerPoolSize) {
+        Validator.checkArgument(readerPoolSize >= 0, "The reader pool size cannot be negative, but is %d", readerPoolSize);
+        this.readerPoolSize = readerPoolSize;
+        return this;
+    }
+
+    /**
+     * @return The maximum amount of read-only connections
+     */
+    public int getReaderPoolSize() {
+        return readerPoolSize;
+    }
+
+    /**
+     * Sets the maximum time to wait for a read-only connection to become available. Defaults to 30 seconds
+     *
+     * @param timeout The maximum time to wait
+     * @param unit    The unit of the timeout
+     * @return This instance for chaining
+     * @throws NullPointerException     If the unit is null
+     * @throws IllegalArgumentException If the timeout is negative
+     */
+    public @NotNull SQLiteOptions acquireTimeout(long timeout, @NotNull TimeUnit unit) {
+        Validator.checkNotNull(unit, "The unit of the timeout cannot be null");
+        Validator.checkArgument(timeout >= 0, "The timeout cannot be negative, but is %d", timeout);
+        this.acquireTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * @return The maximum time in milliseconds to wait for a read-only connection
+     */
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    /**
+     * Enables the asynchronous write pipeline of the SQLiteHelper, which executes submitted writes on a single writer thread using the writer
+     * connection and commits up to <code>maxBatchSize</code> writes in a single transaction.
+     * <br><br>
+     * After the first write of a batch has been taken from the queue, the writer waits up to <code>maxLatency</code> for further writes before
+     * committing the batch. Submitting writes blocks while <code>queueCapacity</code> writes are pending.
+     *
+     * @param queueCapacity The maximum amount of pending writes
+     * @param maxBatchSize  The maximum amount of writes committed in a single transaction
+     * @param maxLatency    The maximum time to wait for further writes of a batch
+     * @param unit          The unit of the latency
+     * @return This instance for chaining
+     * @throws NullPointerException     If the unit is null
+     * @throws IllegalArgumentException If the capacity or batch size are not positive or the latency is negative
+     * @see SQLiteHelper#submitWrite(String, Map)
+     */
+    public @NotNull SQLiteOptions writeBehind(int queueCapacity, int maxBatchSize, long maxLatency, @NotNull TimeUnit unit) {
+        Validator.checkNotNull(unit, "The unit of the latency cannot be null");
+        Validator.checkArgument(queueCapacity > 0, "The queue capacity must be positive, but is %d", queueCapacity);
+        Validator.checkArgument(maxBatchSize > 0, "The batch size must be positive, but is %d", maxBatchSize);
+        Validator.checkArgument(maxLatency >= 0, "The latency cannot be negative, but is %d", maxLatency);
+        this.writeQueueCapacity = queueCapacity;
+        this.writeBatchSize = maxBatchSize;
+        this.writeLatencyNanos = unit.toNanos(maxLatency);
+        return this;
+    }
+
+    /**
+     * @return The maximum amount of pending writes, or <code>0</code> if the write pipeline is disabled
+     */
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    /**
+     * @return The maximum amount of writes committed in a single transaction
+     */
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * @return The maximum time in nanoseconds to wait for further writes of a batch
+     */
+    public long getWriteLatencyNanos() {
+        return writeLatencyNanos;
+    }
+
+    /**
+     * Sets the PRAGMAs that are applied to every connection the SQLiteHelper opens. If no profile is set, the defaults of the driver are used,
+     * except for the journal mode which is switched to WAL if a reader pool is configured and the profile does not set a journal mode
+     *
+     * @param profile The profile to apply or <code>null</code> to use the defaults
+     * @return This instance for chaining
+     * @see ConnectionProfile#balanced()
+     */
+    public @NotNull SQLiteOptions profile(@Nullable ConnectionProfile profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    /**
+     * @return The profile that is applied to every connection, or <code>null</code> if the defaults are used
+     */
+    public @Nullable ConnectionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Enables running <code>PRAGMA wal_checkpoint</code> with the provided mode on a background thread with a fixed delay between the checkpoints.
+     * This only has an effect if the database uses the WAL journal mode
+     *
+     * @param mode     The mode of the checkpoint, usually {@link ConnectionProfile.CheckpointMode#PASSIVE} or
+     *                 {@link ConnectionProfile.CheckpointMode#TRUNCATE}
+     * @param interval The delay between two checkpoints
+     * @param unit     The unit of the interval
+     * @return This instance for chaining
+     * @throws NullPointerException     If the mode or the unit is null
+     * @throws IllegalArgumentException If the interval is not positive
+     */
+    public @NotNull SQLiteOptions walCheckpoint(@NotNull ConnectionProfile.CheckpointMode mode, long interval, @NotNull TimeUnit unit) {
+        Validator.checkNotNull(mode, "The checkpoint mode cannot be null");
+        Validator.checkNotNull(unit, "The unit of the interval cannot be null");
+        Validator.checkArgument(interval > 0, "The interval must be positive, but is %d", interval);
+        this.checkpointMode = mode;
+        this.checkpointIntervalNanos = unit.toNanos(interval);
+        return this;
+    }
+
+    /**
+     * @return The mode of the background checkpoints, or <code>null</code> if they are disabled
+     */
+    public @Nullable ConnectionProfile.CheckpointMode getCheckpointMode() {
+        return checkpointMode;
+    }
+
+    /**
+     * @return The delay between two background checkpoints in nanoseconds
+     */
+    public long getCheckpointIntervalNanos() {
+        return checkpointIntervalNanos;
+    }
+
+    /**
+     * Sets the listener that is notified about preparing, binding, executing and fetching the results of every statement leased from the
+     * SQLiteHelper, including the statements of the reader pool and the write pipeline. Without a listener, statements are not timed at all
+     *
+     * @param statementListener The listener or <code>null</code> to disable the notifications
+     * @return This instance for chaining
+     * @see StatementMetrics
+     */
+    public @NotNull SQLiteOptions statementListener(@Nullable StatementListener statementListener) {
+        this.statementListener = statementListener;
+        return this;
+    }
+
+    /**
+     * @return The listener that is notified about every statement, or <code>null</code> if none has been set
+     */
+    public @Nullable StatementListener getStatementListener() {
+        return statementListener;
+    }
+
+    /**
+     * Sets the cache that stores the results of {@link SQLiteHelper#cachedQuery(String, Map, RowMapper)}. Writes executed by the statements of
+     * the SQLiteHelper invalidate the cached results of the tables they write to. A cache should only be used by a single SQLiteHelper
+     *
+     * @param queryCache The cache or <code>null</code> to disable caching query results
+     * @return This instance for chaining
+     * @see QueryCache
+     */
+    public @NotNull SQLiteOptions queryCache(@Nullable QueryCache queryCache) {
+        this.queryCache = queryCache;
+        return this;
+    }
+
+    /**
+     * @return The cache that stores the results of queries, or <code>null</code> if none has been set
+     */
+    public @Nullable QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Sets how often a transaction started by {@link SQLiteHelper#inTransaction(TransactionCallback)} is retried if it fails, because the
+     * database is busy or locked. Before every retry the transaction waits a random time between zero and the exponentially growing delay,
+     * which starts at <code>baseDelay</code> and is capped at <code>maxDelay</code>. Defaults to 10 retries with delays between 1 and 100
+     * milliseconds
+     *
+     * @param maxRetries The maximum amount of retries, or <code>0</code> to disable retries
+     * @param baseDelay  The delay before the first retry
+     * @param maxDelay   The maximum delay before a retry
+     * @param unit       The unit of the delays
+     * @return This instance for chaining
+     * @throws NullPointerException     If the unit is null
+     * @throws IllegalArgumentException If the amount of retries or a delay is negative or the base delay is larger than the maximum delay
+     */
+    public @NotNull SQLiteOptions transactionRetry(int maxRetries, long baseDelay, long maxDelay, @NotNull TimeUnit unit) {
+        Validator.checkNotNull(unit, "The unit of the delays cannot be null");
+        Validator.checkArgument(maxRetries >= 0, "The amount of retries cannot be negative, but is %d", maxRetries);
+        Validator.checkArgument(baseDelay >= 0, "The base delay cannot be negative, but is %d", baseDelay);
+        Validator.checkArgument(maxDelay >= baseDelay, "The maximum delay cannot be less than the base delay, but is %d", maxDelay);
+        this.transactionMaxRetries = maxRetries;
+        this.transactionBaseDelayNanos = unit.toNanos(baseDelay);
+        this.transactionMaxDelayNanos = unit.toNanos(maxDelay);
+        return this;
+    }
+
+    /**
+     * @return The maximum amount of retries of a transaction
+     */
+    public int getTransactionMaxRetries() {
+        return transactionMaxRetries;
+    }
+
+    /**
+     * @return The delay before the first retry of a transaction in nanoseconds
+     */
+    public long getTransactionBaseDelayNanos() {
+        return transactionBaseDelayNanos;
+    }
+
+    /**
+     * @return The maximum delay before a retry of a transaction in nanoseconds
+     */
+    public long getTransactionMaxDelayNanos() {
+        return transactionMaxDelayNanos;
+    }
+}
@@ -0,0 +1,310 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs the queries of multiple shards in parallel and merges their rows into a single stream while they are consumed.
+ * <br><br>
+ * Every query runs on a task of the executor, which hands the mapped rows over to the consuming thread in batches through a bounded queue, so
+ * producers that are ahead of the consumer block instead of materializing their whole result. Closing the stream stops the producers and
+ * waits for them to release their statements and connections.
+ */
+final class ShardMerger<T> {
+
+    /**
+     * Opens the stream of the rows of a single shard
+     */
+    @FunctionalInterface
+    interface Source<T> {
+
+        @NotNull Stream<T> open() throws SQLException;
+    }
+
+    private static final int BATCH_SIZE = 64;
+    private static final int QUEUE_CAPACITY = 16;
+    private static final long OFFER_TIMEOUT_MILLIS = 10;
+
+    @NotNull
+    private final List<@NotNull BlockingQueue<@NotNull Batch>> queues;
+    @NotNull
+    private final CountDownLatch finished;
+    private volatile boolean closed = false;
+
+    private ShardMerger(@NotNull List<@NotNull BlockingQueue<@NotNull Batch>> queues, int producers) {
+        this.queues = queues;
+        this.finished = new CountDownLatch(producers);
+    }
+
+    /**
+     * Merges the rows in the order in which they arrive from the shards
+     */
+    static <T> @NotNull Stream<T> unordered(@NotNull List<@NotNull Source<T>> sources, @NotNull Executor executor) {
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY * sources.size());
+        List<BlockingQueue<Batch>> queues = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            queues.add(queue);
+        }
+        ShardMerger<T> merger = new ShardMerger<>(queues, sources.size());
+        merger.start(sources, executor);
+        return merger.stream(merger.new Unordered(sources.size()));
+    }
+
+    /**
+     * Merges the rows of the shards, which must each be sorted by the comparator, so that the merged rows are sorted as well. Rows that compare
+     * equal are ordered by the index of their shard
+     */
+    static <T> @NotNull Stream<T> ordered(@NotNull List<@NotNull Source<T>> sources, @NotNull Comparator<? super T> comparator,
+                                          @NotNull Executor executor) {
+        List<BlockingQueue<Batch>> queues = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            queues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+        }
+        ShardMerger<T> merger = new ShardMerger<>(queues, sources.size());
+        merger.start(sources, executor);
+        return merger.stream(merger.new Ordered(comparator));
+    }
+
+    private void start(@NotNull List<@NotNull Source<T>> sources, @NotNull Executor executor) {
+        for (int shard = 0; shard < sources.size(); shard++) {
+            Source<T> source = sources.get(shard);
+            BlockingQueue<Batch> queue = queues.get(shard);
+            int index = shard;
+            try {
+                executor.execute(() -> produce(index, source, queue));
+            } catch (RejectedExecutionException e) {
+                // Tasks that have already been started see that they have been closed and release their connections
+                for (int i = shard; i < sources.size(); i++) {
+                    finished.countDown();
+                }
+                close();
+                throw e;
+            }
+        }
+    }
+
+    private @NotNull Stream<T> stream(@NotNull Spliterator<T> spliterator) {
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    private void produce(int shard, @NotNull Source<T> source, @NotNull BlockingQueue<@NotNull Batch> queue) {
+        try {
+            if (closed) {
+                return;
+            }
+            Object[] rows = new Object[BATCH_SIZE];
+            int count = 0;
+            try (Stream<T> stream = source.open()) {
+                Iterator<T> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    rows[count++] = iterator.next();
+                    if (count == BATCH_SIZE) {
+                        if (!offer(queue, new Batch(shard, rows, count, false, null))) {
+                            return;
+                        }
+                        rows = new Object[BATCH_SIZE];
+                        count = 0;
+                    }
+                }
+            } catch (Throwable t) {
+                offer(queue, new Batch(shard, rows, 0, true, t));
+                return;
+            }
+            // The last batch is only handed over once the stream has been closed, so failures while closing it are not lost
+            offer(queue, new Batch(shard, rows, count, true, null));
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private boolean offer(@NotNull BlockingQueue<@NotNull Batch> queue, @NotNull Batch batch) {
+        try {
+            while (!closed) {
+                if (queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private @NotNull Batch take(@NotNull BlockingQueue<@NotNull Batch> queue) {
+        Batch batch;
+        try {
+            batch = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedSQLException(new SQLException("The query has been interrupted", e));
+        }
+        if (batch.failure != null) {
+            Throwable failure = batch.failure;
+            if (failure instanceof SQLException) {
+                throw new UncheckedSQLException((SQLException) failure);
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalStateException("The query of shard " + batch.shard + " failed", failure);
+        }
+        return batch;
+    }
+
+    private void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        for (BlockingQueue<Batch> queue : queues) {
+            queue.clear();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Unordered extends Spliterators.AbstractSpliterator<T> {
+
+        private int remaining;
+        @Nullable
+        private Batch current;
+        private int index;
+
+        private Unordered(int shards) {
+            super(Long.MAX_VALUE, 0);
+            this.remaining = shards;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(@NotNull Consumer<? super T> action) {
+            while (true) {
+                if (current != null && index < current.count) {
+                    action.accept((T) current.rows[index++]);
+                    return true;
+                }
+                if (remaining == 0) {
+                    return false;
+                }
+                current = take(queues.get(0));
+                index = 0;
+                if (current.last) {
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    private final class Ordered extends Spliterators.AbstractSpliterator<T> {
+
+        @NotNull
+        private final Batch[] current;
+        @NotNull
+        private final int[] index;
+        /**
+         * The shards that have rows left, ordered by their next row
+         */
+        @NotNull
+        private final PriorityQueue<@NotNull Integer> heads;
+        private boolean started = false;
+
+        private Ordered(@NotNull Comparator<? super T> comparator) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.current = new Batch[queues.size()];
+            this.index = new int[queues.size()];
+            this.heads = new PriorityQueue<>(Math.max(1, queues.size()), (a, b) -> {
+                int result = comparator.compare(head(a), head(b));
+                return result != 0 ? result : Integer.compare(a, b);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private T head(int shard) {
+            return (T) current[shard].rows[index[shard]];
+        }
+
+        /**
+         * Makes sure the current batch of the shard has a row left
+         *
+         * @return <code>false</code> if the shard has no rows left
+         */
+        private boolean advance(int shard) {
+            while (current[shard] == null || index[shard] == current[shard].count) {
+                if (current[shard] != null && current[shard].last) {
+                    return false;
+                }
+                current[shard] = take(queues.get(shard));
+                index[shard] = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(@NotNull Consumer<? super T> action) {
+            if (!started) {
+                started = true;
+                for (int shard = 0; shard < queues.size(); shard++) {
+                    if (advance(shard)) {
+                        heads.add(shard);
+                    }
+                }
+            }
+            Integer shard = heads.poll();
+            if (shard == null) {
+                return false;
+            }
+            T row = head(shard);
+            index[shard]++;
+            if (advance(shard)) {
+                heads.add(shard);
+            }
+            action.accept(row);
+            return true;
+        }
+    }
+
+    private static final class Batch {
+
+        private final int shard;
+        @NotNull
+        private final Object[] rows;
+        private final int count;
+        private final boolean last;
+        @Nullable
+        private final Throwable failure;
+
+        private Batch(int shard, @NotNull Object[] rows, int count, boolean last, @Nullable Throwable failure) {
+            this.shard = shard;
+            this.rows = rows;
+            this.count = count;
+            this.last = last;
+            this.failure = failure;
+        }
+    }
+}
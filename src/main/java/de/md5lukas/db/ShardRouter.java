@@ -0,0 +1,85 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decides which shard of a {@link ShardedSQLiteHelper} stores the rows with a key.
+ * <br><br>
+ * Routers must be deterministic across restarts of the application, because the rows would no longer be found otherwise. Integral numbers
+ * are routed by their value regardless of their type, so an <code>int</code> and a <code>long</code> key with the same value end up on the
+ * same shard.
+ */
+@FunctionalInterface
+public interface ShardRouter {
+
+    /**
+     * Returns the shard of the key
+     *
+     * @param key        The key, which is never null
+     * @param shardCount The amount of shards
+     * @return The index of the shard between <code>0</code> and <code>shardCount - 1</code>
+     */
+    int shardOf(@NotNull Object key, int shardCount);
+
+    /**
+     * Returns a router that distributes the keys evenly by hashing them. Integral numbers are hashed by their value, byte arrays by their contents
+     * and all other keys by {@link Object#hashCode()}, so only keys with a hash code that is stable across restarts, like strings, should be used
+     *
+     * @return A hashing router
+     */
+    static @NotNull ShardRouter hash() {
+        return (key, shardCount) -> {
+            long hash;
+            if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+                hash = ((Number) key).longValue();
+            } else if (key instanceof byte[]) {
+                hash = Arrays.hashCode((byte[]) key);
+            } else {
+                hash = key.hashCode();
+            }
+            // The finalizer of MurmurHash3 spreads sequential keys across all shards
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return (int) Math.floorMod(hash, (long) shardCount);
+        };
+    }
+
+    /**
+     * Returns a router that assigns contiguous ranges of keys to the shards. Shard <code>i</code> stores the keys that are less than the
+     * bound at index <code>i</code> and not less than the previous bound, while the last shard stores all keys from the last bound on, so there
+     * must be one bound less than there are shards
+     *
+     * @param upperBounds The exclusive upper bounds of all shards but the last one in ascending order
+     * @return A range router
+     * @throws NullPointerException     If the bounds or a bound is null
+     * @throws IllegalArgumentException If there are no bounds or they are not strictly ascending
+     */
+    static @NotNull ShardRouter range(@NotNull Comparable<?>... upperBounds) {
+        Validator.checkNotNull(upperBounds, "The bounds cannot be null");
+        Validator.checkArgument(upperBounds.length > 0, "At least one bound is required");
+        List<Object> bounds = new ArrayList<>(upperBounds.length);
+        for (Comparable<?> bound : upperBounds) {
+            Validator.checkNotNull(bound, "A bound cannot be null");
+            Validator.checkArgument(bounds.isEmpty() || ShardedSQLiteHelper.compareKeys(bounds.get(bounds.size() - 1), bound) < 0,
+                    "The bounds must be strictly ascending, but %s follows %s", bound, bounds.isEmpty() ? null : bounds.get(bounds.size() - 1));
+            bounds.add(bound);
+        }
+        List<Object> sorted = Collections.unmodifiableList(bounds);
+        return (key, shardCount) -> {
+            if (shardCount != sorted.size() + 1) {
+                throw new IllegalStateException(String.format("The router has %d ranges, but there are %d shards", sorted.size() + 1, shardCount));
+            }
+            int index = Collections.binarySearch(sorted, key, ShardedSQLiteHelper::compareKeys);
+            // Keys equal to a bound belong to the next shard
+            return index >= 0 ? index + 1 : -index - 1;
+        };
+    }
+}
@@ -0,0 +1,437 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Spreads the rows of the database across multiple SQLite files, the shards, which are each managed by their own {@link SQLiteHelper}.
+ * Because every shard has its own writer connection, writes to different shards run in parallel, and the shards can be placed on different disks.
+ * <br><br>
+ * Every row belongs to the shard chosen by the {@link ShardRouter} for the value of the key parameter, which has the same name in all statements.
+ * Statements that bind the key parameter are executed on its shard only, while queries without it are executed on all shards in parallel and
+ * their rows are merged into a single stream. All shards must have the same schema, which can be created with
+ * {@link #executeUpdateAll(String, Map)}.
+ * <br><br>
+ * Example:<br>
+ * <pre><code>
+ * ShardedSQLiteHelper helper = new ShardedSQLiteHelper(Arrays.asList(new File("users-0.db"), new File("users-1.db")), "id");
+ * helper.executeUpdate("INSERT INTO users (id, name) VALUES (:id, :name)", parameters);
+ * try (Stream&lt;String&gt; names = helper.query("SELECT name FROM users ORDER BY name", Collections.emptyMap(),
+ *         resultSet -&gt; resultSet.getString(1), Comparator.naturalOrder())) {
+ *     ...
+ * }
+ * </code></pre>
+ */
+public final class ShardedSQLiteHelper {
+
+    @NotNull
+    private final List<@NotNull SQLiteHelper> shards;
+    @NotNull
+    private final String keyParameter;
+    @NotNull
+    private final ShardRouter router;
+    @NotNull
+    private final Executor executor;
+    /**
+     * The executor that has been created by this instance and is shut down once it is closed
+     */
+    @Nullable
+    private final ExecutorService ownedExecutor;
+
+    /**
+     * Creates a new sharded helper with a shard for every file, which uses the default options, routes the keys by their hash and runs the queries
+     * of the shards on threads that are created on demand
+     *
+     * @param files        The files of the shards
+     * @param keyParameter The name of the parameter that contains the key of the rows
+     * @throws IllegalStateException    If a SQLite driver is not available
+     * @throws NullPointerException     If the files, a file or the name of the key parameter is null
+     * @throws IllegalArgumentException If there are no files
+     */
+    public ShardedSQLiteHelper(@NotNull List<@NotNull File> files, @NotNull String keyParameter) {
+        this(files, new SQLiteOptions(), keyParameter, ShardRouter.hash(), null);
+    }
+
+    /**
+     * Creates a new sharded helper with a shard for every file, which all use the same options
+     *
+     * @param files        The files of the shards
+     * @param options      The options of the shards, which must not contain a query cache, because the cached results of the shards would collide
+     * @param keyParameter The name of the parameter that contains the key of the rows
+     * @param router       The router that chooses the shard of a key
+     * @param executor     The executor that runs the queries of the shards in parallel, or <code>null</code> to create threads on demand
+     * @throws IllegalStateException    If a SQLite driver is not available
+     * @throws NullPointerException     If the files, a file, the options, the name of the key parameter or the router is null
+     * @throws IllegalArgumentException If there are no files or the options contain a query cache
+     * @see #ShardedSQLiteHelper(List, String, ShardRouter, Executor)
+     */
+    public ShardedSQLiteHelper(@NotNull List<@NotNull File> files, @NotNull SQLiteOptions options, @NotNull String keyParameter,
+                               @NotNull ShardRouter router, @Nullable Executor executor) {
+        this(createShards(files, options), keyParameter, router, executor);
+    }
+
+    /**
+     * Creates a new sharded helper for the helpers of the shards, which may use different options. The helpers are closed once this instance is
+     * closed.
+     * <br><br>
+     * Ordered queries wait for the first rows of every shard before returning any row, so the executor must be able to run a task for every shard
+     * at the same time, like a cached thread pool, because the queries would wait for each other forever otherwise
+     *
+     * @param shards       The helpers of the shards in the order of their index
+     * @param keyParameter The name of the parameter that contains the key of the rows
+     * @param router       The router that chooses the shard of a key
+     * @param executor     The executor that runs the queries of the shards in parallel, or <code>null</code> to create threads on demand
+     * @throws NullPointerException     If the shards, a shard, the name of the key parameter or the router is null
+     * @throws IllegalArgumentException If there are no shards
+     */
+    public ShardedSQLiteHelper(@NotNull List<@NotNull SQLiteHelper> shards, @NotNull String keyParameter, @NotNull ShardRouter router,
+                               @Nullable Executor executor) {
+        Validator.checkNotNull(shards, "The shards cannot be null");
+        Validator.checkArgument(!shards.isEmpty(), "At least one shard is required");
+        for (SQLiteHelper shard : shards) {
+            Validator.checkNotNull(shard, "A shard cannot be null");
+        }
+        Validator.checkNotNull(keyParameter, "The name of the key parameter cannot be null");
+        Validator.checkNotNull(router, "The router cannot be null");
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.keyParameter = keyParameter;
+        this.router = router;
+        if (executor == null) {
+            AtomicInteger workerNumber = new AtomicInteger();
+            this.ownedExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "SQLiteHelper shard worker " + workerNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    private static @NotNull List<@NotNull SQLiteHelper> createShards(@NotNull List<@NotNull File> files, @NotNull SQLiteOptions options) {
+        Validator.checkNotNull(files, "The files cannot be null");
+        Validator.checkNotNull(options, "The options cannot be null");
+        Validator.checkArgument(options.getQueryCache() == null, "The query cache cannot be shared by the shards");
+        List<SQLiteHelper> shards = new ArrayList<>(files.size());
+        for (File file : files) {
+            shards.add(new SQLiteHelper(file, options));
+        }
+        return shards;
+    }
+
+    /**
+     * Compares two keys of a range router. Integral numbers are compared by their value regardless of their type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compareKeys(@NotNull Object a, @NotNull Object b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static boolean isIntegral(@NotNull Object o) {
+        return o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte;
+    }
+
+    /**
+     * @return The amount of shards
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return The helpers of all shards in the order of their index
+     */
+    public @NotNull List<@NotNull SQLiteHelper> getShards() {
+        return shards;
+    }
+
+    /**
+     * @return The name of the parameter that contains the key of the rows
+     */
+    public @NotNull String getKeyParameter() {
+        return keyParameter;
+    }
+
+    /**
+     * Returns the index of the shard that stores the rows with the key
+     *
+     * @param key The key
+     * @return The index of the shard
+     * @throws NullPointerException  If the key is null
+     * @throws IllegalStateException If the router returns an invalid index
+     */
+    public int shardOf(@NotNull Object key) {
+        Validator.checkNotNull(key, "The key cannot be null");
+        int shard = router.shardOf(key, shards.size());
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalStateException(String.format("The router returned the shard %d for the key %s, but there are %d shards", shard, key, shards.size()));
+        }
+        return shard;
+    }
+
+    /**
+     * Returns the helper of the shard that stores the rows with the key, which can be used like an unsharded database for all work concerning
+     * these rows, like transactions or cached queries
+     *
+     * @param key The key
+     * @return The helper of the shard
+     * @throws NullPointerException  If the key is null
+     * @throws IllegalStateException If the router returns an invalid index
+     */
+    public @NotNull SQLiteHelper shardFor(@NotNull Object key) {
+        return shards.get(shardOf(key));
+    }
+
+    private @NotNull SQLiteHelper route(@NotNull Map<@NotNull String, ?> parameters) {
+        Validator.checkNotNull(parameters, "The parameters cannot be null");
+        Validator.checkArgument(parameters.containsKey(keyParameter), "The parameters do not contain the key parameter %s", keyParameter);
+        Object key = parameters.get(keyParameter);
+        Validator.checkNotNull(key, "The key cannot be null");
+        Validator.checkArgument(!(key instanceof Collection), "Only queries can be routed by a collection of keys");
+        return shardFor(key);
+    }
+
+    /**
+     * Executes the update on the shard of the value of the key parameter. The keys of the map are the names of the parameters
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters, which must contain the key parameter
+     * @return The update count
+     * @throws SQLException             If a database access error occurs
+     * @throws NullPointerException     If the SQL string, the parameters or the key are null
+     * @throws IllegalArgumentException If the key parameter is missing or a name has not been registered
+     */
+    public int executeUpdate(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters) throws SQLException {
+        return executeUpdate(route(parameters), sql, parameters);
+    }
+
+    private static int executeUpdate(@NotNull SQLiteHelper shard, @NotNull String sql, @NotNull Map<@NotNull String, ?> parameters) throws SQLException {
+        NamedPreparedStatement statement = shard.leaseStatement(sql);
+        try {
+            for (Map.Entry<String, ?> entry : parameters.entrySet()) {
+                statement.setObject(entry.getKey(), entry.getValue());
+            }
+            return statement.executeUpdate();
+        } finally {
+            shard.releaseStatement(statement);
+        }
+    }
+
+    /**
+     * Executes the update on all shards in parallel, like statements that create or migrate the schema or that update rows regardless of
+     * their key. Every shard executes the update in its own transaction, so if it fails on one shard, it may have been executed on others
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters
+     * @return The sum of the update counts of all shards
+     * @throws SQLException             If a database access error occurs on any shard
+     * @throws NullPointerException     If the SQL string or the parameters are null
+     * @throws IllegalArgumentException If a name has not been registered
+     */
+    public int executeUpdateAll(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters) throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        Validator.checkNotNull(parameters, "The parameters cannot be null");
+        List<CompletableFuture<Integer>> updates = new ArrayList<>(shards.size());
+        for (SQLiteHelper shard : shards) {
+            updates.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return executeUpdate(shard, sql, parameters);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        int count = 0;
+        SQLException failure = null;
+        for (CompletableFuture<Integer> update : updates) {
+            try {
+                count += update.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    if (failure == null) {
+                        failure = (SQLException) cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else {
+                    throw e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return count;
+    }
+
+    /**
+     * Submits a write to the asynchronous write pipeline of the shard of the value of the key parameter
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters, which must contain the key parameter
+     * @return A future that is completed once the write has been committed
+     * @throws SQLException             If a database access error occurs while opening the connections
+     * @throws NullPointerException     If the SQL string, the parameters or the key are null
+     * @throws IllegalArgumentException If the key parameter is missing
+     * @throws IllegalStateException    If the write pipeline has not been enabled
+     * @see SQLiteHelper#submitWrite(String, Map)
+     */
+    public @NotNull CompletableFuture<Integer> submitWrite(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters) throws SQLException {
+        return route(parameters).submitWrite(sql, parameters);
+    }
+
+    /**
+     * Runs the callback inside a transaction on the shard that stores the rows with the key
+     *
+     * @param key      The key
+     * @param callback The work to do inside the transaction
+     * @param <T>      The type of the result
+     * @return The result of the callback
+     * @throws SQLException         If a database access error occurs or the database is still busy after the last retry
+     * @throws NullPointerException If the key or the callback is null
+     * @see SQLiteHelper#inTransaction(TransactionCallback)
+     */
+    public <T> T inTransaction(@NotNull Object key, @NotNull TransactionCallback<T> callback) throws SQLException {
+        return shardFor(key).inTransaction(callback);
+    }
+
+    /**
+     * Executes the query and returns a stream of the mapped rows in no particular order.
+     * <br><br>
+     * If the parameters contain the key parameter, the query is only executed on its shard. If its value is a collection, the keys are grouped
+     * by their shard and the query is executed on every shard with only its own keys. Otherwise the query is executed on all shards.
+     * The rows of multiple shards are handed over to the consuming thread in batches while the queries run in parallel on the executor.
+     * <br><br>
+     * The statements and connections are leased until the stream is closed, so the stream must be used in a try-with-resources block.
+     *
+     * @param sql        The SQL string with named parameters
+     * @param parameters The values of the named parameters
+     * @param mapper     The mapper that maps every row, which may be called by multiple threads at the same time
+     * @param <T>        The type of the mapped rows
+     * @return A stream of the mapped rows
+     * @throws SQLException             If a database access error occurs on a single shard, while failures of multiple shards are thrown by the
+     *                                  stream as {@link UncheckedSQLException}s
+     * @throws NullPointerException     If the SQL string, the parameters, the mapper or the key are null
+     * @throws IllegalArgumentException If a name has not been registered
+     * @see SQLiteHelper#query(String, Map, RowMapper)
+     */
+    public <T> @NotNull Stream<T> query(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters, @NotNull RowMapper<? extends T> mapper)
+            throws SQLException {
+        return query(sql, parameters, mapper, null);
+    }
+
+    /**
+     * Executes the query like {@link #query(String, Map, RowMapper)}, but merges the rows of multiple shards so that they are sorted by the
+     * comparator. The query must sort the rows of every shard in the same order, usually with an <code>ORDER BY</code> clause matching the
+     * comparator, and the merged stream only buffers a few rows per shard.
+     * <br><br>
+     * The first row is only returned once every shard has returned its first row
+     *
+     * @param sql        The SQL string with named parameters and an <code>ORDER BY</code> clause
+     * @param parameters The values of the named parameters
+     * @param mapper     The mapper that maps every row, which may be called by multiple threads at the same time
+     * @param comparator The order of the rows of every shard, or <code>null</code> to merge the rows in no particular order
+     * @param <T>        The type of the mapped rows
+     * @return A stream of the mapped rows
+     * @throws SQLException             If a database access error occurs on a single shard, while failures of multiple shards are thrown by the
+     *                                  stream as {@link UncheckedSQLException}s
+     * @throws NullPointerException     If the SQL string, the parameters, the mapper or the key are null
+     * @throws IllegalArgumentException If a name has not been registered
+     */
+    public <T> @NotNull Stream<T> query(@NotNull String sql, @NotNull Map<@NotNull String, ?> parameters, @NotNull RowMapper<? extends T> mapper,
+                                        @Nullable Comparator<? super T> comparator) throws SQLException {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        Validator.checkNotNull(parameters, "The parameters cannot be null");
+        Validator.checkNotNull(mapper, "The row mapper cannot be null");
+
+        Map<Integer, Map<String, ?>> targets = targetsOf(parameters);
+        if (targets.size() == 1) {
+            Map.Entry<Integer, Map<String, ?>> target = targets.entrySet().iterator().next();
+            return shards.get(target.getKey()).query(sql, target.getValue(), mapper);
+        }
+        List<ShardMerger.Source<T>> sources = new ArrayList<>(targets.size());
+        for (Map.Entry<Integer, Map<String, ?>> target : targets.entrySet()) {
+            SQLiteHelper shard = shards.get(target.getKey());
+            Map<String, ?> shardParameters = target.getValue();
+            sources.add(() -> shard.query(sql, shardParameters, mapper));
+        }
+        return comparator == null ? ShardMerger.unordered(sources, executor) : ShardMerger.ordered(sources, comparator, executor);
+    }
+
+    /**
+     * Determines the shards a query has to be executed on together with their parameters
+     *
+     * @return The parameters of every shard by its index in ascending order
+     */
+    private @NotNull Map<@NotNull Integer, @NotNull Map<@NotNull String, ?>> targetsOf(@NotNull Map<@NotNull String, ?> parameters) {
+        Map<Integer, Map<String, ?>> targets = new LinkedHashMap<>();
+        Object key = parameters.get(keyParameter);
+        if (!parameters.containsKey(keyParameter)) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                targets.put(shard, parameters);
+            }
+        } else if (key instanceof Collection) {
+            Map<Integer, List<Object>> keys = new HashMap<>();
+            for (Object element : (Collection<?>) key) {
+                keys.computeIfAbsent(shardOf(element), shard -> new ArrayList<>()).add(element);
+            }
+            if (keys.isEmpty()) {
+                // An empty IN list matches no rows on any shard, so a single one is enough
+                targets.put(0, parameters);
+            }
+            for (int shard = 0; shard < shards.size(); shard++) {
+                List<Object> shardKeys = keys.get(shard);
+                if (shardKeys != null) {
+                    Map<String, Object> shardParameters = new HashMap<>(parameters);
+                    shardParameters.put(keyParameter, shardKeys);
+                    targets.put(shard, shardParameters);
+                }
+            }
+        } else {
+            Validator.checkNotNull(key, "The key cannot be null");
+            targets.put(shardOf(key), parameters);
+        }
+        return targets;
+    }
+
+    /**
+     * Closes the helpers of all shards and stops the threads that have been created for the queries
+     *
+     * @see SQLiteHelper#close()
+     */
+    public void close() {
+        for (SQLiteHelper shard : shards) {
+            shard.close();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
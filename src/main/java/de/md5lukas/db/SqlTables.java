@@ -0,0 +1,223 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Extracts the names of the tables a SQL statement reads from or writes to, which is used to invalidate cached query results.
+ * <br><br>
+ * The extraction is a lightweight scan of the tokens of the statement and not a full parser. Literals and comments are skipped, quoted
+ * identifiers are unquoted and schema names are removed. All table names are returned in lower case, because SQLite compares them
+ * case-insensitively.
+ */
+final class SqlTables {
+
+    /**
+     * Returned by {@link #written(String)} for write statements whose tables could not be determined
+     */
+    @NotNull
+    static final String[] ALL = new String[0];
+
+    private SqlTables() {
+    }
+
+    /**
+     * @param sql The SQL string
+     * @return The tables that follow a <code>FROM</code> or <code>JOIN</code> keyword
+     */
+    static @NotNull String[] read(@NotNull String sql) {
+        List<String> tokens = tokenize(sql);
+        Set<String> tables = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("FROM") || token.equals("JOIN")) {
+                i = readTableList(tokens, i + 1, tables, token.equals("FROM"));
+            }
+        }
+        return tables.toArray(new String[0]);
+    }
+
+    /**
+     * @param sql The SQL string
+     * @return The tables the statement writes to, {@link #ALL} if it writes to unknown tables or <code>null</code> if it does not write
+     */
+    static @Nullable String[] written(@NotNull String sql) {
+        List<String> tokens = tokenize(sql);
+        boolean write = false;
+        Set<String> tables = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String previous = i > 0 ? tokens.get(i - 1) : "";
+            String next = i + 1 < tokens.size() ? tokens.get(i + 1) : "";
+            switch (tokens.get(i)) {
+                case "INSERT":
+                    write = true;
+                    break;
+                case "REPLACE":
+                    // Otherwise this is the replace() function or a conflict resolution
+                    write |= next.equals("INTO");
+                    break;
+                case "DROP":
+                case "ALTER":
+                    write |= next.equals("TABLE");
+                    break;
+                case "INTO":
+                case "TABLE":
+                    if (write) {
+                        addTable(tokens, skip(tokens, i + 1, "IF", "NOT", "EXISTS"), tables);
+                    }
+                    break;
+                case "UPDATE":
+                    // Skip the ON UPDATE actions of foreign keys and the DO UPDATE clause of upserts, which only write to the table of the insert
+                    if (!previous.equals("ON") && !previous.equals("DO")) {
+                        write = true;
+                        addTable(tokens, skip(tokens, i + 1, "OR", "ROLLBACK", "ABORT", "REPLACE", "FAIL", "IGNORE"), tables);
+                    }
+                    break;
+                case "DELETE":
+                    if (!previous.equals("ON")) {
+                        write = true;
+                        if (next.equals("FROM")) {
+                            addTable(tokens, i + 2, tables);
+                            i++;
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!write) {
+            return null;
+        }
+        return tables.isEmpty() ? ALL : tables.toArray(new String[0]);
+    }
+
+    /**
+     * Reads a comma separated list of tables, where every table may be followed by an alias
+     *
+     * @return The index of the last consumed token
+     */
+    private static int readTableList(@NotNull List<@NotNull String> tokens, int index, @NotNull Set<@NotNull String> tables, boolean list) {
+        while (index < tokens.size()) {
+            if (tokens.get(index).equals("(")) {
+                // A subquery, whose tables are found by the outer loop
+                return index;
+            }
+            int next = addTable(tokens, index, tables);
+            if (!list) {
+                return next - 1;
+            }
+            // Skip the alias and everything else up to the next table of the list
+            while (next < tokens.size() && !tokens.get(next).equals(",") && isIdentifier(tokens.get(next)) && !isClause(tokens.get(next))) {
+                next++;
+            }
+            if (next >= tokens.size() || !tokens.get(next).equals(",")) {
+                return next - 1;
+            }
+            index = next + 1;
+        }
+        return index;
+    }
+
+    /**
+     * Adds the possibly schema qualified table name at the index
+     *
+     * @return The index after the table name
+     */
+    private static int addTable(@NotNull List<@NotNull String> tokens, int index, @NotNull Set<@NotNull String> tables) {
+        if (index >= tokens.size() || !isIdentifier(tokens.get(index))) {
+            return index;
+        }
+        String name = tokens.get(index++);
+        while (index + 1 < tokens.size() && tokens.get(index).equals(".") && isIdentifier(tokens.get(index + 1))) {
+            name = tokens.get(index + 1);
+            index += 2;
+        }
+        tables.add(name.toLowerCase(Locale.ROOT));
+        return index;
+    }
+
+    private static int skip(@NotNull List<@NotNull String> tokens, int index, @NotNull String... keywords) {
+        outer:
+        while (index < tokens.size()) {
+            for (String keyword : keywords) {
+                if (tokens.get(index).equals(keyword)) {
+                    index++;
+                    continue outer;
+                }
+            }
+            break;
+        }
+        return index;
+    }
+
+    private static boolean isIdentifier(@NotNull String token) {
+        return token.length() > 1 || Character.isJavaIdentifierPart(token.charAt(0));
+    }
+
+    private static boolean isClause(@NotNull String token) {
+        switch (token) {
+            case "WHERE":
+            case "JOIN":
+            case "INNER":
+            case "LEFT":
+            case "RIGHT":
+            case "FULL":
+            case "CROSS":
+            case "NATURAL":
+            case "ON":
+            case "USING":
+            case "GROUP":
+            case "ORDER":
+            case "LIMIT":
+            case "UNION":
+            case "EXCEPT":
+            case "INTERSECT":
+            case "WINDOW":
+            case "HAVING":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Splits the SQL string into upper case words, unquoted identifiers and single character symbols, skipping whitespace, literals and comments
+     * with the lexical rules of the {@link NamedParameterScanner}. Quoted identifiers keep their case, so they are never confused with keywords
+     * unless they are written in upper case
+     */
+    private static @NotNull List<@NotNull String> tokenize(@NotNull String sql) {
+        List<String> tokens = new ArrayList<>();
+        char[] chars = sql.toCharArray();
+        int index = 0;
+        while (index < chars.length) {
+            char c = chars[index];
+            int end = NamedParameterScanner.skipLexeme(chars, index);
+            if (end != index) {
+                if (c == '"' || c == '`' || c == '[') {
+                    char close = c == '[' ? ']' : c;
+                    tokens.add(sql.substring(index + 1, Math.max(index + 1, end - 1)).replace(String.valueOf(close) + close, String.valueOf(close)));
+                }
+                index = end;
+            } else if (Character.isWhitespace(c)) {
+                index++;
+            } else if (Character.isJavaIdentifierPart(c)) {
+                int start = index;
+                while (index < chars.length && Character.isJavaIdentifierPart(chars[index])) {
+                    index++;
+                }
+                tokens.add(sql.substring(start, index).toUpperCase(Locale.ROOT));
+            } else {
+                tokens.add(String.valueOf(c));
+                index++;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,23 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+
+/**
+ * Functional interface that sets the parameters of a {@link NamedPreparedStatement} using the values of a row
+ *
+ * @param <T> The type of the row
+ */
+@FunctionalInterface
+public interface StatementBinder<T> {
+
+    /**
+     * Sets the parameters of the statement to the values of the row
+     *
+     * @param statement The statement to set the parameters on
+     * @param row       The row containing the values
+     * @throws SQLException If a database error occurs or the PreparedStatement has been closed
+     */
+    void bind(@NotNull NamedPreparedStatement statement, T row) throws SQLException;
+}
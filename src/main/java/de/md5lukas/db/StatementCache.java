@@ -0,0 +1,193 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of idle {@link NamedPreparedStatement}s for a single connection, keyed by the SQL string they have been created with and how it has
+ * been expanded.
+ * <br><br>
+ * A leased statement is removed from the cache until it is released again, so a statement is never used by two callers at the same time.
+ * If the cache is full, the least recently released statement is closed.
+ */
+final class StatementCache {
+
+    @NotNull
+    private final Connection connection;
+    @NotNull
+    private final NamedParameterParser parser;
+    private final int capacity;
+    @Nullable
+    private final StatementListener listener;
+    @Nullable
+    private final QueryCache queryCache;
+
+    @NotNull
+    private final Object cacheLock = new Object[0];
+    @NotNull
+    private final LinkedHashMap<@NotNull String, @NotNull NamedPreparedStatement> idle;
+    private boolean closed = false;
+
+    StatementCache(@NotNull Connection connection, @NotNull NamedParameterParser parser, int capacity, @Nullable StatementListener listener,
+                   @Nullable QueryCache queryCache) {
+        this.connection = connection;
+        this.parser = parser;
+        this.capacity = capacity;
+        this.listener = listener;
+        this.queryCache = queryCache;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns an idle statement for the SQL string or prepares a new one if none is available. New statements report to the listener of this cache
+     *
+     * @param sql The SQL string of the statement
+     * @return A statement that is exclusively leased to the caller
+     * @throws SQLException If a database error occurs or the connection has been closed
+     */
+    @NotNull NamedPreparedStatement lease(@NotNull String sql) throws SQLException {
+        synchronized (cacheLock) {
+            NamedPreparedStatement statement = idle.remove(sql);
+            if (statement != null) {
+                return statement;
+            }
+        }
+        NamedPreparedStatement statement;
+        if (listener == null) {
+            statement = parser.prepare(connection, sql);
+        } else {
+            long start = System.nanoTime();
+            statement = parser.prepare(connection, sql);
+            listener.onPrepare(statement.getParseResult(), System.nanoTime() - start);
+            statement.setListener(listener);
+        }
+        statement.setQueryCache(queryCache);
+        return statement;
+    }
+
+    /**
+     * Returns an idle statement for the already parsed SQL string, which may have been expanded, or prepares a new one if none is available
+     *
+     * @param parseResult The parse result of the statement
+     * @return A statement that is exclusively leased to the caller
+     * @throws SQLException If a database error occurs or the connection has been closed
+     */
+    @NotNull NamedPreparedStatement lease(@NotNull NamedParameterParseResult parseResult) throws SQLException {
+        synchronized (cacheLock) {
+            NamedPreparedStatement statement = idle.remove(parseResult.getCacheKey());
+            if (statement != null) {
+                return statement;
+            }
+        }
+        return create(parseResult);
+    }
+
+    /**
+     * Closes the idle statement for the parse result, if one is cached, and prepares a new one, so the statement is validated against the
+     * current schema of the database
+     *
+     * @param parseResult The parse result of the statement
+     * @return A newly prepared statement that is exclusively leased to the caller
+     * @throws SQLException If a database error occurs, the connection has been closed or the statement is not valid for the schema
+     */
+    @NotNull NamedPreparedStatement prepare(@NotNull NamedParameterParseResult parseResult) throws SQLException {
+        NamedPreparedStatement cached;
+        synchronized (cacheLock) {
+            cached = idle.remove(parseResult.getCacheKey());
+        }
+        if (cached != null) {
+            closeQuietly(cached);
+        }
+        return create(parseResult);
+    }
+
+    private @NotNull NamedPreparedStatement create(@NotNull NamedParameterParseResult parseResult) throws SQLException {
+        NamedPreparedStatement statement;
+        if (listener == null) {
+            statement = new NamedPreparedStatement(connection, parseResult);
+        } else {
+            long start = System.nanoTime();
+            statement = new NamedPreparedStatement(connection, parseResult);
+            listener.onPrepare(parseResult, System.nanoTime() - start);
+            statement.setListener(listener);
+        }
+        statement.setQueryCache(queryCache);
+        return statement;
+    }
+
+    /**
+     * Clears the parameters of the statement and puts it back into the cache. If the statement cannot be cached or belongs to a different connection,
+     * it is closed instead
+     *
+     * @param statement The previously leased statement
+     */
+    void release(@NotNull NamedPreparedStatement statement) {
+        try {
+            if (statement.isClosed()) {
+                return;
+            }
+            if (statement.getPreparedStatement().getConnection() != connection) {
+                statement.close();
+                return;
+            }
+            statement.clearParameters();
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+
+        NamedPreparedStatement rejected = statement;
+        synchronized (cacheLock) {
+            if (!closed && capacity > 0) {
+                rejected = idle.putIfAbsent(statement.getParseResult().getCacheKey(), statement);
+                if (rejected == null) {
+                    Iterator<Map.Entry<String, NamedPreparedStatement>> iterator = idle.entrySet().iterator();
+                    while (idle.size() > capacity) {
+                        NamedPreparedStatement evicted = iterator.next().getValue();
+                        iterator.remove();
+                        closeQuietly(evicted);
+                    }
+                } else {
+                    // Another statement for the same SQL string has been released first
+                    rejected = statement;
+                }
+            }
+        }
+        if (rejected != null) {
+            closeQuietly(rejected);
+        }
+    }
+
+    /**
+     * @return The amount of idle statements in the cache
+     */
+    int size() {
+        synchronized (cacheLock) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Closes all idle statements. Statements that are released afterwards are closed immediately
+     */
+    void close() {
+        synchronized (cacheLock) {
+            closed = true;
+            idle.values().forEach(StatementCache::closeQuietly);
+            idle.clear();
+        }
+    }
+
+    private static void closeQuietly(@NotNull NamedPreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A stable reference to a SQL template that has been registered with a {@link StatementRegistry}. The handle keeps the parse result of the
+ * template, so leasing a statement through it skips the lookup in the parser, and remembers whether the template could be prepared against the
+ * schema during the last warm-up.
+ *
+ * @see StatementRegistry#register(String, String)
+ */
+public final class StatementHandle {
+
+    @NotNull
+    private final StatementRegistry registry;
+    @Nullable
+    private final String name;
+    @NotNull
+    private final String sql;
+    /**
+     * Whether the statement writes to the database, so it is only prepared on the connection for writes
+     */
+    private final boolean write;
+    @Nullable
+    private volatile NamedParameterParseResult parseResult;
+    @Nullable
+    private volatile Exception failure;
+
+    StatementHandle(@NotNull StatementRegistry registry, @Nullable String name, @NotNull String sql) {
+        this.registry = registry;
+        this.name = name;
+        this.sql = sql;
+        this.write = SqlTables.written(sql) != null;
+    }
+
+    @NotNull StatementRegistry getRegistry() {
+        return registry;
+    }
+
+    boolean isWrite() {
+        return write;
+    }
+
+    /**
+     * @return The parse result, parsing the template with the parser if this has not been done yet
+     */
+    @NotNull NamedParameterParseResult parse(@NotNull NamedParameterParser parser) {
+        NamedParameterParseResult result = parseResult;
+        if (result == null) {
+            result = parser.parse(sql);
+            parseResult = result;
+        }
+        return result;
+    }
+
+    void fail(@Nullable Exception failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * @return The name of the template, or <code>null</code> if it has been registered without one
+     */
+    public @Nullable String getName() {
+        return name;
+    }
+
+    /**
+     * @return The SQL string of the template with named parameters
+     */
+    public @NotNull String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return <code>true</code> if the template has been parsed
+     */
+    public boolean isParsed() {
+        return parseResult != null;
+    }
+
+    /**
+     * Returns the exception that occurred while the template was prepared during the last warm-up, like a syntax error or a reference to a
+     * table or column that does not exist
+     *
+     * @return The exception or <code>null</code> if the template could be prepared or has not been warmed up yet
+     */
+    public @Nullable Exception getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? sql : name;
+    }
+}
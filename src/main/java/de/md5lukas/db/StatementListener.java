@@ -0,0 +1,54 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener that is notified about the phases of the lifecycle of a {@link NamedPreparedStatement}, keyed by the parse result of its SQL string.
+ * <br><br>
+ * All methods have empty default implementations, so implementations only have to override the phases they are interested in.
+ * The methods are called on the thread using the statement and should return quickly, because they are part of the measured code path.
+ * Implementations used by a {@link SQLiteHelper} must be thread-safe.
+ *
+ * @see StatementMetrics
+ * @see SQLiteOptions#statementListener(StatementListener)
+ */
+public interface StatementListener {
+
+    /**
+     * Called after a statement has been parsed and prepared
+     *
+     * @param parseResult The parse result of the statement
+     * @param nanos       The time in nanoseconds it took to parse and prepare the statement
+     */
+    default void onPrepare(@NotNull NamedParameterParseResult parseResult, long nanos) {
+    }
+
+    /**
+     * Called before a statement is executed or added to a batch with the time between setting the first parameter and the execution
+     *
+     * @param parseResult The parse result of the statement
+     * @param nanos       The time in nanoseconds it took to set the parameters
+     */
+    default void onBind(@NotNull NamedParameterParseResult parseResult, long nanos) {
+    }
+
+    /**
+     * Called after a statement has been executed
+     *
+     * @param parseResult The parse result of the statement
+     * @param nanos       The time in nanoseconds the execution took
+     * @param failed      <code>true</code> if the execution threw an exception
+     */
+    default void onExecute(@NotNull NamedParameterParseResult parseResult, long nanos, boolean failed) {
+    }
+
+    /**
+     * Called when a stream returned by {@link NamedPreparedStatement#stream(RowMapper)} is closed
+     *
+     * @param parseResult The parse result of the statement
+     * @param nanos       The time in nanoseconds spent advancing the result set and mapping the rows, excluding the time spent by the consumer
+     * @param rows        The amount of rows that have been fetched
+     */
+    default void onFetch(@NotNull NamedParameterParseResult parseResult, long nanos, long rows) {
+    }
+}
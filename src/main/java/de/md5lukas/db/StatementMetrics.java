@@ -0,0 +1,185 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link StatementListener} that records counters and latency histograms for every SQL string.
+ * <br><br>
+ * Recording is lock-free, so a single instance can be shared by all connections of a {@link SQLiteHelper}. Optionally executions that
+ * take at least a configurable threshold are reported as slow queries, either to a {@link SlowQueryListener} or, if none has been set,
+ * to the {@link Logger} of this class.
+ * <br><br>
+ * Example:<br>
+ * <pre><code>
+ * StatementMetrics metrics = new StatementMetrics().slowQueryThreshold(100, TimeUnit.MILLISECONDS);
+ * SQLiteHelper helper = new SQLiteHelper(file, new SQLiteOptions().statementListener(metrics));
+ * // ...
+ * metrics.snapshot().forEach(System.out::println);
+ * </code></pre>
+ */
+public final class StatementMetrics implements StatementListener {
+
+    /**
+     * Callback that is notified about executions that took at least the slow query threshold
+     */
+    @FunctionalInterface
+    public interface SlowQueryListener {
+
+        /**
+         * Called after a slow execution on the thread that executed the statement
+         *
+         * @param parseResult The parse result of the statement
+         * @param nanos       The time in nanoseconds the execution took
+         */
+        void onSlowQuery(@NotNull NamedParameterParseResult parseResult, long nanos);
+    }
+
+    @NotNull
+    private static final Logger LOGGER = Logger.getLogger(StatementMetrics.class.getName());
+
+    /**
+     * The metrics of a single SQL string
+     */
+    private static final class Recorder {
+
+        private final LatencyHistogram prepare = new LatencyHistogram(), bind = new LatencyHistogram(),
+                execute = new LatencyHistogram(), fetch = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder(), rows = new LongAdder(), slow = new LongAdder();
+    }
+
+    @NotNull
+    private final ConcurrentMap<@NotNull String, @NotNull Recorder> recorders = new ConcurrentHashMap<>();
+    private volatile long slowQueryThresholdNanos = Long.MAX_VALUE;
+    @Nullable
+    private volatile SlowQueryListener slowQueryListener;
+
+    /**
+     * Reports every execution that takes at least the provided threshold as a slow query
+     *
+     * @param threshold The minimum duration of a slow query
+     * @param unit      The unit of the threshold
+     * @return This instance for chaining
+     * @throws NullPointerException     If the unit is null
+     * @throws IllegalArgumentException If the threshold is negative
+     */
+    public @NotNull StatementMetrics slowQueryThreshold(long threshold, @NotNull TimeUnit unit) {
+        Validator.checkNotNull(unit, "The unit of the threshold cannot be null");
+        Validator.checkArgument(threshold >= 0, "The threshold cannot be negative, but is %d", threshold);
+        this.slowQueryThresholdNanos = unit.toNanos(threshold);
+        return this;
+    }
+
+    /**
+     * @return The minimum duration of a slow query in nanoseconds, or {@link Long#MAX_VALUE} if slow queries are not reported
+     */
+    public long getSlowQueryThresholdNanos() {
+        return slowQueryThresholdNanos;
+    }
+
+    /**
+     * Sets the callback that slow queries are reported to instead of the logger of this class
+     *
+     * @param slowQueryListener The callback or <code>null</code> to log slow queries
+     * @return This instance for chaining
+     * @see #slowQueryThreshold(long, TimeUnit)
+     */
+    public @NotNull StatementMetrics slowQueryListener(@Nullable SlowQueryListener slowQueryListener) {
+        this.slowQueryListener = slowQueryListener;
+        return this;
+    }
+
+    @Override
+    public void onPrepare(@NotNull NamedParameterParseResult parseResult, long nanos) {
+        recorderOf(parseResult).prepare.record(nanos);
+    }
+
+    @Override
+    public void onBind(@NotNull NamedParameterParseResult parseResult, long nanos) {
+        recorderOf(parseResult).bind.record(nanos);
+    }
+
+    @Override
+    public void onExecute(@NotNull NamedParameterParseResult parseResult, long nanos, boolean failed) {
+        Recorder recorder = recorderOf(parseResult);
+        recorder.execute.record(nanos);
+        if (failed) {
+            recorder.failures.increment();
+        }
+        if (nanos >= slowQueryThresholdNanos) {
+            recorder.slow.increment();
+            SlowQueryListener listener = slowQueryListener;
+            if (listener != null) {
+                listener.onSlowQuery(parseResult, nanos);
+            } else if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.log(Level.WARNING, "Slow statement took {0} ms: {1}",
+                        new Object[] { TimeUnit.NANOSECONDS.toMillis(nanos), parseResult.getSql() });
+            }
+        }
+    }
+
+    @Override
+    public void onFetch(@NotNull NamedParameterParseResult parseResult, long nanos, long rows) {
+        Recorder recorder = recorderOf(parseResult);
+        recorder.fetch.record(nanos);
+        recorder.rows.add(rows);
+    }
+
+    /**
+     * Returns the metrics of every SQL string that has been recorded, sorted by the total time spent executing it in descending order,
+     * so the most expensive statements come first
+     *
+     * @return A snapshot of the metrics of all SQL strings
+     */
+    public @NotNull List<@NotNull StatementStatistics> snapshot() {
+        List<StatementStatistics> statistics = new ArrayList<>(recorders.size());
+        recorders.forEach((sql, recorder) -> statistics.add(snapshot(sql, recorder)));
+        statistics.sort(Comparator.comparingLong((StatementStatistics s) -> s.getExecuteLatency().getTotalNanos()).reversed());
+        return statistics;
+    }
+
+    /**
+     * Returns the metrics of a single SQL string
+     *
+     * @param sql The SQL string with named parameters
+     * @return A snapshot of the metrics, or <code>null</code> if nothing has been recorded for the SQL string
+     * @throws NullPointerException If the SQL string is null
+     */
+    public @Nullable StatementStatistics snapshot(@NotNull String sql) {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        Recorder recorder = recorders.get(sql);
+        return recorder == null ? null : snapshot(sql, recorder);
+    }
+
+    /**
+     * Discards all metrics that have been recorded so far
+     */
+    public void reset() {
+        recorders.clear();
+    }
+
+    private static @NotNull StatementStatistics snapshot(@NotNull String sql, @NotNull Recorder recorder) {
+        return new StatementStatistics(sql, recorder.prepare.snapshot(), recorder.bind.snapshot(), recorder.execute.snapshot(),
+                recorder.fetch.snapshot(), recorder.failures.sum(), recorder.rows.sum(), recorder.slow.sum());
+    }
+
+    private @NotNull Recorder recorderOf(@NotNull NamedParameterParseResult parseResult) {
+        String sql = parseResult.getSql();
+        // Avoid the locking of computeIfAbsent on the common path
+        Recorder recorder = recorders.get(sql);
+        if (recorder == null) {
+            recorder = recorders.computeIfAbsent(sql, k -> new Recorder());
+        }
+        return recorder;
+    }
+}
@@ -0,0 +1,347 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Registry of the SQL templates an application uses, which parses them and prepares them on the connections of a {@link SQLiteHelper} in the
+ * background while the application starts, so the first requests do not pay for parsing and preparing their statements and templates
+ * referencing tables or columns that do not exist are reported before they are used.
+ * <br><br>
+ * Templates that write to the database are prepared on the connection returned by {@link SQLiteHelper#getConnection()} and all other
+ * templates on every connection of the reader pool, or on the same connection if no reader pool has been configured. The prepared statements
+ * are kept in the statement caches of the connections, so the caches should be large enough to hold all templates of a connection. The write
+ * pipeline uses the statements of the connection for writes as well.
+ * <br><br>
+ * Example:<br>
+ * <pre><code>
+ * StatementRegistry registry = helper.getStatementRegistry();
+ * StatementHandle findUser = registry.register("findUser", "SELECT name FROM users WHERE id = :id");
+ * registry.warmUp().join().throwIfFailed();
+ * try (Stream&lt;String&gt; names = registry.query(findUser, Collections.singletonMap("id", 1), resultSet -&gt; resultSet.getString(1))) {
+ *     ...
+ * }
+ * </code></pre>
+ *
+ * @see SQLiteHelper#getStatementRegistry()
+ */
+public final class StatementRegistry {
+
+    /**
+     * Prepares a new statement for a parse result on a connection, replacing the idle statement that may be cached for it
+     */
+    @FunctionalInterface
+    private interface StatementSource {
+
+        @NotNull NamedPreparedStatement prepare(@NotNull NamedParameterParseResult parseResult) throws SQLException;
+    }
+
+    @NotNull
+    private final SQLiteHelper helper;
+    @NotNull
+    private final SQLiteOptions options;
+
+    @NotNull
+    private final Object registryLock = new Object[0];
+    @NotNull
+    private final Map<@NotNull String, @NotNull StatementHandle> bySql = new LinkedHashMap<>();
+    @NotNull
+    private final Map<@NotNull String, @NotNull StatementHandle> byName = new HashMap<>();
+
+    StatementRegistry(@NotNull SQLiteHelper helper, @NotNull SQLiteOptions options) {
+        this.helper = helper;
+        this.options = options;
+    }
+
+    /**
+     * Registers a template without a name
+     *
+     * @param sql The SQL string with named parameters
+     * @return The handle of the template, which is the same for every registration of the SQL string
+     * @throws NullPointerException     If the SQL string is null
+     * @throws IllegalArgumentException If the SQL string has already been registered with a name
+     * @see #register(String, String)
+     */
+    public @NotNull StatementHandle register(@NotNull String sql) {
+        return register(null, sql);
+    }
+
+    /**
+     * Registers a template, which is parsed and prepared by the next warm-up. Registering the same SQL string again returns the existing handle
+     *
+     * @param name The name to look up the handle with, or <code>null</code>
+     * @param sql  The SQL string with named parameters
+     * @return The handle of the template
+     * @throws NullPointerException     If the SQL string is null
+     * @throws IllegalArgumentException If the name has already been used for a different SQL string or the SQL string has already been
+     *                                  registered with a different name
+     */
+    public @NotNull StatementHandle register(@Nullable String name, @NotNull String sql) {
+        Validator.checkNotNull(sql, "The SQL string cannot be null");
+        synchronized (registryLock) {
+            StatementHandle existing = bySql.get(sql);
+            if (existing != null) {
+                Validator.checkArgument(Objects.equals(name, existing.getName()), "The SQL string has already been registered as %s", existing);
+                return existing;
+            }
+            if (name != null) {
+                Validator.checkArgument(!byName.containsKey(name), "The name %s has already been registered for a different SQL string", name);
+            }
+            StatementHandle handle = new StatementHandle(this, name, sql);
+            bySql.put(sql, handle);
+            if (name != null) {
+                byName.put(name, handle);
+            }
+            return handle;
+        }
+    }
+
+    /**
+     * @param name The name of the template
+     * @return The handle of the template with the name or <code>null</code> if none has been registered
+     * @throws NullPointerException If the name is null
+     */
+    public @Nullable StatementHandle get(@NotNull String name) {
+        Validator.checkNotNull(name, "The name cannot be null");
+        synchronized (registryLock) {
+            return byName.get(name);
+        }
+    }
+
+    /**
+     * @return The handles of all templates in the order of their registration
+     */
+    public @NotNull List<@NotNull StatementHandle> getHandles() {
+        synchronized (registryLock) {
+            return Collections.unmodifiableList(new ArrayList<>(bySql.values()));
+        }
+    }
+
+    /**
+     * @return The amount of registered templates
+     */
+    public int size() {
+        synchronized (registryLock) {
+            return bySql.size();
+        }
+    }
+
+    private void checkHandle(@NotNull StatementHandle handle) {
+        Validator.checkNotNull(handle, "The handle cannot be null");
+        Validator.checkArgument(handle.getRegistry() == this, "The handle %s belongs to a different registry", handle);
+    }
+
+    /**
+     * Leases the statement of the template from the statement cache of the connection returned by {@link SQLiteHelper#getConnection()}.
+     * The statement must be given back with {@link #release(NamedPreparedStatement)} once it is no longer used
+     *
+     * @param handle The handle of the template
+     * @return A statement that is exclusively used by the caller until it is released
+     * @throws SQLException             If a database access error occurs
+     * @throws NullPointerException     If the handle is null
+     * @throws IllegalArgumentException If the handle belongs to a different registry
+     * @see SQLiteHelper#leaseStatement(String)
+     */
+    public @NotNull NamedPreparedStatement lease(@NotNull StatementHandle handle) throws SQLException {
+        checkHandle(handle);
+        return helper.leaseStatement(handle.parse(options.getParser()));
+    }
+
+    /**
+     * Gives a statement obtained by {@link #lease(StatementHandle)} back to the statement cache
+     *
+     * @param statement The statement to release
+     * @throws NullPointerException If the statement is null
+     * @see SQLiteHelper#releaseStatement(NamedPreparedStatement)
+     */
+    public void release(@NotNull NamedPreparedStatement statement) {
+        helper.releaseStatement(statement);
+    }
+
+    /**
+     * Executes the query of the template on a leased read-only connection
+     *
+     * @param handle     The handle of the template
+     * @param parameters The values of the named parameters
+     * @param mapper     The mapper that maps every row
+     * @param <T>        The type of the mapped rows
+     * @return A stream of the mapped rows, which must be closed
+     * @throws SQLException             If a database access error occurs or no connection became available in time
+     * @throws NullPointerException     If the handle, the parameters or the mapper are null
+     * @throws IllegalArgumentException If the handle belongs to a different registry or a name has not been registered
+     * @see SQLiteHelper#query(String, Map, RowMapper)
+     */
+    public <T> @NotNull Stream<T> query(@NotNull StatementHandle handle, @NotNull Map<@NotNull String, ?> parameters,
+                                        @NotNull RowMapper<? extends T> mapper) throws SQLException {
+        checkHandle(handle);
+        return helper.query(handle.getSql(), parameters, mapper);
+    }
+
+    /**
+     * Warms up all registered templates on daemon threads that are created for the warm-up and stopped afterwards
+     *
+     * @return A future that is completed with the report once all templates have been warmed up, or exceptionally if the connection to the
+     * database cannot be opened
+     * @see #warmUp(Executor)
+     */
+    public @NotNull CompletableFuture<WarmUpReport> warmUp() {
+        int threads = Math.max(1, Math.min(options.getReaderPoolSize() + 1, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "SQLiteHelper warm-up " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<WarmUpReport> report = warmUp(executor);
+        report.whenComplete((result, failure) -> executor.shutdown());
+        return report;
+    }
+
+    /**
+     * Parses all registered templates in parallel and then prepares them on all connections in parallel. Templates that cannot be prepared do
+     * not fail the warm-up, instead they are listed in the report and by {@link StatementHandle#getFailure()}. Readers that are leased by the
+     * application while the warm-up starts are skipped.
+     * <br><br>
+     * The warm-up can be repeated, like after the schema has been migrated, in which case the cached statements of the templates are prepared
+     * again, so templates that are no longer valid for the new schema are reported.
+     *
+     * @param executor The executor that runs the warm-up
+     * @return A future that is completed with the report once all templates have been warmed up, or exceptionally if the connection to the
+     * database cannot be opened
+     * @throws NullPointerException If the executor is null
+     */
+    public @NotNull CompletableFuture<WarmUpReport> warmUp(@NotNull Executor executor) {
+        Validator.checkNotNull(executor, "The executor cannot be null");
+        List<StatementHandle> handles = getHandles();
+        long start = System.nanoTime();
+        LongAdder parseNanos = new LongAdder();
+        NamedParameterParser parser = options.getParser();
+        CompletableFuture<?>[] parses = new CompletableFuture<?>[handles.size()];
+        for (int i = 0; i < parses.length; i++) {
+            StatementHandle handle = handles.get(i);
+            parses[i] = CompletableFuture.runAsync(() -> {
+                long parseStart = System.nanoTime();
+                handle.parse(parser);
+                parseNanos.add(System.nanoTime() - parseStart);
+            }, executor);
+        }
+        return CompletableFuture.allOf(parses).thenComposeAsync(ignored -> prepare(handles, executor, start, parseNanos.sum()), executor);
+    }
+
+    private @NotNull CompletableFuture<WarmUpReport> prepare(@NotNull List<@NotNull StatementHandle> handles, @NotNull Executor executor,
+                                                             long start, long parseNanos) {
+        List<StatementHandle> writes = new ArrayList<>(), reads = new ArrayList<>();
+        boolean pooled = options.getReaderPoolSize() > 0;
+        for (StatementHandle handle : handles) {
+            (pooled && !handle.isWrite() ? reads : writes).add(handle);
+        }
+
+        Connection writer;
+        try {
+            writer = helper.getConnection();
+        } catch (SQLException e) {
+            CompletableFuture<WarmUpReport> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        // Hold all leases at the same time, so every reader of the pool is warmed up exactly once
+        List<ConnectionLease> leases = new ArrayList<>();
+        while (!reads.isEmpty() && leases.size() < options.getReaderPoolSize()) {
+            try {
+                leases.add(helper.leaseReader(0, TimeUnit.MILLISECONDS));
+            } catch (SQLException e) {
+                // The remaining readers are leased by the application
+                break;
+            }
+        }
+        if (leases.isEmpty()) {
+            // The templates are at least validated, even though their statements are not cached by the readers
+            writes.addAll(reads);
+        }
+
+        Map<StatementHandle, Exception> failures = new ConcurrentHashMap<>();
+        LongAdder prepareNanos = new LongAdder();
+        AtomicInteger prepared = new AtomicInteger();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        int started = 0;
+        try {
+            tasks.add(CompletableFuture.runAsync(() -> prepareAll(writes, writer, helper::prepareStatement, helper::releaseStatement,
+                    failures, prepareNanos, prepared), executor));
+            for (; started < leases.size(); started++) {
+                ConnectionLease lease = leases.get(started);
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        prepareAll(reads, lease.getConnection(), lease::prepareStatement, lease::releaseStatement, failures, prepareNanos, prepared);
+                    } finally {
+                        lease.close();
+                    }
+                }, executor));
+            }
+        } catch (RuntimeException e) {
+            leases.subList(started, leases.size()).forEach(ConnectionLease::close);
+            throw e;
+        }
+
+        int connections = 1 + leases.size();
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<StatementHandle, Exception> ordered = new LinkedHashMap<>();
+            for (StatementHandle handle : handles) {
+                Exception failure = failures.get(handle);
+                handle.fail(failure);
+                if (failure != null) {
+                    ordered.put(handle, failure);
+                }
+            }
+            return new WarmUpReport(handles.size(), connections, prepared.get(), parseNanos, prepareNanos.sum(), System.nanoTime() - start,
+                    Collections.unmodifiableMap(ordered));
+        });
+    }
+
+    private void prepareAll(@NotNull List<@NotNull StatementHandle> handles, @NotNull Connection connection, @NotNull StatementSource source,
+                            @NotNull Consumer<@NotNull NamedPreparedStatement> release, @NotNull Map<@NotNull StatementHandle, @NotNull Exception> failures,
+                            @NotNull LongAdder prepareNanos, @NotNull AtomicInteger prepared) {
+        // SQLite prepares statements against the schema the connection has loaded, which is only reloaded once a statement reads the database.
+        // Reading the schema table first makes connections that have not been used since a migration prepare against the current schema
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT count(*) FROM sqlite_master");
+        } catch (SQLException e) {
+            for (StatementHandle handle : handles) {
+                failures.putIfAbsent(handle, e);
+            }
+            return;
+        }
+        for (StatementHandle handle : handles) {
+            long start = System.nanoTime();
+            try {
+                NamedPreparedStatement statement = source.prepare(handle.parse(options.getParser()));
+                // Releasing the statement keeps it in the statement cache of the connection
+                release.accept(statement);
+                prepareNanos.add(System.nanoTime() - start);
+                prepared.incrementAndGet();
+            } catch (SQLException | RuntimeException e) {
+                failures.putIfAbsent(handle, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Snapshot of the metrics recorded for a single SQL string at the time it has been requested
+ *
+ * @see StatementMetrics#snapshot()
+ */
+public final class StatementStatistics {
+
+    @NotNull
+    private final String sql;
+    @NotNull
+    private final LatencySnapshot prepare, bind, execute, fetch;
+    private final long failureCount, fetchedRows, slowCount;
+
+    StatementStatistics(@NotNull String sql, @NotNull LatencySnapshot prepare, @NotNull LatencySnapshot bind, @NotNull LatencySnapshot execute,
+                        @NotNull LatencySnapshot fetch, long failureCount, long fetchedRows, long slowCount) {
+        this.sql = sql;
+        this.prepare = prepare;
+        this.bind = bind;
+        this.execute = execute;
+        this.fetch = fetch;
+        this.failureCount = failureCount;
+        this.fetchedRows = fetchedRows;
+        this.slowCount = slowCount;
+    }
+
+    /**
+     * @return The SQL string with named parameters the metrics have been recorded for
+     */
+    public @NotNull String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The latencies of parsing and preparing the statement
+     */
+    public @NotNull LatencySnapshot getPrepareLatency() {
+        return prepare;
+    }
+
+    /**
+     * @return The latencies of setting the parameters of the statement
+     */
+    public @NotNull LatencySnapshot getBindLatency() {
+        return bind;
+    }
+
+    /**
+     * @return The latencies of executing the statement, including failed executions
+     */
+    public @NotNull LatencySnapshot getExecuteLatency() {
+        return execute;
+    }
+
+    /**
+     * @return The latencies of fetching the rows of streamed results, one value per stream
+     */
+    public @NotNull LatencySnapshot getFetchLatency() {
+        return fetch;
+    }
+
+    /**
+     * @return The amount of executions that threw an exception
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return The total amount of rows that have been fetched by streamed results
+     */
+    public long getFetchedRows() {
+        return fetchedRows;
+    }
+
+    /**
+     * @return The amount of executions that took at least the slow query threshold
+     */
+    public long getSlowCount() {
+        return slowCount;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementStatistics{" +
+                "sql='" + sql + '\'' +
+                ", prepare=" + prepare +
+                ", bind=" + bind +
+                ", execute=" + execute +
+                ", fetch=" + fetch +
+                ", failureCount=" + failureCount +
+                ", fetchedRows=" + fetchedRows +
+                ", slowCount=" + slowCount +
+                '}';
+    }
+}
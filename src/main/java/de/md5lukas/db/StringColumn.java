@@ -0,0 +1,148 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary-encoded column of strings read with {@link ResultSet#getString(int)}.
+ * <br><br>
+ * Every distinct string is stored once in the dictionary and the rows only store the code of their string, which is its index in the
+ * dictionary, or <code>-1</code> for <code>NULL</code>. This suits columns with few distinct values, like categories or countries, which
+ * can then be grouped by their codes. The dictionary is kept when the column is cleared, so the codes stay the same across all chunks of a
+ * {@link ColumnCursor} and the strings of every chunk are only retained once.
+ *
+ * @see ColumnBatch
+ */
+public final class StringColumn extends Column {
+
+    @NotNull
+    private int[] codes;
+    @NotNull
+    private final List<@NotNull String> dictionary = new ArrayList<>();
+    @NotNull
+    private final List<@NotNull String> dictionaryView = Collections.unmodifiableList(dictionary);
+    @NotNull
+    private final Map<@NotNull String, @NotNull Integer> lookup = new HashMap<>();
+
+    /**
+     * Creates a new column that does not maintain a bitmap of the <code>NULL</code> values, which are still recorded as the code <code>-1</code>
+     */
+    public StringColumn() {
+        this(false);
+    }
+
+    /**
+     * Creates a new column
+     *
+     * @param nullable <code>true</code> to additionally record which rows are <code>NULL</code> in a bitmap
+     */
+    public StringColumn(boolean nullable) {
+        this(nullable, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new column
+     *
+     * @param nullable        <code>true</code> to additionally record which rows are <code>NULL</code> in a bitmap
+     * @param initialCapacity The amount of values the column can hold before it grows
+     * @throws IllegalArgumentException If the initial capacity is not positive
+     */
+    public StringColumn(boolean nullable, int initialCapacity) {
+        super(nullable, initialCapacity);
+        this.codes = new int[initialCapacity];
+    }
+
+    @Override
+    void read(@NotNull ResultSet resultSet, int column) throws SQLException {
+        ensureSpace();
+        String value = resultSet.getString(column);
+        int code;
+        if (value == null) {
+            code = -1;
+        } else {
+            Integer existing = lookup.get(value);
+            if (existing == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                lookup.put(value, code);
+            } else {
+                code = existing;
+            }
+        }
+        codes[size] = code;
+        recordNull(value == null);
+        size++;
+    }
+
+    @Override
+    int capacity() {
+        return codes.length;
+    }
+
+    @Override
+    void resize(int capacity) {
+        codes = Arrays.copyOf(codes, capacity);
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        checkRow(row);
+        return codes[row] < 0;
+    }
+
+    /**
+     * @param row The index of the row, starting at 0
+     * @return The string of the row or <code>null</code> if it is <code>NULL</code>
+     * @throws IndexOutOfBoundsException If the row does not exist
+     */
+    public @Nullable String get(int row) {
+        checkRow(row);
+        int code = codes[row];
+        return code < 0 ? null : dictionary.get(code);
+    }
+
+    /**
+     * @param row The index of the row, starting at 0
+     * @return The code of the string of the row or <code>-1</code> if it is <code>NULL</code>
+     * @throws IndexOutOfBoundsException If the row does not exist
+     */
+    public int getCode(int row) {
+        checkRow(row);
+        return codes[row];
+    }
+
+    /**
+     * Returns the backing array of the codes, which is only valid for the first {@link #size()} elements and is replaced once the column grows
+     *
+     * @return The backing array
+     * @see LongColumn#getValues()
+     */
+    public @NotNull int[] getCodes() {
+        return codes;
+    }
+
+    /**
+     * @return An unmodifiable view of the distinct strings by their code
+     */
+    public @NotNull List<@NotNull String> getDictionary() {
+        return dictionaryView;
+    }
+
+    /**
+     * Removes all rows and all strings of the dictionary, which should be done between unrelated queries to stop the dictionary from growing
+     */
+    public void clearDictionary() {
+        clear();
+        dictionary.clear();
+        lookup.clear();
+    }
+}
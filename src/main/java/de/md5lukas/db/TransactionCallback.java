@@ -0,0 +1,26 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Functional interface for the work that is done inside a transaction
+ *
+ * @param <T> The type of the result
+ * @see SQLiteHelper#inTransaction(TransactionCallback)
+ */
+@FunctionalInterface
+public interface TransactionCallback<T> {
+
+    /**
+     * Does the work of the transaction. Because the transaction may be retried, this can be called multiple times and should not have
+     * side effects outside of the database
+     *
+     * @param connection The connection the transaction runs on, which must not be committed, rolled back or closed
+     * @return The result of the transaction
+     * @throws SQLException If a database error occurs, which rolls back the transaction
+     */
+    T execute(@NotNull Connection connection) throws SQLException;
+}
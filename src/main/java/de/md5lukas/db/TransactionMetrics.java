@@ -0,0 +1,65 @@
+package de.md5lukas.db;
+
+/**
+ * Snapshot of the metrics of the transactions of a {@link SQLiteHelper} at the time it has been requested
+ *
+ * @see SQLiteHelper#getTransactionMetrics()
+ */
+public final class TransactionMetrics {
+
+    private final long commitCount, rollbackCount, retryCount, busyFailureCount, totalBackoffNanos;
+
+    TransactionMetrics(long commitCount, long rollbackCount, long retryCount, long busyFailureCount, long totalBackoffNanos) {
+        this.commitCount = commitCount;
+        this.rollbackCount = rollbackCount;
+        this.retryCount = retryCount;
+        this.busyFailureCount = busyFailureCount;
+        this.totalBackoffNanos = totalBackoffNanos;
+    }
+
+    /**
+     * @return The amount of top-level transactions that have been committed
+     */
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * @return The amount of attempts of top-level transactions that have been rolled back, including the attempts that have been retried
+     */
+    public long getRollbackCount() {
+        return rollbackCount;
+    }
+
+    /**
+     * @return The amount of times a transaction has been retried, because the database was busy or locked
+     */
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * @return The amount of transactions that failed, because the database was still busy or locked after the last retry
+     */
+    public long getBusyFailureCount() {
+        return busyFailureCount;
+    }
+
+    /**
+     * @return The total time in nanoseconds spent waiting before retries
+     */
+    public long getTotalBackoffNanos() {
+        return totalBackoffNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionMetrics{" +
+                "commitCount=" + commitCount +
+                ", rollbackCount=" + rollbackCount +
+                ", retryCount=" + retryCount +
+                ", busyFailureCount=" + busyFailureCount +
+                ", totalBackoffNanos=" + totalBackoffNanos +
+                '}';
+    }
+}
@@ -0,0 +1,22 @@
+package de.md5lukas.db;
+
+/**
+ * The ways a transaction started by {@link SQLiteHelper#inTransaction(TransactionMode, TransactionCallback)} acquires its locks
+ */
+public enum TransactionMode {
+    /**
+     * <code>BEGIN DEFERRED</code>, which acquires the locks on the first read and the first write. Upgrading from a read to a write lock
+     * can fail with <code>SQLITE_BUSY</code> without waiting for the busy timeout, so this mode should only be used for transactions that
+     * only read
+     */
+    DEFERRED,
+    /**
+     * <code>BEGIN IMMEDIATE</code>, which acquires the write lock when the transaction starts, so a busy database is detected before any
+     * work of the transaction has been done
+     */
+    IMMEDIATE,
+    /**
+     * <code>BEGIN EXCLUSIVE</code>, which additionally prevents readers from reading the database unless it uses the WAL journal mode
+     */
+    EXCLUSIVE
+}
@@ -0,0 +1,31 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps a {@link SQLException} with an unchecked exception, which is thrown by APIs like {@link java.util.stream.Stream}s that cannot throw
+ * checked exceptions
+ */
+public final class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new unchecked exception that wraps the SQLException
+     *
+     * @param cause The SQLException to wrap
+     */
+    public UncheckedSQLException(@NotNull SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * @return The wrapped SQLException
+     */
+    @Override
+    public @NotNull SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,89 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs <code>PRAGMA wal_checkpoint</code> on a schedule using its own connection, so the WAL file does not grow without bound under sustained writes
+ */
+final class WalCheckpointer {
+
+    @NotNull
+    private final Connection connection;
+    @NotNull
+    private final String sql;
+    @NotNull
+    private final ScheduledExecutorService executor;
+
+    @NotNull
+    private final LongAdder checkpoints = new LongAdder(), busyCheckpoints = new LongAdder(), failedCheckpoints = new LongAdder();
+
+    WalCheckpointer(@NotNull Connection connection, @NotNull ConnectionProfile.CheckpointMode mode, @NotNull String name, long intervalNanos) {
+        this.connection = connection;
+        this.sql = "PRAGMA wal_checkpoint(" + mode.name() + ")";
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::checkpoint, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void checkpoint() {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            // The first column is 1 if the checkpoint could not complete, because it was blocked by other connections
+            if (resultSet.next() && resultSet.getInt(1) != 0) {
+                busyCheckpoints.increment();
+            }
+            checkpoints.increment();
+        } catch (SQLException e) {
+            failedCheckpoints.increment();
+        }
+    }
+
+    /**
+     * @return The amount of checkpoints that have been run
+     */
+    long checkpointCount() {
+        return checkpoints.sum();
+    }
+
+    /**
+     * @return The amount of checkpoints that could not complete, because they were blocked by other connections
+     */
+    long busyCheckpointCount() {
+        return busyCheckpoints.sum();
+    }
+
+    /**
+     * @return The amount of checkpoints that failed with an exception
+     */
+    long failedCheckpointCount() {
+        return failedCheckpoints.sum();
+    }
+
+    /**
+     * Stops the schedule, waits for a running checkpoint to finish and closes the connection
+     */
+    void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
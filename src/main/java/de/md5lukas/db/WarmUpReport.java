@@ -0,0 +1,116 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * The result of warming up the statements of a {@link StatementRegistry}, which makes the cost of the warm-up measurable and reports all
+ * templates that could not be prepared
+ *
+ * @see StatementRegistry#warmUp()
+ */
+public final class WarmUpReport {
+
+    private final int statementCount, connectionCount, preparedCount;
+    private final long parseNanos, prepareNanos, elapsedNanos;
+    @NotNull
+    private final Map<@NotNull StatementHandle, @NotNull Exception> failures;
+
+    WarmUpReport(int statementCount, int connectionCount, int preparedCount, long parseNanos, long prepareNanos, long elapsedNanos,
+                 @NotNull Map<@NotNull StatementHandle, @NotNull Exception> failures) {
+        this.statementCount = statementCount;
+        this.connectionCount = connectionCount;
+        this.preparedCount = preparedCount;
+        this.parseNanos = parseNanos;
+        this.prepareNanos = prepareNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.failures = failures;
+    }
+
+    /**
+     * @return The amount of templates that have been warmed up
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return The amount of connections the statements have been prepared on
+     */
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * @return The amount of statements that have been prepared successfully, counting every connection separately
+     */
+    public int getPreparedCount() {
+        return preparedCount;
+    }
+
+    /**
+     * @return The total time in nanoseconds spent parsing the templates
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return The total time in nanoseconds spent preparing the statements on all connections, which may exceed the elapsed time
+     */
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    /**
+     * @return The time in nanoseconds from the start to the end of the warm-up
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return An unmodifiable map of the templates that could not be prepared to the first exception that occurred
+     */
+    public @NotNull Map<@NotNull StatementHandle, @NotNull Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return <code>true</code> if all templates could be prepared
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Throws an exception listing all templates that could not be prepared, which lets the application fail at startup instead of on the first
+     * request using a broken template
+     *
+     * @throws SQLException If a template could not be prepared, with the exceptions of all failed templates as suppressed exceptions
+     */
+    public void throwIfFailed() throws SQLException {
+        if (failures.isEmpty()) {
+            return;
+        }
+        SQLException exception = new SQLException(String.format("%d of %d statements could not be prepared: %s", failures.size(), statementCount,
+                failures.keySet()));
+        failures.values().forEach(exception::addSuppressed);
+        throw exception;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpReport{" +
+                "statementCount=" + statementCount +
+                ", connectionCount=" + connectionCount +
+                ", preparedCount=" + preparedCount +
+                ", parseNanos=" + parseNanos +
+                ", prepareNanos=" + prepareNanos +
+                ", elapsedNanos=" + elapsedNanos +
+                ", failures=" + failures.size() +
+                '}';
+    }
+}
@@ -0,0 +1,213 @@
+package de.md5lukas.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous write pipeline that executes submitted writes on a single writer thread.
+ * <br><br>
+ * The writer thread drains the queue and executes all pending writes, up to the maximum batch size, inside a single transaction, so the cost
+ * of committing is shared by all writes of the batch. If a batch fails, its writes are retried one by one in separate transactions,
+ * so a single failing write does not fail the other writes of the batch. Submitting blocks while the queue is full.
+ * <br><br>
+ * The batches are executed with {@link SQLiteHelper#inTransaction(TransactionCallback)} on the writer connection and its statement cache, so
+ * they are serialized with the other transactions of the helper and retried while the database is busy instead of competing with a second
+ * writer connection for the lock of the database.
+ */
+final class WriteBehindQueue {
+
+    /**
+     * A single write that has been submitted
+     */
+    private static final class Write {
+
+        @NotNull
+        private final String sql;
+        @Nullable
+        private final Object row;
+        @NotNull
+        private final StatementBinder<Object> binder;
+        @NotNull
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        @SuppressWarnings("unchecked")
+        private Write(@NotNull String sql, @Nullable Object row, @NotNull StatementBinder<?> binder) {
+            this.sql = sql;
+            this.row = row;
+            this.binder = (StatementBinder<Object>) binder;
+        }
+    }
+
+    /**
+     * Marker that tells the writer thread to stop after all writes before it have been executed
+     */
+    @NotNull
+    private static final Write SHUTDOWN = new Write("", null, (statement, row) -> {
+    });
+
+    @NotNull
+    private final SQLiteHelper helper;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+
+    @NotNull
+    private final BlockingQueue<@NotNull Write> queue;
+    @NotNull
+    private final Thread writer;
+    private volatile boolean closed = false;
+
+    WriteBehindQueue(@NotNull SQLiteHelper helper, @NotNull String name, int capacity, int maxBatchSize, long maxLatencyNanos) {
+        this.helper = helper;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = maxLatencyNanos;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, name);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Submits a write, blocking while the queue is full
+     *
+     * @param sql    The SQL string with named parameters
+     * @param row    The row to bind
+     * @param binder The binder that sets the parameters of the statement
+     * @param <T>    The type of the row
+     * @return A future that is completed with the update count once the write has been committed
+     */
+    <T> @NotNull CompletableFuture<Integer> submit(@NotNull String sql, @Nullable T row, @NotNull StatementBinder<? super T> binder) {
+        Write write = new Write(sql, row, binder);
+        if (closed) {
+            write.future.completeExceptionally(new IllegalStateException("The write-behind queue has been closed"));
+            return write.future;
+        }
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.future.completeExceptionally(e);
+        }
+        // The writer may have already stopped while this thread was waiting for space in the queue
+        if (closed && !writer.isAlive() && queue.remove(write)) {
+            write.future.completeExceptionally(new IllegalStateException("The write-behind queue has been closed"));
+        }
+        return write.future;
+    }
+
+    /**
+     * @return The amount of writes that have been submitted, but not yet executed
+     */
+    int pendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting new writes and waits until all pending writes have been executed
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(SHUTDOWN);
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(maxBatchSize);
+        boolean running = true;
+        while (running) {
+            try {
+                Write write = queue.take();
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (write != null) {
+                    if (write == SHUTDOWN) {
+                        running = false;
+                        break;
+                    }
+                    batch.add(write);
+                    if (batch.size() >= maxBatchSize) {
+                        break;
+                    }
+                    write = queue.poll();
+                    if (write == null && maxLatencyNanos > 0) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining > 0) {
+                            write = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                executeBatch(batch);
+                batch.clear();
+            }
+        }
+
+        // Writes that raced with the shutdown marker
+        Write remaining;
+        while ((remaining = queue.poll()) != null) {
+            remaining.future.completeExceptionally(new IllegalStateException("The write-behind queue has been closed"));
+        }
+    }
+
+    private void executeBatch(@NotNull List<@NotNull Write> batch) {
+        int[] updateCounts = new int[batch.size()];
+        try {
+            // The transaction invalidates the written tables again once the batch has been committed, before the writes are reported as done
+            helper.inTransaction(connection -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    updateCounts[i] = execute(batch.get(i));
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+            } else {
+                // Isolate the failing writes by executing every write in its own transaction
+                for (Write write : batch) {
+                    executeBatch(Collections.singletonList(write));
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(updateCounts[i]);
+        }
+    }
+
+    private int execute(@NotNull Write write) throws SQLException {
+        NamedPreparedStatement statement = helper.leaseStatement(write.sql);
+        try {
+            write.binder.bind(statement, write.row);
+            return statement.executeUpdate();
+        } finally {
+            helper.releaseStatement(statement);
+        }
+    }
+}
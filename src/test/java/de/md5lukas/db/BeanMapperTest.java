@@ -0,0 +1,166 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BeanMapperTest {
+
+    public static class Entry {
+
+        private int id;
+        private String name;
+        private Long createdAt;
+        private boolean active;
+        private int accessCount;
+
+        public Entry() {
+        }
+
+        public Entry(int id, String name, Long createdAt, boolean active) {
+            this.id = id;
+            this.name = name;
+            this.createdAt = createdAt;
+            this.active = active;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            accessCount++;
+            this.name = name;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    @TempDir
+    File directory;
+
+    @Test
+    @DisplayName("Objects are bound to parameters and mapped from columns")
+    public void bindAndMap() throws SQLException {
+        SQLiteHelper helper = new SQLiteHelper(new File(directory, "beans.db"));
+        try {
+            Connection connection = helper.getConnection();
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT, created_at INTEGER, active INTEGER)");
+            }
+
+            List<Entry> entries = new ArrayList<>();
+            for (int id = 1; id <= 100; id++) {
+                entries.add(new Entry(id, "entry" + id, id % 2 == 0 ? null : (long) id * 1000, id % 3 == 0));
+            }
+            try (NamedPreparedStatement statement = new NamedPreparedStatement(connection,
+                    "INSERT INTO entries (id, name, created_at, active) VALUES (:id, :name, :createdAt, :active)")) {
+                statement.executeBatch(entries, BeanMapper.of(Entry.class), 32);
+
+                statement.bindFrom(new Entry(101, "single", 5L, true));
+                assertEquals(1, statement.executeUpdate());
+            }
+
+            try (NamedPreparedStatement statement = new NamedPreparedStatement(connection, "SELECT * FROM entries WHERE id <= :id ORDER BY id")) {
+                statement.setInt("id", 100);
+                try (Stream<Entry> mapped = statement.stream(BeanMapper.of(Entry.class))) {
+                    List<Entry> result = mapped.collect(Collectors.toList());
+                    assertEquals(100, result.size());
+                    Entry third = result.get(2);
+                    assertEquals(3, third.id);
+                    assertEquals("entry3", third.name);
+                    assertEquals(3000L, third.createdAt);
+                    assertTrue(third.active);
+                    assertEquals(1, third.accessCount);
+
+                    Entry fourth = result.get(3);
+                    assertNull(fourth.createdAt);
+                    assertFalse(fourth.active);
+                }
+            }
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Statements bound alternately and result sets mapped interleaved keep their own resolution")
+    public void alternatingStatements() throws SQLException {
+        SQLiteHelper helper = new SQLiteHelper(new File(directory, "alternating.db"));
+        try {
+            Connection connection = helper.getConnection();
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT, created_at INTEGER, active INTEGER)");
+            }
+
+            BeanMapper<Entry> mapper = BeanMapper.of(Entry.class);
+            try (NamedPreparedStatement full = new NamedPreparedStatement(connection,
+                    "INSERT INTO entries (id, name, created_at, active) VALUES (:id, :name, :createdAt, :active)");
+                 NamedPreparedStatement partial = new NamedPreparedStatement(connection, "INSERT INTO entries (name, id) VALUES (:name, :id)")) {
+                for (int id = 1; id <= 10; id += 2) {
+                    mapper.bind(full, new Entry(id, "full" + id, (long) id, true));
+                    assertEquals(1, full.executeUpdate());
+                    mapper.bind(partial, new Entry(id + 1, "partial" + (id + 1), null, false));
+                    assertEquals(1, partial.executeUpdate());
+                }
+            }
+
+            try (Statement first = connection.createStatement();
+                 Statement second = connection.createStatement();
+                 ResultSet names = first.executeQuery("SELECT name, id FROM entries ORDER BY id");
+                 ResultSet flags = second.executeQuery("SELECT id, active AS ACTIVE, created_at FROM entries ORDER BY id")) {
+                assertTrue(names.next());
+                assertTrue(flags.next());
+                RowMapper<Entry> nameMapper = mapper.forResultSet(names), flagMapper = mapper.forResultSet(flags);
+                for (int id = 1; id <= 10; id++) {
+                    Entry named = nameMapper.map(names);
+                    Entry flagged = flagMapper.map(flags);
+                    assertEquals(id, named.id);
+                    assertEquals((id % 2 == 1 ? "full" : "partial") + id, named.name);
+                    assertEquals(id, flagged.id);
+                    assertNull(flagged.name);
+                    assertEquals(id % 2 == 1, flagged.active);
+                    assertEquals(id % 2 == 1 ? Long.valueOf(id) : null, flagged.createdAt);
+                    assertEquals(id < 10, names.next());
+                    assertEquals(id < 10, flags.next());
+                }
+            }
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void missingProperty() throws SQLException {
+        SQLiteHelper helper = new SQLiteHelper(new File(directory, "missing.db"));
+        try (NamedPreparedStatement statement = new NamedPreparedStatement(helper.getConnection(), "SELECT :unknown")) {
+            assertThrows(IllegalArgumentException.class, () -> statement.bindFrom(new Entry()));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void mapperCachedPerClass() {
+        assertSame(BeanMapper.of(Entry.class), BeanMapper.of(Entry.class));
+    }
+}
@@ -0,0 +1,139 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BulkInsertStatementTest {
+
+    @TempDir
+    File directory;
+
+    private SQLiteHelper helper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        helper = new SQLiteHelper(new File(directory, "test.db"));
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT, copy INTEGER)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    @DisplayName("Rows are split into statements within the variable limit")
+    public void rowsSplitIntoStatements() throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            ids.add(i);
+        }
+
+        try (BulkInsertStatement statement = new BulkInsertStatement(helper.getConnection(),
+                NamedPreparedStatement.parseSQLString("INSERT INTO entries (id, name, copy) VALUES (:id, :name, :id)"), 20)) {
+            assertEquals(6, statement.getRowsPerStatement());
+            NamedParameter id = statement.getTemplate().getParameter("id");
+
+            assertEquals(23, statement.insert(ids, (s, row) -> {
+                s.setInt(id, row);
+                s.setString("name", "entry" + row);
+            }));
+        }
+
+        try (Statement statement = helper.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, name, copy FROM entries ORDER BY id")) {
+            for (int i = 0; i < 23; i++) {
+                resultSet.next();
+                assertEquals(i, resultSet.getInt(1));
+                assertEquals("entry" + i, resultSet.getString(2));
+                assertEquals(i, resultSet.getInt(3));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The VALUES tuple is found outside of quoted identifiers, literals and comments")
+    public void quotedValuesSkipped() throws SQLException {
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE \"values\" (a INTEGER, [values] TEXT)");
+        }
+
+        try (BulkInsertStatement statement = new BulkInsertStatement(helper.getConnection(),
+                "INSERT INTO \"values\" /* values (:x) */ (a, [values]) -- values (\n VALUES (:a, 'values (' || :b || ')')")) {
+            assertEquals(499, statement.getRowsPerStatement());
+            assertEquals(3, statement.insert(Arrays.asList(1, 2, 3), (s, row) -> {
+                s.setInt("a", row);
+                s.setString("b", "row" + row);
+            }));
+        }
+
+        try (Statement statement = helper.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT a, [values] FROM \"values\" ORDER BY a")) {
+            for (int i = 1; i <= 3; i++) {
+                resultSet.next();
+                assertEquals(i, resultSet.getInt(1));
+                assertEquals("values (row" + i + ")", resultSet.getString(2));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Parameters missing in a row map are bound as NULL instead of keeping the values of a previous row")
+    public void missingMapParametersNull() throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            if (i % 2 == 0) {
+                row.put("name", "entry" + i);
+                row.put("copy", i);
+            }
+            rows.add(row);
+        }
+
+        try (BulkInsertStatement statement = new BulkInsertStatement(helper.getConnection(),
+                NamedPreparedStatement.parseSQLString("INSERT INTO entries (id, name, copy) VALUES (:id, :name, :copy)"), 6)) {
+            assertEquals(2, statement.getRowsPerStatement());
+            assertEquals(7, statement.insert(rows));
+            assertEquals(1, statement.insert(Collections.singletonList(Collections.singletonMap("id", 7))));
+        }
+
+        try (Statement statement = helper.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, name, copy FROM entries ORDER BY id")) {
+            for (int i = 0; i <= 7; i++) {
+                resultSet.next();
+                assertEquals(i, resultSet.getInt(1));
+                assertEquals(i % 2 == 0 && i < 7 ? "entry" + i : null, resultSet.getString(2));
+                resultSet.getInt(3);
+                assertEquals(i % 2 != 0 || i == 7, resultSet.wasNull());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Parameters outside of the VALUES tuple are rejected")
+    public void parametersOutsideTupleRejected() throws SQLException {
+        assertThrows(IllegalArgumentException.class, () -> new BulkInsertStatement(helper.getConnection(), "SELECT * FROM entries WHERE id = :id"));
+        assertThrows(IllegalArgumentException.class, () -> new BulkInsertStatement(helper.getConnection(),
+                "INSERT INTO entries (id, name) VALUES (:id, :name) ON CONFLICT (id) DO UPDATE SET name = :name"));
+    }
+}
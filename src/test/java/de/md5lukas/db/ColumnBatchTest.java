@@ -0,0 +1,130 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnBatchTest {
+
+    private static final String SELECT = "SELECT id, amount, category, quantity FROM sales WHERE id <= :max ORDER BY id";
+
+    @TempDir
+    File directory;
+
+    private SQLiteHelper helper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        helper = new SQLiteHelper(new File(directory, "columns.db"), new SQLiteOptions().readerPoolSize(1));
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE sales (id INTEGER PRIMARY KEY, amount REAL, category TEXT, quantity INTEGER)");
+            statement.executeUpdate("WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < 2500) "
+                    + "INSERT INTO sales SELECT i, CASE WHEN i % 10 = 0 THEN NULL ELSE i * 0.5 END, "
+                    + "CASE i % 3 WHEN 0 THEN 'a' WHEN 1 THEN 'b' ELSE NULL END, i % 7 FROM n");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    @DisplayName("All rows are read into growable primitive and dictionary-encoded columns")
+    public void extractAll() throws SQLException {
+        LongColumn ids = new LongColumn(false, 16);
+        DoubleColumn amounts = new DoubleColumn(true, 16);
+        StringColumn categories = new StringColumn();
+        IntColumn quantities = new IntColumn();
+        ColumnBatch batch = new ColumnBatch().add("id", ids).add(2, amounts).add("category", categories).add("QUANTITY", quantities);
+
+        assertEquals(2500, helper.extract(SELECT, Collections.singletonMap("max", 10_000), batch));
+        assertEquals(2500, batch.size());
+        assertEquals(2500, ids.size());
+        assertEquals(2500, ids.getValues()[2499]);
+        assertEquals(1.5, amounts.get(2));
+        assertTrue(amounts.isNull(9));
+        assertFalse(amounts.isNull(10));
+        long[] nulls = amounts.getNullBitmap();
+        assertNotNull(nulls);
+        assertEquals(1L << 9 | 1L << 19 | 1L << 29 | 1L << 39 | 1L << 49 | 1L << 59, nulls[0]);
+        assertFalse(ids.isNull(9));
+        assertNull(ids.getNullBitmap());
+
+        assertEquals(Arrays.asList("b", "a"), categories.getDictionary());
+        assertEquals(0, categories.getCode(0));
+        assertEquals(-1, categories.getCode(1));
+        assertTrue(categories.isNull(1));
+        assertEquals("a", categories.get(2));
+        assertEquals(4, quantities.get(3));
+
+        // A second query reuses the arrays and the dictionary
+        long[] values = ids.getValues();
+        assertEquals(3, helper.extract(SELECT, Collections.singletonMap("max", 3), batch));
+        assertSame(values, ids.getValues());
+        assertArrayEquals(new long[]{1, 2, 3}, ids.toArray());
+        assertEquals(2, categories.getDictionary().size());
+        assertThrows(IndexOutOfBoundsException.class, () -> ids.get(3));
+    }
+
+    @Test
+    @DisplayName("Chunks replace the rows of the previous chunk")
+    public void extractChunks() throws SQLException {
+        LongColumn ids = new LongColumn();
+        StringColumn categories = new StringColumn(true);
+        ColumnBatch batch = new ColumnBatch().add(1, ids).add(3, categories);
+        StatementMetrics metrics = new StatementMetrics();
+
+        long sum = 0;
+        int chunks = 0;
+        NamedPreparedStatement statement = helper.leaseStatement(SELECT);
+        try {
+            statement.setListener(metrics);
+            statement.setInt("max", 2100);
+            try (ColumnCursor cursor = statement.extractChunks(batch)) {
+                int rows;
+                while ((rows = cursor.next(1000)) > 0) {
+                    chunks++;
+                    long[] values = ids.getValues();
+                    for (int row = 0; row < rows; row++) {
+                        sum += values[row];
+                    }
+                    assertTrue(categories.getNullBitmap()[0] != 0);
+                    assertEquals(chunks < 3 ? 1000 : 100, batch.size());
+                }
+                assertEquals(0, cursor.next(1000));
+            }
+        } finally {
+            helper.releaseStatement(statement);
+        }
+        assertEquals(3, chunks);
+        assertEquals(2100L * 2101 / 2, sum);
+        assertEquals(0, batch.size());
+        StatementStatistics statistics = metrics.snapshot(SELECT);
+        assertNotNull(statistics);
+        assertEquals(2100, statistics.getFetchedRows());
+
+        assertThrows(SQLException.class, () -> helper.extract("SELECT id FROM sales", Collections.emptyMap(),
+                new ColumnBatch().add("missing", new LongColumn())));
+        assertThrows(IllegalArgumentException.class, () -> helper.extract(SELECT, Collections.emptyMap(), new ColumnBatch()));
+        assertThrows(IllegalArgumentException.class, () -> batch.add(4, ids));
+        assertEquals(0, helper.getReaderPoolMetrics().getActiveCount());
+    }
+}
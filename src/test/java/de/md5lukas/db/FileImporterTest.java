@@ -0,0 +1,125 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileImporterTest {
+
+    private static final String INSERT = "INSERT INTO entries (id, name, note) VALUES (:id, :name, :note)";
+
+    @TempDir
+    File directory;
+
+    private SQLiteHelper helper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        helper = new SQLiteHelper(new File(directory, "import.db"));
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT, note TEXT)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        helper.close();
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = new File(directory, name).toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private String select(int id, String column) throws SQLException {
+        try (Statement statement = helper.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT " + column + " FROM entries WHERE id = " + id)) {
+            assertTrue(resultSet.next());
+            return resultSet.getString(1);
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Statement statement = helper.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM entries")) {
+            return resultSet.getInt(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Quoted fields and records spanning multiple chunks are imported in parallel")
+    public void importCsv() throws IOException, SQLException {
+        StringBuilder csv = new StringBuilder("Note,ID,Name\r\n");
+        for (int id = 1; id <= 5000; id++) {
+            csv.append("\"note ").append(id).append(", \"\"quoted\"\"\nline\",").append(id).append(",name ").append(id).append("\r\n");
+            if (id % 1000 == 0) {
+                csv.append("\r\n");
+            }
+        }
+        csv.append("\"").append(new String(new char[1000]).replace('\0', 'x')).append("\",5001,long");
+        Path file = write("entries.csv", csv.toString());
+
+        List<ImportProgress> progress = new ArrayList<>();
+        ImportProgress result = helper.importFile(file, INSERT, new ImportOptions().header(true).parserThreads(3).buffers(4, 256)
+                .chunks(300, 64).progressListener(progress::add));
+
+        assertEquals(5001, result.getRecordsImported());
+        assertEquals(Files.size(file), result.getBytesImported());
+        assertEquals(1, result.getFraction(), 0.0001);
+        assertEquals(progress.size(), result.getTransactionCount());
+        assertTrue(progress.size() >= 17);
+        assertEquals(5001, count());
+        assertEquals("note 1234, \"quoted\"\nline", select(1234, "note"));
+        assertEquals("name 5000", select(5000, "name"));
+        assertEquals(1000, select(5001, "note").length());
+    }
+
+    @Test
+    @DisplayName("Columns of TSV files are mapped by position or explicitly")
+    public void importTsv() throws IOException, SQLException {
+        Path file = write("entries.tsv", "1\tfirst\t\n2\t\"second\t\n");
+        ImportOptions options = new ImportOptions().delimiter('\t').quote(null).emptyAsNull(true);
+        assertEquals(2, helper.importFile(file, INSERT, options).getRecordsImported());
+        assertNull(select(1, "note"));
+        assertEquals("\"second", select(2, "name"));
+        assertNull(select(2, "note"));
+
+        Path mapped = write("mapped.tsv", "x\t10\ty\tz\n");
+        options.column(1, "id").column(3, "name").column(0, "note");
+        assertEquals(1, helper.importFile(mapped, INSERT, options).getRecordsImported());
+        assertEquals("z", select(10, "name"));
+        assertEquals("x", select(10, "note"));
+    }
+
+    @Test
+    public void malformedFiles() throws IOException {
+        Path unterminated = write("unterminated.csv", "1,\"name,note\n");
+        assertThrows(IOException.class, () -> helper.importFile(unterminated, INSERT, new ImportOptions()));
+
+        Path missing = write("missing.csv", "1,name,note\n2,name\n");
+        assertThrows(IOException.class, () -> helper.importFile(missing, INSERT, new ImportOptions()));
+
+        Path header = write("header.csv", "id,name\n1,name\n");
+        assertThrows(IllegalArgumentException.class, () -> helper.importFile(header, INSERT, new ImportOptions().header(true)));
+        assertThrows(IllegalArgumentException.class, () -> helper.importFile(header, INSERT, new ImportOptions().column("id", "unknown")));
+    }
+}
@@ -0,0 +1,76 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class NamedParameterParserTest {
+
+    @Test
+    @DisplayName("Uncached parser always parses again")
+    public void uncachedParsesAgain() {
+        NamedParameterParser parser = NamedParameterParser.uncached();
+        String sql = "SELECT * FROM table WHERE id = :id";
+
+        assertFalse(parser.isCaching());
+        assertNotSame(parser.parse(sql), parser.parse(sql));
+        assertEquals(0, parser.size());
+    }
+
+    @Test
+    @DisplayName("Cached parser returns the same instance for the same SQL string")
+    public void cachedReturnsSameInstance() {
+        NamedParameterParser parser = NamedParameterParser.cached(10);
+        String sql = "SELECT * FROM table WHERE id = :id";
+
+        NamedParameterParseResult first = parser.parse(sql);
+        assertSame(first, parser.parse(sql));
+        assertEquals(1, parser.getMissCount());
+        assertEquals(1, parser.getHitCount());
+        assertEquals("SELECT * FROM table WHERE id = ?", first.getSubstitutedSql());
+    }
+
+    @Test
+    @DisplayName("Least recently used entries are evicted first")
+    public void leastRecentlyUsedEvicted() {
+        NamedParameterParser parser = NamedParameterParser.cached(2);
+
+        NamedParameterParseResult a = parser.parse("SELECT :a");
+        parser.parse("SELECT :b");
+        parser.parse("SELECT :a");
+        parser.parse("SELECT :c");
+
+        assertEquals(2, parser.size());
+        assertEquals(1, parser.getEvictionCount());
+        assertSame(a, parser.parse("SELECT :a"));
+        assertEquals(3, parser.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Weighted parser is bounded by the length of the SQL strings")
+    public void weightedBoundedByLength() {
+        NamedParameterParser parser = NamedParameterParser.weighted(20);
+
+        parser.parse("SELECT :first");
+        parser.parse("SELECT :second");
+
+        assertEquals(1, parser.size());
+        assertEquals(1, parser.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Shared parse results cannot be modified through the index mappings")
+    public void indexMappingsAreCopied() {
+        NamedParameterParseResult nppr = NamedParameterParser.cached(1).parse("SELECT :a, :a");
+
+        nppr.getIndexMappings().get("a")[0] = 5;
+        nppr.getIndexMappings().clear();
+
+        assertArrayEquals(new int[] { 1, 2 }, nppr.getIndexMappings().get("a"));
+    }
+}
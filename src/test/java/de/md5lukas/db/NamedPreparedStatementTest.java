@@ -3,8 +3,24 @@ package de.md5lukas.db;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class NamedPreparedStatementTest {
 
@@ -68,4 +84,149 @@ public class NamedPreparedStatementTest {
         assertArrayEquals(new int[] { 1, 3 }, nppr.getIndexMappings().get("param"));
         assertArrayEquals(new int[] { 2, 4 }, nppr.getIndexMappings().get("other"));
     }
+
+    @Test
+    public void parameterHandles() {
+        NamedParameterParseResult nppr = NamedPreparedStatement
+                .parseSQLString("SELECT * FROM table WHERE id = :param AND other = :other AND o2 = :param");
+
+        assertEquals(2, nppr.getParameterCount());
+        NamedParameter other = nppr.getParameter("other");
+        NamedParameter param = nppr.getParameter("param");
+        assertEquals(0, other.getOrdinal());
+        assertEquals(1, param.getOrdinal());
+        assertSame(param, nppr.getParameters().get(param.getOrdinal()));
+        assertArrayEquals(new int[] { 1, 3 }, param.getIndexes());
+        assertArrayEquals(new int[] { 2 }, other.getIndexes());
+    }
+
+    @Test
+    public void unknownParameterHandle() {
+        NamedParameterParseResult nppr = NamedPreparedStatement.parseSQLString("SELECT * FROM table WHERE id = :param");
+
+        assertFalse(nppr.hasParameter("other"));
+        assertThrows(IllegalArgumentException.class, () -> nppr.getParameter("other"));
+    }
+
+    @Test
+    @DisplayName("Colons inside literals, quoted identifiers and comments are not parameters")
+    public void quotedAndCommentedColons() {
+        NamedParameterParseResult nppr = NamedPreparedStatement.parseSQLString(
+                "SELECT ':a', 'it''s :b', \"c:d\", `:e`, [:f] FROM table -- :g\n WHERE /* :h */ id = :id");
+
+        assertEquals("SELECT ':a', 'it''s :b', \"c:d\", `:e`, [:f] FROM table -- :g\n WHERE /* :h */ id = ?", nppr.getSubstitutedSql());
+        assertEquals(1, nppr.getIndexMappings().size());
+        assertArrayEquals(new int[] { 1 }, nppr.getIndexMappings().get("id"));
+    }
+
+    @Test
+    @DisplayName("Double colon casts are not parameters")
+    public void castsAreSkipped() {
+        NamedParameterParseResult nppr = NamedPreparedStatement.parseSQLString("SELECT value::text FROM table WHERE id = :id::integer");
+
+        assertEquals("SELECT value::text FROM table WHERE id = ?::integer", nppr.getSubstitutedSql());
+        assertArrayEquals(new int[] { 1 }, nppr.getIndexMappings().get("id"));
+    }
+
+    @Test
+    public void supplementaryCharacterNames() {
+        String name = "p\uD835\uDC9Cq";
+        NamedParameterParseResult nppr = NamedPreparedStatement.parseSQLString("SELECT * FROM table WHERE a = :" + name + " AND b = :" + name);
+
+        assertEquals("SELECT * FROM table WHERE a = ? AND b = ?", nppr.getSubstitutedSql());
+        assertArrayEquals(new int[] { 1, 2 }, nppr.getIndexMappings().get(name));
+    }
+
+    @Test
+    public void manyParameterNames() {
+        StringBuilder sql = new StringBuilder("SELECT * FROM table WHERE 1");
+        for (int i = 0; i < 100; i++) {
+            sql.append(" AND c").append(i).append(" = :p").append(i).append(" AND d").append(i).append(" = :p").append(i);
+        }
+
+        NamedParameterParseResult nppr = NamedPreparedStatement.parseSQLString(sql.toString());
+
+        assertEquals(100, nppr.getParameterCount());
+        for (int i = 0; i < 100; i++) {
+            assertArrayEquals(new int[] { 2 * i + 1, 2 * i + 2 }, nppr.getParameter("p" + i).getIndexes());
+        }
+    }
+
+    @Test
+    @DisplayName("Expanded parameters are padded to a power of two and shift the following indexes")
+    public void expandedParameter() {
+        NamedParameterParseResult nppr = NamedPreparedStatement
+                .parseSQLString("SELECT * FROM table WHERE a = :a AND id IN (:ids) AND b = :b OR id IN (:ids)");
+
+        NamedParameterParseResult expanded = nppr.expand("ids", 3);
+        assertEquals("SELECT * FROM table WHERE a = ? AND id IN (?, ?, ?, ?) AND b = ? OR id IN (?, ?, ?, ?)", expanded.getSubstitutedSql());
+        assertEquals(nppr.getSql(), expanded.getSql());
+        assertArrayEquals(new int[] { 1 }, expanded.getIndexMappings().get("a"));
+        assertArrayEquals(new int[] { 2, 3, 4, 5, 7, 8, 9, 10 }, expanded.getIndexMappings().get("ids"));
+        assertArrayEquals(new int[] { 6 }, expanded.getIndexMappings().get("b"));
+        assertEquals(4, expanded.getParameter("ids").getExpandedSize());
+        assertEquals(0, expanded.getParameter("a").getExpandedSize());
+
+        assertSame(expanded, nppr.expand("ids", 4));
+        assertEquals("SELECT * FROM table WHERE a = ? AND id IN (?) AND b = ? OR id IN (?)", nppr.expand("ids", 0).getSubstitutedSql());
+        assertThrows(IllegalArgumentException.class, () -> expanded.expand("ids", 2));
+
+        NamedParameterParseResult twice = expanded.expand("b", 2);
+        assertEquals("SELECT * FROM table WHERE a = ? AND id IN (?, ?, ?, ?) AND b = ?, ? OR id IN (?, ?, ?, ?)", twice.getSubstitutedSql());
+        assertArrayEquals(new int[] { 2, 3, 4, 5, 8, 9, 10, 11 }, twice.getIndexMappings().get("ids"));
+        assertArrayEquals(new int[] { 6, 7 }, twice.getIndexMappings().get("b"));
+    }
+
+    @Test
+    @DisplayName("Large values are bound from buffers and streams and copied into caller buffers")
+    public void largeValues() throws SQLException {
+        byte[] payload = new byte[100_000];
+        new Random(42).nextBytes(payload);
+        ByteBuffer direct = ByteBuffer.allocateDirect(payload.length);
+        direct.put(payload).flip();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE blobs (id INTEGER PRIMARY KEY, data BLOB, copy BLOB, text TEXT)");
+            }
+            try (NamedPreparedStatement statement = new NamedPreparedStatement(connection,
+                    "INSERT INTO blobs (id, data, copy, text) VALUES (:id, :data, :data, :text)")) {
+                statement.setInt("id", 1);
+                statement.setBinaryStream("data", new ByteArrayInputStream(payload), payload.length);
+                statement.setCharacterStream("text", new StringReader("hello world"), 5);
+                statement.executeUpdate();
+
+                statement.setInt("id", 2);
+                statement.setByteBuffer("data", direct);
+                statement.setBytes("text", null);
+                statement.executeUpdate();
+                assertEquals(0, direct.position());
+
+                statement.setInt("id", 3);
+                assertThrows(SQLException.class, () -> statement.setBinaryStream("data", new ByteArrayInputStream(payload), payload.length + 1));
+            }
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT data, copy, text FROM blobs ORDER BY id")) {
+                assertTrue(resultSet.next());
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertEquals(payload.length, LargeValues.transferTo(resultSet, 2, out));
+                assertArrayEquals(payload, out.toByteArray());
+                StringWriter writer = new StringWriter();
+                assertEquals(5, LargeValues.transferTo(resultSet, 3, writer));
+                assertEquals("hello", writer.toString());
+
+                assertTrue(resultSet.next());
+                ByteBuffer target = ByteBuffer.allocateDirect(1000);
+                assertEquals(payload.length, LargeValues.read(resultSet, 1, target));
+                assertEquals(1000, target.position());
+                target.flip();
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(payload[i], target.get(i));
+                }
+                assertEquals(-1, LargeValues.transferTo(resultSet, 3, new StringWriter()));
+                assertFalse(resultSet.next());
+            }
+        }
+    }
 }
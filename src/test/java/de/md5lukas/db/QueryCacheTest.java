@@ -0,0 +1,182 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QueryCacheTest {
+
+    private static final RowMapper<String> NAME = resultSet -> resultSet.getString(1);
+    private static final String SELECT = "SELECT name FROM entries WHERE id <= :id ORDER BY id";
+
+    @TempDir
+    File directory;
+
+    private static SQLiteHelper open(File file, SQLiteOptions options) throws SQLException {
+        SQLiteHelper helper = new SQLiteHelper(file, options);
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT)");
+            statement.executeUpdate("CREATE TABLE other (id INTEGER PRIMARY KEY)");
+            statement.executeUpdate("INSERT INTO entries (id, name) VALUES (1, 'a'), (2, 'b')");
+        }
+        return helper;
+    }
+
+    private static void write(SQLiteHelper helper, String sql, int id) throws SQLException {
+        NamedPreparedStatement statement = helper.leaseStatement(sql);
+        try {
+            statement.setInt("id", id);
+            statement.executeUpdate();
+        } finally {
+            helper.releaseStatement(statement);
+        }
+    }
+
+    @Test
+    @DisplayName("Results are cached per parameters and invalidated by writes to their tables")
+    public void cachedAndInvalidated() throws SQLException {
+        QueryCache cache = QueryCache.bySize(16);
+        SQLiteHelper helper = open(new File(directory, "cache.db"), new SQLiteOptions().queryCache(cache));
+        try {
+            Map<String, Integer> parameters = Collections.singletonMap("id", 2);
+            List<String> first = helper.cachedQuery(SELECT, parameters, NAME);
+            assertEquals(Arrays.asList("a", "b"), first);
+            assertSame(first, helper.cachedQuery(SELECT, Collections.singletonMap("id", 2), NAME));
+            assertEquals(Collections.singletonList("a"), helper.cachedQuery(SELECT, Collections.singletonMap("id", 1), NAME));
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+            assertThrows(UnsupportedOperationException.class, () -> first.add("c"));
+
+            // Writes to unrelated tables keep the results
+            write(helper, "INSERT INTO other (id) VALUES (:id)", 1);
+            assertSame(first, helper.cachedQuery(SELECT, parameters, NAME));
+
+            write(helper, "UPDATE entries SET name = 'c' WHERE id = :id", 2);
+            assertEquals(0, cache.size());
+            // The cache is invalidated without timing the statements through a listener
+            NamedPreparedStatement statement = helper.leaseStatement("UPDATE entries SET name = 'c' WHERE id = :id");
+            assertNull(statement.getListener());
+            helper.releaseStatement(statement);
+            assertEquals(2, cache.getInvalidationCount());
+            assertEquals(Arrays.asList("a", "c"), helper.cachedQuery(SELECT, parameters, NAME));
+            assertEquals(0.4, cache.getHitRate(), 0.001);
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Transactions, the write pipeline and bulk inserts invalidate the written tables")
+    public void transactionsAndWritePipeline() throws SQLException, ExecutionException, InterruptedException {
+        QueryCache cache = QueryCache.byWeight(100);
+        SQLiteHelper helper = open(new File(directory, "pipeline.db"), new SQLiteOptions().queryCache(cache)
+                .writeBehind(16, 8, 0, TimeUnit.MILLISECONDS));
+        try {
+            Map<String, Integer> parameters = Collections.singletonMap("id", 10);
+            assertEquals(2, helper.cachedQuery(SELECT, parameters, NAME).size());
+
+            helper.inTransaction(connection -> {
+                write(helper, "INSERT INTO entries (id, name) VALUES (:id, 'c')", 3);
+                return null;
+            });
+            assertEquals(3, helper.cachedQuery(SELECT, parameters, NAME).size());
+
+            helper.submitWrite("DELETE FROM \"Entries\" WHERE id = :id", Collections.singletonMap("id", 1)).get();
+            assertEquals(2, helper.cachedQuery(SELECT, parameters, NAME).size());
+
+            try (BulkInsertStatement bulk = helper.createBulkInsert("INSERT INTO entries (id, name) VALUES (:id, 'd')")) {
+                assertEquals(3, bulk.insert(Arrays.asList(4, 5, 6), (statement, id) -> statement.setInt("id", id)));
+            }
+            assertEquals(5, helper.cachedQuery(SELECT, parameters, NAME).size());
+
+            // Declared tables are invalidated manually
+            List<String> declared = helper.cachedQuery("SELECT 'x'", Collections.singleton("Views"), Collections.emptyMap(), NAME);
+            assertSame(declared, helper.cachedQuery("SELECT 'x'", Collections.singleton("views"), Collections.emptyMap(), NAME));
+            cache.invalidate("VIEWS");
+            assertEquals(1, cache.size());
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Batches in their own transaction invalidate the written tables again after the commit")
+    public void batchInvalidatedAfterCommit() throws SQLException {
+        String insert = "INSERT INTO entries (id, name) VALUES (:id, 'c')";
+        RowMapper<Integer> count = resultSet -> resultSet.getInt(1);
+        AtomicReference<SQLiteHelper> reference = new AtomicReference<>();
+        // Caches the uncommitted state on a reader connection after the last chunk has been executed
+        StatementListener listener = new StatementListener() {
+            @Override
+            public void onExecute(NamedParameterParseResult parseResult, long nanos, boolean failed) {
+                if (!failed && parseResult.getSql().equals(insert)) {
+                    try {
+                        reference.get().cachedQuery("SELECT COUNT(*) FROM entries", Collections.emptyMap(), count);
+                    } catch (SQLException e) {
+                        throw new UncheckedSQLException(e);
+                    }
+                }
+            }
+        };
+        SQLiteHelper helper = open(new File(directory, "batch.db"), new SQLiteOptions().queryCache(QueryCache.bySize(16))
+                .readerPoolSize(2).statementListener(listener));
+        reference.set(helper);
+        try {
+            NamedPreparedStatement statement = helper.leaseStatement(insert);
+            try {
+                statement.executeBatch(Arrays.asList(3, 4, 5), (s, id) -> s.setInt("id", id), 3);
+            } finally {
+                helper.releaseStatement(statement);
+            }
+            assertEquals(Collections.singletonList(5), helper.cachedQuery("SELECT COUNT(*) FROM entries", Collections.emptyMap(), count));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void notConfigured() throws SQLException {
+        SQLiteHelper helper = open(new File(directory, "none.db"), new SQLiteOptions());
+        try {
+            assertThrows(IllegalStateException.class, () -> helper.cachedQuery(SELECT, Collections.emptyMap(), NAME));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Tables are extracted from the SQL string")
+    public void tablesExtracted() {
+        assertArrayEquals(new String[] { "a", "b", "c" },
+                SqlTables.read("SELECT * FROM main.A x, \"b\" JOIN [C] ON x.id = c.id WHERE name = 'FROM d' -- JOIN e"));
+        assertArrayEquals(new String[] { "a", "b" }, SqlTables.read("SELECT * FROM a WHERE id IN (SELECT id FROM b)"));
+        assertArrayEquals(new String[] { "a", "b\"c" }, SqlTables.read("SELECT * FROM /* JOIN x */ a -- JOIN y\r\nJOIN \"B\"\"C\""));
+
+        assertNull(SqlTables.written("SELECT replace(name, 'a', 'b') FROM a"));
+        assertNull(SqlTables.written("CREATE TABLE a (id INTEGER REFERENCES b ON DELETE CASCADE ON UPDATE CASCADE)"));
+        assertArrayEquals(new String[] { "a" }, SqlTables.written("INSERT OR REPLACE INTO a SELECT * FROM b"));
+        assertArrayEquals(new String[] { "a" }, SqlTables.written("INSERT INTO a (id) VALUES (1) ON CONFLICT (id) DO UPDATE SET id = 2"));
+        assertArrayEquals(new String[] { "a" }, SqlTables.written("UPDATE OR IGNORE a SET id = 1"));
+        assertArrayEquals(new String[] { "a" }, SqlTables.written("DELETE FROM `A` WHERE id = 1"));
+        assertArrayEquals(new String[] { "a" }, SqlTables.written("DROP TABLE IF EXISTS a"));
+        assertSame(SqlTables.ALL, SqlTables.written("INSERT"));
+    }
+}
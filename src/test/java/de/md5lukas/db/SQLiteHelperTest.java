@@ -0,0 +1,497 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SQLiteHelperTest {
+
+    @TempDir
+    File directory;
+
+    private SQLiteHelper helper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        helper = new SQLiteHelper(new File(directory, "test.db"), new SQLiteOptions().statementCacheSize(1));
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    @DisplayName("Released statements are reused with cleared parameters")
+    public void releasedStatementsReused() throws SQLException {
+        String sql = "INSERT INTO entries (id, name) VALUES (:id, :name)";
+
+        NamedPreparedStatement first = helper.leaseStatement(sql);
+        first.setInt("id", 1);
+        first.setString("name", "first");
+        assertEquals(1, first.executeUpdate());
+        helper.releaseStatement(first);
+
+        NamedPreparedStatement second = helper.leaseStatement(sql);
+        assertSame(first, second);
+        second.setInt("id", 2);
+        assertEquals(1, second.executeUpdate());
+        helper.releaseStatement(second);
+
+        try (NamedPreparedStatement select = new NamedPreparedStatement(helper.getConnection(), "SELECT name FROM entries WHERE id = :id")) {
+            select.setInt("id", 2);
+            try (ResultSet resultSet = select.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertNull(resultSet.getString(1));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Leased statements are not handed out twice")
+    public void leasedStatementsExclusive() throws SQLException {
+        String sql = "SELECT * FROM entries";
+
+        NamedPreparedStatement first = helper.leaseStatement(sql);
+        NamedPreparedStatement second = helper.leaseStatement(sql);
+        assertNotSame(first, second);
+
+        helper.releaseStatement(first);
+        helper.releaseStatement(second);
+        assertFalse(first.isClosed());
+        assertTrue(second.isClosed());
+    }
+
+    @Test
+    @DisplayName("Least recently used statements are closed when evicted")
+    public void evictedStatementsClosed() throws SQLException {
+        NamedPreparedStatement first = helper.leaseStatement("SELECT * FROM entries");
+        NamedPreparedStatement second = helper.leaseStatement("SELECT id FROM entries");
+
+        helper.releaseStatement(first);
+        helper.releaseStatement(second);
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+
+        helper.close();
+        assertTrue(second.isClosed());
+    }
+
+    @Test
+    @DisplayName("Parameter handles can only be used with statements of the same SQL string")
+    public void parameterHandlesOfSameSql() throws SQLException {
+        NamedParameterParseResult nppr = NamedPreparedStatement.parseSQLString("INSERT INTO entries (id, name) VALUES (:id, :name)");
+        NamedParameter id = nppr.getParameter("id");
+
+        try (NamedPreparedStatement statement = nppr.createStatement(helper.getConnection());
+             NamedPreparedStatement other = new NamedPreparedStatement(helper.getConnection(), nppr.getSql())) {
+            statement.setInt(id, 1);
+            statement.setString(nppr.getParameter("name"), "first");
+            assertEquals(1, statement.executeUpdate());
+
+            assertThrows(IllegalArgumentException.class, () -> other.setInt(id, 2));
+        }
+    }
+
+    @Test
+    @DisplayName("Rows are executed in chunked batches inside one transaction")
+    public void batchedRows() throws SQLException {
+        List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5);
+
+        try (NamedPreparedStatement statement = new NamedPreparedStatement(helper.getConnection(), "INSERT INTO entries (id, name) VALUES (:id, :name)")) {
+            int[] updateCounts = statement.executeBatch(ids, (s, id) -> {
+                s.setInt("id", id);
+                s.setString("name", "entry" + id);
+            }, 2);
+            assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, updateCounts);
+
+            Map<String, Object> duplicate = new HashMap<>();
+            duplicate.put("id", 1);
+            duplicate.put("name", "duplicate");
+            Map<String, Object> row = new HashMap<>(duplicate);
+            row.put("id", 6);
+            assertThrows(SQLException.class, () -> statement.executeBatch(Arrays.asList(row, duplicate), 1));
+
+            // Parameters missing from a row are not taken from the previous row
+            Map<String, Object> unnamed = Collections.singletonMap("id", 7);
+            assertArrayEquals(new int[] { 1, 1 }, statement.executeBatch(Arrays.asList(row, unnamed), 2));
+        }
+
+        assertTrue(helper.getConnection().getAutoCommit());
+        assertEquals(7, count());
+        try (Statement statement = helper.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM entries WHERE id = 7")) {
+            assertTrue(resultSet.next());
+            assertNull(resultSet.getString(1));
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Statement statement = helper.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM entries")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Pooled readers are read-only and bounded by the pool size")
+    public void pooledReaders() throws SQLException {
+        SQLiteHelper pooled = new SQLiteHelper(new File(directory, "pooled.db"),
+                new SQLiteOptions().readerPoolSize(2).acquireTimeout(10, TimeUnit.MILLISECONDS));
+        try {
+            try (Statement statement = pooled.getConnection().createStatement();
+                 ResultSet resultSet = statement.executeQuery("PRAGMA journal_mode")) {
+                resultSet.next();
+                assertEquals("wal", resultSet.getString(1));
+                statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY)");
+            }
+
+            try (ConnectionLease first = pooled.leaseReader();
+                 ConnectionLease second = pooled.leaseReader()) {
+                assertNotSame(first.getConnection(), second.getConnection());
+                assertThrows(SQLTimeoutException.class, pooled::leaseReader);
+
+                try (Statement statement = first.getConnection().createStatement()) {
+                    assertThrows(SQLException.class, () -> statement.executeUpdate("INSERT INTO entries (id) VALUES (1)"));
+                }
+                NamedPreparedStatement select = second.leaseStatement("SELECT COUNT(*) FROM entries");
+                try (ResultSet resultSet = select.executeQuery()) {
+                    resultSet.next();
+                    assertEquals(0, resultSet.getInt(1));
+                }
+                second.releaseStatement(select);
+            }
+
+            PoolMetrics metrics = pooled.getReaderPoolMetrics();
+            assertNotNull(metrics);
+            assertEquals(2, metrics.getLeaseCount());
+            assertEquals(1, metrics.getTimeoutCount());
+            assertEquals(0, metrics.getActiveCount());
+            assertEquals(2, metrics.getIdleCount());
+        } finally {
+            pooled.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Submitted writes are committed in batches and failures are isolated")
+    public void writeBehindQueue() throws Exception {
+        SQLiteHelper queued = new SQLiteHelper(new File(directory, "queued.db"),
+                new SQLiteOptions().writeBehind(16, 8, 5, TimeUnit.MILLISECONDS));
+        try {
+            try (Statement statement = queued.getConnection().createStatement()) {
+                statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY)");
+            }
+
+            String sql = "INSERT INTO entries (id) VALUES (:id)";
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(queued.submitWrite(sql, i, (s, id) -> s.setInt("id", id)));
+            }
+            CompletableFuture<Integer> duplicate = queued.submitWrite(sql, Collections.singletonMap("id", 0));
+
+            for (CompletableFuture<Integer> future : futures) {
+                assertEquals(1, future.get(10, TimeUnit.SECONDS));
+            }
+            assertThrows(ExecutionException.class, () -> duplicate.get(10, TimeUnit.SECONDS));
+
+            // The batches are transactions on the writer connection and share its statements
+            assertTrue(queued.getTransactionMetrics().getCommitCount() > 0);
+            NamedPreparedStatement statement = queued.leaseStatement(sql);
+            try {
+                statement.setInt("id", 100);
+                assertEquals(1, statement.executeUpdate());
+            } finally {
+                queued.releaseStatement(statement);
+            }
+            assertEquals(1, queued.submitWrite(sql, 101, (s, id) -> s.setInt("id", id)).get(10, TimeUnit.SECONDS));
+        } finally {
+            queued.close();
+        }
+        assertEquals(0, queued.getPendingWriteCount());
+        assertThrows(IllegalStateException.class, () -> helper.submitWrite("DELETE FROM entries", Collections.emptyMap()));
+    }
+
+    @Test
+    @DisplayName("The connection profile is applied to every connection")
+    public void connectionProfileApplied() throws Exception {
+        SQLiteHelper profiled = new SQLiteHelper(new File(directory, "profiled.db"), new SQLiteOptions()
+                .profile(ConnectionProfile.balanced().pageSize(8192).cacheSize(-1024))
+                .readerPoolSize(1)
+                .walCheckpoint(ConnectionProfile.CheckpointMode.PASSIVE, 10, TimeUnit.MILLISECONDS));
+        try {
+            assertEquals("wal", pragma(profiled.getConnection(), "journal_mode"));
+            assertEquals("1", pragma(profiled.getConnection(), "synchronous"));
+            assertEquals("8192", pragma(profiled.getConnection(), "page_size"));
+            try (ConnectionLease lease = profiled.leaseReader()) {
+                assertEquals("-1024", pragma(lease.getConnection(), "cache_size"));
+                assertEquals("2", pragma(lease.getConnection(), "temp_store"));
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (profiled.getCheckpointCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(profiled.getCheckpointCount() > 0);
+            assertEquals(0, profiled.getFailedCheckpointCount());
+        } finally {
+            profiled.close();
+        }
+
+        // Readers would be blocked by writes without the WAL journal mode
+        assertThrows(IllegalArgumentException.class, () -> new SQLiteHelper(new File(directory, "rollback.db"), new SQLiteOptions()
+                .profile(ConnectionProfile.balanced().journalMode(ConnectionProfile.JournalMode.DELETE))
+                .readerPoolSize(1)));
+    }
+
+    private static String pragma(Connection connection, String name) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA " + name)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Query results are streamed and the resources released when the stream is closed")
+    public void streamedQuery() throws SQLException {
+        try (NamedPreparedStatement statement = new NamedPreparedStatement(helper.getConnection(), "INSERT INTO entries (id, name) VALUES (:id, :name)")) {
+            statement.executeBatch(Arrays.asList(1, 2, 3, 4), (s, id) -> {
+                s.setInt("id", id);
+                s.setString("name", "entry" + id);
+            }, 4);
+        }
+
+        NamedPreparedStatement select = new NamedPreparedStatement(helper.getConnection(), "SELECT name FROM entries WHERE id > :id ORDER BY id");
+        select.setInt("id", 1);
+        try (Stream<String> names = select.stream(resultSet -> resultSet.getString(1), 2, true)) {
+            assertEquals(Arrays.asList("entry2", "entry3"), names.limit(2).collect(Collectors.toList()));
+        }
+        assertTrue(select.isClosed());
+
+        try (Stream<Integer> ids = helper.query("SELECT id FROM entries WHERE name <> :name", Collections.singletonMap("name", "entry1"),
+                resultSet -> resultSet.getInt(1))) {
+            assertEquals(9, ids.mapToInt(Integer::intValue).sum());
+        }
+    }
+
+    @Test
+    @DisplayName("Collections are expanded into IN lists that share the statement of a bucket")
+    public void collectionParameters() throws SQLException {
+        try (NamedPreparedStatement statement = new NamedPreparedStatement(helper.getConnection(), "INSERT INTO entries (id, name) VALUES (:id, :name)")) {
+            statement.executeBatch(Arrays.asList(1, 2, 3, 4, 5), (s, id) -> {
+                s.setInt("id", id);
+                s.setString("name", "entry" + id);
+            }, 5);
+        }
+
+        String sql = "SELECT id FROM entries WHERE id IN (:ids) AND name <> :name ORDER BY id";
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("name", "entry5");
+        parameters.put("ids", Arrays.asList(1, 3, 5));
+        try (Stream<Integer> ids = helper.query(sql, parameters, resultSet -> resultSet.getInt(1))) {
+            assertEquals(Arrays.asList(1, 3), ids.collect(Collectors.toList()));
+        }
+        parameters.put("ids", Collections.emptyList());
+        try (Stream<Integer> ids = helper.query(sql, parameters, resultSet -> resultSet.getInt(1))) {
+            assertEquals(0, ids.count());
+        }
+
+        NamedParameterParseResult expanded = NamedPreparedStatement.parseSQLString(sql).expand("ids", 4);
+        NamedPreparedStatement statement = helper.leaseStatement(expanded);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> statement.setCollection("ids", Arrays.asList(1, 2, 3, 4, 5)));
+            assertThrows(IllegalArgumentException.class, () -> statement.setCollection("name", Collections.singletonList("x")));
+            statement.setCollection("ids", Arrays.asList(2, 4));
+            statement.setString("name", "");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                List<Integer> ids = new ArrayList<>();
+                while (resultSet.next()) {
+                    ids.add(resultSet.getInt(1));
+                }
+                assertEquals(Arrays.asList(2, 4), ids);
+            }
+        } finally {
+            helper.releaseStatement(statement);
+        }
+        NamedPreparedStatement reused = helper.leaseStatement(NamedPreparedStatement.parseSQLString(sql).expand("ids", 3));
+        assertSame(statement, reused);
+        helper.releaseStatement(reused);
+    }
+
+    @Test
+    @DisplayName("Transactions commit, roll back and roll back nested savepoints on their own")
+    public void transactions() throws SQLException {
+        int id = helper.inTransaction(connection -> {
+            try (NamedPreparedStatement statement = new NamedPreparedStatement(connection, "INSERT INTO entries (id, name) VALUES (:id, :name)")) {
+                statement.executeBatch(Arrays.asList(1, 2), (s, row) -> {
+                    s.setInt("id", row);
+                    s.setString("name", "entry" + row);
+                }, 2);
+
+                assertThrows(SQLException.class, () -> helper.inTransaction(nested -> {
+                    statement.setInt("id", 3);
+                    statement.setString("name", "entry3");
+                    statement.executeUpdate();
+                    throw new SQLException("Rolled back");
+                }));
+                return helper.inTransaction(TransactionMode.DEFERRED, nested -> {
+                    statement.setInt("id", 4);
+                    statement.setString("name", "entry4");
+                    statement.executeUpdate();
+                    return 4;
+                });
+            }
+        });
+        assertEquals(4, id);
+        assertEquals(3, count());
+        assertTrue(helper.getConnection().getAutoCommit());
+
+        assertThrows(IllegalStateException.class, () -> helper.inTransaction(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM entries");
+            }
+            throw new IllegalStateException();
+        }));
+        assertEquals(3, count());
+        assertTrue(helper.getConnection().getAutoCommit());
+
+        TransactionMetrics metrics = helper.getTransactionMetrics();
+        assertEquals(1, metrics.getCommitCount());
+        assertEquals(1, metrics.getRollbackCount());
+        assertEquals(0, metrics.getRetryCount());
+    }
+
+    @Test
+    @DisplayName("Transactions are retried while the database is locked by another connection")
+    public void transactionRetriedWhileBusy() throws Exception {
+        File file = new File(directory, "busy.db");
+        SQLiteHelper busy = new SQLiteHelper(file, new SQLiteOptions()
+                .profile(new ConnectionProfile().busyTimeout(0))
+                .transactionRetry(1000, 1, 5, TimeUnit.MILLISECONDS));
+        try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+             Statement lock = other.createStatement()) {
+            busy.inTransaction(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    return statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY)");
+                }
+            });
+
+            lock.execute("BEGIN IMMEDIATE");
+            CompletableFuture<Integer> inserted = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return busy.inTransaction(connection -> {
+                        try (Statement statement = connection.createStatement()) {
+                            return statement.executeUpdate("INSERT INTO entries (id) VALUES (1)");
+                        }
+                    });
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            });
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (busy.getTransactionMetrics().getRetryCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            lock.execute("COMMIT");
+
+            assertEquals(1, inserted.get(10, TimeUnit.SECONDS));
+            TransactionMetrics metrics = busy.getTransactionMetrics();
+            assertTrue(metrics.getRetryCount() > 0);
+            assertEquals(0, metrics.getBusyFailureCount());
+            assertEquals(2, metrics.getCommitCount());
+        } finally {
+            busy.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Transactions begin in the requested mode through the driver and with plain SQL for other drivers")
+    public void transactionModeBegun() throws Exception {
+        File file = new File(directory, "modes.db");
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+             Connection other = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+             Statement lock = other.createStatement()) {
+            lock.execute("PRAGMA busy_timeout = 0");
+            for (boolean driver : new boolean[] { true, false }) {
+                AtomicInteger statements = new AtomicInteger();
+                // Hides the driver connection to simulate other drivers and counts the statements created for plain SQL
+                Connection wrapped = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                        (proxy, method, arguments) -> {
+                            if (method.getName().equals("isWrapperFor") && !driver) {
+                                return false;
+                            }
+                            if (method.getName().equals("createStatement")) {
+                                statements.incrementAndGet();
+                            }
+                            try {
+                                return method.invoke(connection, arguments);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+
+                DriverTransactions.begin(wrapped, TransactionMode.IMMEDIATE);
+                assertFalse(connection.getAutoCommit());
+                assertThrows(SQLException.class, () -> lock.execute("BEGIN IMMEDIATE"));
+                connection.commit();
+                connection.setAutoCommit(true);
+                // The transaction begun by the driver after the commit is deferred and does not keep the write lock
+                lock.execute("BEGIN IMMEDIATE");
+                lock.execute("COMMIT");
+                assertEquals(driver ? 0 : 1, statements.get());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("The backoff delay is clamped to the maximum delay without overflowing")
+    public void backoffDelayClamped() {
+        assertEquals(1, SQLiteHelper.backoffDelay(0, 1, 5));
+        assertEquals(4, SQLiteHelper.backoffDelay(2, 1, 5));
+        assertEquals(5, SQLiteHelper.backoffDelay(3, 1, 5));
+        assertEquals(5, SQLiteHelper.backoffDelay(1000, 1, 5));
+        assertEquals(0, SQLiteHelper.backoffDelay(1000, 0, 5));
+        assertEquals(Long.MAX_VALUE, SQLiteHelper.backoffDelay(30, 1_000_000_000_000L, Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, SQLiteHelper.backoffDelay(Integer.MAX_VALUE, 1, Long.MAX_VALUE));
+    }
+}
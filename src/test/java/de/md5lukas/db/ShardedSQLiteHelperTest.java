@@ -0,0 +1,167 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedSQLiteHelperTest {
+
+    private static final String INSERT = "INSERT INTO entries (id, name) VALUES (:id, :name)";
+    private static final RowMapper<Integer> ID = resultSet -> resultSet.getInt(1);
+
+    @TempDir
+    File directory;
+
+    private ShardedSQLiteHelper helper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            files.add(new File(directory, "shard-" + i + ".db"));
+        }
+        helper = new ShardedSQLiteHelper(files, new SQLiteOptions().readerPoolSize(2), "id", ShardRouter.hash(), null);
+        assertEquals(0, helper.executeUpdateAll("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT)", Collections.emptyMap()));
+        for (int id = 1; id <= 1000; id++) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("id", id);
+            parameters.put("name", "name " + id);
+            assertEquals(1, helper.executeUpdate(INSERT, parameters));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        helper.close();
+    }
+
+    private int count(int shard) throws SQLException {
+        try (Stream<Integer> ids = helper.getShards().get(shard).query("SELECT id FROM entries", Collections.emptyMap(), ID)) {
+            return (int) ids.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Keys are routed by their hash or their range")
+    public void routing() {
+        ShardRouter hash = ShardRouter.hash();
+        int[] counts = new int[4];
+        for (long key = 0; key < 4000; key++) {
+            counts[hash.shardOf(key, 4)]++;
+            assertEquals(hash.shardOf(key, 4), hash.shardOf((int) key, 4));
+        }
+        for (int count : counts) {
+            assertTrue(count > 800, "Keys are not distributed evenly: " + Arrays.toString(counts));
+        }
+
+        ShardRouter range = ShardRouter.range(100L, 200L);
+        assertEquals(0, range.shardOf(-5, 3));
+        assertEquals(1, range.shardOf(100, 3));
+        assertEquals(1, range.shardOf((short) 199, 3));
+        assertEquals(2, range.shardOf(200L, 3));
+        assertThrows(IllegalStateException.class, () -> range.shardOf(1, 4));
+        assertThrows(IllegalArgumentException.class, () -> ShardRouter.range("b", "a"));
+    }
+
+    @Test
+    @DisplayName("Statements with a key are executed on its shard only")
+    public void routedStatements() throws SQLException {
+        int total = 0;
+        for (int shard = 0; shard < helper.getShardCount(); shard++) {
+            assertTrue(count(shard) > 0);
+            total += count(shard);
+        }
+        assertEquals(1000, total);
+
+        try (Stream<String> names = helper.query("SELECT name FROM entries WHERE id = :id", Collections.singletonMap("id", 42L),
+                resultSet -> resultSet.getString(1))) {
+            assertEquals(Collections.singletonList("name 42"), names.collect(Collectors.toList()));
+        }
+        assertEquals("name 7", helper.inTransaction(7, connection -> {
+            try (Stream<String> names = helper.shardFor(7).query("SELECT name FROM entries WHERE id = 7", Collections.emptyMap(),
+                    resultSet -> resultSet.getString(1))) {
+                return names.findFirst().orElse(null);
+            }
+        }));
+
+        assertThrows(IllegalArgumentException.class, () -> helper.executeUpdate(INSERT, Collections.singletonMap("name", "x")));
+        assertThrows(NullPointerException.class, () -> helper.executeUpdate(INSERT, Collections.singletonMap("id", null)));
+        assertEquals(1000, helper.executeUpdateAll("UPDATE entries SET name = upper(name)", Collections.emptyMap()));
+    }
+
+    @Test
+    @DisplayName("Queries without a key are executed on all shards and merged")
+    public void fanOut() throws SQLException {
+        try (Stream<Integer> ids = helper.query("SELECT id FROM entries", Collections.emptyMap(), ID)) {
+            List<Integer> sorted = ids.sorted().collect(Collectors.toList());
+            assertEquals(1000, sorted.size());
+            assertEquals(1, (int) sorted.get(0));
+            assertEquals(1000, (int) sorted.get(999));
+        }
+
+        try (Stream<Integer> ids = helper.query("SELECT id FROM entries WHERE id > :min ORDER BY id DESC", Collections.singletonMap("min", 100), ID,
+                Comparator.reverseOrder())) {
+            List<Integer> merged = ids.collect(Collectors.toList());
+            assertEquals(900, merged.size());
+            for (int i = 0; i < merged.size(); i++) {
+                assertEquals(1000 - i, (int) merged.get(i));
+            }
+        }
+
+        List<Integer> keys = Arrays.asList(3, 500, 17, 999, 64);
+        try (Stream<Integer> ids = helper.query("SELECT id FROM entries WHERE id IN (:id) ORDER BY id", Collections.singletonMap("id", keys), ID,
+                Comparator.naturalOrder())) {
+            assertEquals(Arrays.asList(3, 17, 64, 500, 999), ids.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("Closing a merged stream early releases the connections and failures are propagated")
+    public void earlyCloseAndFailures() throws SQLException {
+        for (int i = 0; i < 20; i++) {
+            try (Stream<Integer> ids = helper.query("SELECT id FROM entries ORDER BY id", Collections.emptyMap(), ID, Comparator.naturalOrder())) {
+                Iterator<Integer> iterator = ids.iterator();
+                assertEquals(1, (int) iterator.next());
+                assertEquals(2, (int) iterator.next());
+            }
+        }
+        for (SQLiteHelper shard : helper.getShards()) {
+            PoolMetrics metrics = shard.getReaderPoolMetrics();
+            assertNotNull(metrics);
+            assertEquals(0, metrics.getActiveCount());
+        }
+
+        assertThrows(UncheckedSQLException.class, () -> {
+            try (Stream<Integer> ids = helper.query("SELECT missing FROM entries", Collections.emptyMap(), ID)) {
+                ids.count();
+            }
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            try (Stream<Integer> ids = helper.query("SELECT id FROM entries", Collections.emptyMap(), resultSet -> {
+                throw new IllegalStateException("Mapping failed");
+            })) {
+                ids.count();
+            }
+        });
+    }
+}
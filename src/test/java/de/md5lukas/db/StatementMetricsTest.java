@@ -0,0 +1,133 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatementMetricsTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    @DisplayName("Histogram buckets are contiguous and cover every value")
+    public void histogramBuckets() {
+        for (int bucket = 1; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+            assertEquals(LatencyHistogram.upperBoundOf(bucket - 1) + 1, LatencyHistogram.lowerBoundOf(bucket));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LatencyHistogram.BUCKET_COUNT - 1));
+
+        long[] values = { 0, 7, 8, 9, 1_000, 123_456_789, Long.MAX_VALUE };
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.lowerBoundOf(bucket) <= value && value <= LatencyHistogram.upperBoundOf(bucket));
+        }
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMaxNanos());
+        assertEquals(500_500, snapshot.getMeanNanos(), 0.001);
+        assertEquals(500_000, snapshot.getValueAtPercentile(50), 500_000 * 0.125);
+        assertEquals(990_000, snapshot.getValueAtPercentile(99), 990_000 * 0.125);
+        assertEquals(1_000_000, snapshot.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101));
+    }
+
+    @Test
+    @DisplayName("All phases of statements leased from the helper are recorded")
+    public void phasesRecorded() throws SQLException {
+        List<String> slowQueries = new ArrayList<>();
+        StatementMetrics metrics = new StatementMetrics()
+                .slowQueryThreshold(0, TimeUnit.NANOSECONDS)
+                .slowQueryListener((parseResult, nanos) -> slowQueries.add(parseResult.getSql()));
+        SQLiteHelper helper = new SQLiteHelper(new File(directory, "metrics.db"), new SQLiteOptions().statementListener(metrics));
+        try {
+            try (Statement statement = helper.getConnection().createStatement()) {
+                statement.executeUpdate("CREATE TABLE entries (id INTEGER PRIMARY KEY, name TEXT)");
+            }
+
+            String insert = "INSERT INTO entries (id, name) VALUES (:id, :name)";
+            for (int id = 1; id <= 3; id++) {
+                NamedPreparedStatement statement = helper.leaseStatement(insert);
+                try {
+                    statement.setInt("id", id);
+                    statement.setString("name", "entry" + id);
+                    statement.executeUpdate();
+                } finally {
+                    helper.releaseStatement(statement);
+                }
+            }
+            String select = "SELECT name FROM entries WHERE id > :id";
+            try (Stream<String> names = helper.query(select, Collections.singletonMap("id", 1), resultSet -> resultSet.getString(1))) {
+                assertEquals(2, names.collect(Collectors.toList()).size());
+            }
+
+            StatementStatistics inserts = metrics.snapshot(insert);
+            assertNotNull(inserts);
+            assertEquals(1, inserts.getPrepareLatency().getCount());
+            assertEquals(3, inserts.getBindLatency().getCount());
+            assertEquals(3, inserts.getExecuteLatency().getCount());
+            assertEquals(0, inserts.getFailureCount());
+            assertEquals(3, inserts.getSlowCount());
+
+            StatementStatistics selects = metrics.snapshot(select);
+            assertNotNull(selects);
+            assertEquals(1, selects.getExecuteLatency().getCount());
+            assertEquals(1, selects.getFetchLatency().getCount());
+            assertEquals(2, selects.getFetchedRows());
+
+            assertEquals(2, metrics.snapshot().size());
+            assertEquals(4, slowQueries.size());
+
+            metrics.reset();
+            assertNull(metrics.snapshot(insert));
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Failed executions are counted")
+    public void failuresRecorded() throws SQLException {
+        StatementMetrics metrics = new StatementMetrics();
+        SQLiteHelper helper = new SQLiteHelper(new File(directory, "failures.db"), new SQLiteOptions().statementListener(metrics));
+        try {
+            try (NamedPreparedStatement statement = new NamedPreparedStatement(helper.getConnection(), "SELECT :value")) {
+                statement.setListener(metrics);
+                statement.getPreparedStatement().close();
+                assertThrows(SQLException.class, statement::executeQuery);
+            }
+
+            StatementStatistics statistics = metrics.snapshot("SELECT :value");
+            assertNotNull(statistics);
+            assertEquals(1, statistics.getFailureCount());
+            assertEquals(0, statistics.getPrepareLatency().getCount());
+        } finally {
+            helper.close();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package de.md5lukas.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatementRegistryTest {
+
+    private static final String SELECT = "SELECT name FROM users WHERE id = :id";
+    private static final String INSERT = "INSERT INTO users (id, name) VALUES (:id, :name)";
+
+    @TempDir
+    File directory;
+
+    private StatementMetrics metrics;
+    private SQLiteHelper helper;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        metrics = new StatementMetrics();
+        helper = new SQLiteHelper(new File(directory, "registry.db"), new SQLiteOptions().readerPoolSize(2).statementListener(metrics));
+        try (Statement statement = helper.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE users (id INTEGER PRIMARY KEY, name TEXT)");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        helper.close();
+    }
+
+    private long prepareCount(String sql) {
+        StatementStatistics statistics = metrics.snapshot(sql);
+        return statistics == null ? 0 : statistics.getPrepareLatency().getCount();
+    }
+
+    @Test
+    @DisplayName("Templates are prepared on all connections in the background and broken templates are reported")
+    public void warmUp() throws SQLException {
+        StatementRegistry registry = helper.getStatementRegistry();
+        StatementHandle select = registry.register("select", SELECT);
+        StatementHandle insert = registry.register(INSERT);
+        StatementHandle broken = registry.register("broken", "SELECT missing FROM users WHERE id = :id");
+        assertFalse(select.isParsed());
+
+        WarmUpReport report = registry.warmUp().join();
+        assertEquals(3, report.getStatementCount());
+        assertEquals(3, report.getConnectionCount());
+        assertEquals(1 + 2, report.getPreparedCount());
+        assertTrue(report.getElapsedNanos() > 0);
+        assertEquals(Collections.singleton(broken), report.getFailures().keySet());
+        assertNotNull(broken.getFailure());
+        assertNull(select.getFailure());
+        assertTrue(select.isParsed());
+        assertThrows(SQLException.class, report::throwIfFailed);
+        assertEquals(2, prepareCount(SELECT));
+        assertEquals(1, prepareCount(INSERT));
+
+        // The first requests use the statements prepared by the warm-up
+        NamedPreparedStatement statement = registry.lease(insert);
+        try {
+            statement.setInt("id", 1);
+            statement.setString("name", "first");
+            assertEquals(1, statement.executeUpdate());
+        } finally {
+            registry.release(statement);
+        }
+        try (Stream<String> names = registry.query(select, Collections.singletonMap("id", 1), resultSet -> resultSet.getString(1))) {
+            assertEquals(Collections.singletonList("first"), names.collect(Collectors.toList()));
+        }
+        assertEquals(2, prepareCount(SELECT));
+        assertEquals(1, prepareCount(INSERT));
+
+        try (Statement ddl = helper.getConnection().createStatement()) {
+            ddl.executeUpdate("ALTER TABLE users ADD COLUMN missing TEXT");
+        }
+        assertTrue(registry.warmUp().join().isSuccessful());
+        assertNull(broken.getFailure());
+    }
+
+    @Test
+    @DisplayName("A repeated warm-up prepares the cached statements again and reports templates broken by a migration")
+    public void warmUpAfterMigration() throws SQLException {
+        StatementRegistry registry = helper.getStatementRegistry();
+        StatementHandle select = registry.register("select", SELECT);
+        StatementHandle insert = registry.register(INSERT);
+        assertTrue(registry.warmUp().join().isSuccessful());
+        assertEquals(2, prepareCount(SELECT));
+        assertEquals(1, prepareCount(INSERT));
+
+        try (Statement ddl = helper.getConnection().createStatement()) {
+            ddl.executeUpdate("DROP TABLE users");
+            ddl.executeUpdate("CREATE TABLE users (id INTEGER PRIMARY KEY, label TEXT)");
+        }
+        WarmUpReport report = registry.warmUp().join();
+        assertEquals(0, report.getPreparedCount());
+        assertEquals(new HashSet<>(Arrays.asList(select, insert)), report.getFailures().keySet());
+        assertNotNull(select.getFailure());
+        assertNotNull(insert.getFailure());
+    }
+
+    @Test
+    @DisplayName("Templates are registered once and handles are bound to their registry")
+    public void registration() throws SQLException {
+        StatementRegistry registry = helper.getStatementRegistry();
+        StatementHandle select = registry.register("select", SELECT);
+        assertSame(select, registry.register("select", SELECT));
+        assertSame(select, registry.get("select"));
+        assertEquals(1, registry.size());
+        assertThrows(IllegalArgumentException.class, () -> registry.register(SELECT));
+        assertThrows(IllegalArgumentException.class, () -> registry.register("select", INSERT));
+        assertNull(registry.get("insert"));
+
+        // Handles can be used without a warm-up
+        StatementHandle insert = registry.register(INSERT);
+        NamedPreparedStatement statement = registry.lease(insert);
+        registry.release(statement);
+        assertTrue(insert.isParsed());
+
+        SQLiteHelper other = new SQLiteHelper(new File(directory, "other.db"));
+        try {
+            assertThrows(IllegalArgumentException.class, () -> other.getStatementRegistry().lease(select));
+        } finally {
+            other.close();
+        }
+    }
+}